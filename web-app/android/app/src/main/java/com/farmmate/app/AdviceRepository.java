@@ -4,32 +4,76 @@ import android.content.Context;
 import android.content.res.AssetManager;
 import android.util.Log;
 import org.json.JSONObject;
-import org.json.JSONArray;
 import org.json.JSONException;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class AdviceRepository {
+public class AdviceRepository implements MemoryGovernor.Consumer {
     private static final String TAG = "AdviceRepository";
+    private static final Map<String, String> JSON_FILES = new HashMap<>();
+    static {
+        JSON_FILES.put("en", "english.json");
+        JSON_FILES.put("hi", "hindi.json");
+        JSON_FILES.put("te", "telugu.json");
+    }
     private Context context;
-    private JSONObject englishData;
-    private JSONObject hindiData;
-    private JSONObject teluguData;
+    // Loaded on first use per language, so unused languages are never read
+    private final Map<String, AdviceStore> stores = new ConcurrentHashMap<>();
+    // Rough in-memory size per loaded language, for MemoryGovernor
+    private final Map<String, Long> storeBytes = new ConcurrentHashMap<>();
+    // Kept when trimming to the IDLE tier
+    private volatile String lastCode = "en";
     
     public AdviceRepository(Context context) {
         this.context = context;
-        loadAllData();
     }
     
-    private void loadAllData() {
-        englishData = loadJsonFile("english.json");
-        hindiData = loadJsonFile("hindi.json");
-        teluguData = loadJsonFile("telugu.json");
+    private AdviceStore getStore(String language) {
+        String code = "hi".equals(language) || "te".equals(language) ? language : "en";
+        lastCode = code;
+        AdviceStore store = stores.get(code);
+        if (store == null) {
+            synchronized (stores) {
+                store = stores.get(code);
+                if (store == null) {
+                    store = loadStore(code);
+                    stores.put(code, store);
+                }
+            }
+        }
+        return store;
+    }
+    
+    private AdviceStore loadStore(String code) {
+        long startNs = System.nanoTime();
+        AssetManager assetManager = context.getAssets();
+        try (InputStream inputStream = new BufferedInputStream(assetManager.open("advice_" + code + ".bin"))) {
+            // Strings decode to UTF-16, so about twice the (mostly ASCII) file size
+            storeBytes.put(code, 2L * inputStream.available());
+            AdviceStore store = AdviceStore.read(inputStream, code);
+            Log.d(TAG, "Loaded advice_" + code + ".bin in " + (System.nanoTime() - startNs) / 1000 + " us");
+            return store;
+        } catch (IOException e) {
+            Log.w(TAG, "Compiled advice for " + code + " unavailable (" + e.getMessage() + "), parsing JSON");
+        }
+        
+        try {
+            String json = loadJsonFile(JSON_FILES.get(code));
+            storeBytes.put(code, 2L * json.length());
+            return AdviceStore.fromJson(new JSONObject(json), code);
+        } catch (JSONException e) {
+            Log.e(TAG, "Error indexing " + code + " advice: " + e.getMessage());
+            return AdviceStore.empty();
+        }
     }
     
-    private JSONObject loadJsonFile(String fileName) {
+    private String loadJsonFile(String fileName) {
         try {
             AssetManager assetManager = context.getAssets();
             InputStream inputStream = assetManager.open(fileName);
@@ -42,71 +86,64 @@ public class AdviceRepository {
             reader.close();
             inputStream.close();
             
-            return new JSONObject(stringBuilder.toString());
-        } catch (IOException | JSONException e) {
+            return stringBuilder.toString();
+        } catch (IOException e) {
             Log.e(TAG, "Error loading " + fileName + ": " + e.getMessage());
-            return new JSONObject();
+            return "{}";
         }
     }
     
-    public JSONObject getAdvice(String cropType, String diseaseName, String language) {
-        try {
-            JSONObject langData;
-            switch (language) {
-                case "hi":
-                    langData = hindiData;
-                    break;
-                case "te":
-                    langData = teluguData;
-                    break;
-                default:
-                    langData = englishData;
-                    break;
-            }
-            
-            if (!langData.has(cropType)) {
-                Log.e(TAG, "Crop not found in data: " + cropType);
-                return createDefaultAdvice(cropType, diseaseName);
-            }
-            
-            JSONObject cropData = langData.getJSONObject(cropType);
-            
-            // Try to find exact disease name
-            if (cropData.has(diseaseName)) {
-                return cropData.getJSONObject(diseaseName);
-            }
-            
-            // Try to find by similar name (case insensitive)
-            String[] keys = getKeys(cropData);
-            for (String key : keys) {
-                if (key.equalsIgnoreCase(diseaseName) || 
-                    diseaseName.toLowerCase().contains(key.toLowerCase()) ||
-                    key.toLowerCase().contains(diseaseName.toLowerCase())) {
-                    return cropData.getJSONObject(key);
-                }
-            }
-            
-            // Return first disease for this crop as fallback
-            if (keys.length > 0) {
-                return cropData.getJSONObject(keys[0]);
-            }
-            
-        } catch (JSONException e) {
-            Log.e(TAG, "JSON error: " + e.getMessage());
+    // Loads a language ahead of the first scan; safe to call from any thread
+    public void preload(String language) {
+        getStore(language);
+    }
+    
+    @Override
+    public String getName() {
+        return "advice";
+    }
+    
+    @Override
+    public long getByteCount() {
+        long bytes = 0;
+        for (String code : stores.keySet()) {
+            Long size = storeBytes.get(code);
+            bytes += size != null ? size : 0;
+        }
+        return bytes;
+    }
+    
+    // Unloaded languages are read again on their next lookup (a few ms from the compiled store)
+    @Override
+    public void trim(MemoryGovernor.Tier tier) {
+        if (tier == MemoryGovernor.Tier.CACHES) {
+            return;
+        }
+        String keep = tier == MemoryGovernor.Tier.IDLE ? lastCode : null;
+        synchronized (stores) {
+            stores.keySet().removeIf(code -> !code.equals(keep));
         }
-        
-        return createDefaultAdvice(cropType, diseaseName);
     }
     
-    private String[] getKeys(JSONObject jsonObject) {
-        int length = jsonObject.length();
-        String[] keys = new String[length];
-        java.util.Iterator<String> iterator = jsonObject.keys();
-        int i = 0;
-        while (iterator.hasNext()) {
-            keys[i++] = iterator.next();
+    public boolean isLoaded(String language) {
+        String code = "hi".equals(language) || "te".equals(language) ? language : "en";
+        return stores.containsKey(code);
+    }
+    
+    public JSONObject getAdvice(String cropType, String diseaseName, String language) {
+        AdviceStore store = getStore(language);
+        AdviceStore.Entry entry = store.lookup(cropType, diseaseName);
+        if (entry == null) {
+            Log.e(TAG, "Crop not found in data: " + cropType);
+            return createDefaultAdvice(cropType, diseaseName);
         }
-        return keys;
+        return entry.toJson();
+    }
+    
+    // Read-aloud paragraph for the same entry getAdvice would return; null for unknown crops
+    public String getTtsSummary(String cropType, String diseaseName, String language) {
+        AdviceStore.Entry entry = getStore(language).lookup(cropType, diseaseName);
+        return entry != null ? entry.getTtsSummary() : null;
     }
     
     private JSONObject createDefaultAdvice(String cropType, String diseaseName) {
@@ -0,0 +1,381 @@
+package com.farmmate.app;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.os.Process;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.speech.tts.Voice;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads advice aloud with the on-device TTS engine, preferring voices that need no network.
+ * Each (disease, language, text) is synthesized once on a background thread, compressed to
+ * AAC and kept in SpeechCache; later requests play that file, so repeats start at once and
+ * never re-synthesize. A cache miss is spoken live while the same text renders for next time.
+ */
+public class AdviceSpeaker {
+    private static final String TAG = "AdviceSpeaker";
+    private static final long INIT_TIMEOUT_MS = 5000;
+    private static final long RENDER_TIMEOUT_MS = 60000;
+    
+    public interface Listener {
+        // state is "speaking", "done", "stopped" or "error"; cached is true for cache playback
+        void onSpeechState(int utteranceId, String state, boolean cached);
+    }
+    
+    private final Context context;
+    private final SpeechCache cache;
+    private final Listener listener;
+    private final ExecutorService renderer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "farmmate-tts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Keys queued or rendering, so a scan and a tap never synthesize the same text twice
+    private final Set<String> rendering = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicInteger nextId = new AtomicInteger();
+    
+    // Live speech and playback, guarded by this
+    private TextToSpeech liveTts;
+    private boolean liveReady;
+    private boolean liveFailed;
+    private Utterance pending;  // waiting for liveTts to bind
+    private MediaPlayer player;
+    private int currentId;
+    
+    // Separate engine instance so stop() never cancels a render; renderer thread only
+    private TextToSpeech renderTts;
+    private volatile CountDownLatch renderLatch;
+    private volatile boolean renderOk;
+    
+    public AdviceSpeaker(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.cache = new SpeechCache(context);
+        this.listener = listener;
+        renderer.execute(cache::deleteTempFiles);
+    }
+    
+    // Starts speaking text and returns its id for Listener; stops whatever was playing
+    public int speak(String disease, String language, String text) {
+        int id = nextId.incrementAndGet();
+        String key = SpeechCache.key(disease, language, text);
+        File audio = cache.get(key);
+        synchronized (this) {
+            stopLocked();
+            currentId = id;
+            if (audio != null && play(id, audio)) {
+                return id;
+            }
+            Utterance utterance = new Utterance(id, language, text);
+            if (liveReady) {
+                speakLive(utterance);
+            } else {
+                pending = utterance;
+                ensureLiveTts();
+            }
+        }
+        // Also re-renders a cached file that failed to play
+        prepare(disease, language, text);
+        return id;
+    }
+    
+    // Renders text into the cache in the background unless it is already there
+    public void prepare(String disease, String language, String text) {
+        String key = SpeechCache.key(disease, language, text);
+        if (renderer.isShutdown() || cache.contains(key) || !rendering.add(key)) {
+            return;
+        }
+        renderer.execute(() -> {
+            try {
+                render(key, language, text);
+            } finally {
+                rendering.remove(key);
+            }
+        });
+    }
+    
+    // Cuts off playback or live speech immediately; background renders carry on
+    public synchronized void stop() {
+        stopLocked();
+    }
+    
+    public long getCacheBytes() {
+        return cache.getByteCount();
+    }
+    
+    public void close() {
+        stop();
+        renderer.shutdownNow();
+        synchronized (this) {
+            if (liveTts != null) {
+                liveTts.shutdown();
+                liveTts = null;
+                liveReady = false;
+            }
+        }
+        TextToSpeech tts = renderTts;
+        if (tts != null) {
+            tts.shutdown();
+        }
+    }
+    
+    private void stopLocked() {
+        pending = null;
+        if (player != null) {
+            player.stop();
+            player.release();
+            player = null;
+        }
+        if (liveTts != null && liveReady) {
+            liveTts.stop();
+        }
+        if (currentId != 0) {
+            listener.onSpeechState(currentId, "stopped", false);
+            currentId = 0;
+        }
+    }
+    
+    private boolean play(int id, File audio) {
+        MediaPlayer mediaPlayer = new MediaPlayer();
+        try {
+            mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_MEDIA)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .build());
+            mediaPlayer.setDataSource(audio.getPath());
+            mediaPlayer.prepare();
+        } catch (IOException | RuntimeException e) {
+            // Unplayable file: drop it so the next request renders it again
+            Log.w(TAG, "⚠️ Cached speech unplayable, re-rendering: " + e.getMessage());
+            mediaPlayer.release();
+            audio.delete();
+            return false;
+        }
+        mediaPlayer.setOnCompletionListener(mp -> finish(id, "done", true));
+        mediaPlayer.setOnErrorListener((mp, what, extra) -> {
+            finish(id, "error", true);
+            return true;
+        });
+        player = mediaPlayer;
+        mediaPlayer.start();
+        listener.onSpeechState(id, "speaking", true);
+        return true;
+    }
+    
+    private void ensureLiveTts() {
+        if (liveTts != null && !liveFailed) {
+            return;
+        }
+        if (liveTts != null) {
+            liveTts.shutdown();
+        }
+        liveFailed = false;
+        // A missing engine may report failure from inside the constructor
+        liveTts = new TextToSpeech(context, this::onLiveInit);
+        liveTts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String utteranceId) {
+                synchronized (AdviceSpeaker.this) {
+                    int id = Integer.parseInt(utteranceId);
+                    if (id == currentId) {
+                        listener.onSpeechState(id, "speaking", false);
+                    }
+                }
+            }
+            
+            @Override
+            public void onDone(String utteranceId) {
+                finish(Integer.parseInt(utteranceId), "done", false);
+            }
+            
+            @Override
+            public void onError(String utteranceId) {
+                finish(Integer.parseInt(utteranceId), "error", false);
+            }
+        });
+    }
+    
+    private synchronized void onLiveInit(int status) {
+        if (status != TextToSpeech.SUCCESS) {
+            // Retried with a new instance on the next speak()
+            Log.e(TAG, "❌ TTS engine unavailable: " + status);
+            liveFailed = true;
+            if (pending != null) {
+                finish(pending.id, "error", false);
+                pending = null;
+            }
+            return;
+        }
+        if (liveTts == null) {
+            return; // closed while binding
+        }
+        liveReady = true;
+        if (pending != null) {
+            speakLive(pending);
+            pending = null;
+        }
+    }
+    
+    private void speakLive(Utterance utterance) {
+        if (!applyLanguage(liveTts, utterance.language)
+                || liveTts.speak(utterance.text, TextToSpeech.QUEUE_FLUSH, null, String.valueOf(utterance.id))
+                        != TextToSpeech.SUCCESS) {
+            finish(utterance.id, "error", false);
+        }
+    }
+    
+    // Reports the end of an utterance unless a newer one has replaced it
+    private synchronized void finish(int id, String state, boolean cached) {
+        if (id != currentId) {
+            return;
+        }
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+        currentId = 0;
+        listener.onSpeechState(id, state, cached);
+    }
+    
+    private void render(String key, String language, String text) {
+        if (!ensureRenderTts() || !applyLanguage(renderTts, language)) {
+            Log.w(TAG, "⚠️ No offline voice for " + language + ", not caching " + key);
+            return;
+        }
+        File wav = cache.tempFile(key, ".wav");
+        File aac = cache.tempFile(key, ".m4a");
+        try {
+            long startNs = System.nanoTime();
+            renderOk = false;
+            renderLatch = new CountDownLatch(1);
+            if (renderTts.synthesizeToFile(text, null, wav, key) != TextToSpeech.SUCCESS
+                    || !renderLatch.await(RENDER_TIMEOUT_MS, TimeUnit.MILLISECONDS) || !renderOk) {
+                Log.w(TAG, "⚠️ Synthesis failed for " + key);
+                return;
+            }
+            long wavBytes = wav.length();
+            AudioTranscoder.wavToAac(wav, aac);
+            long aacBytes = aac.length();
+            cache.put(key, aac);
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "🔊 Cached " + key + ": " + wavBytes / 1024 + " KB WAV -> " + aacBytes / 1024 + " KB AAC in "
+                        + (System.nanoTime() - startNs) / 1000000 + " ms");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "⚠️ Could not cache " + key + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            wav.delete();
+            aac.delete();
+        }
+    }
+    
+    private boolean ensureRenderTts() {
+        if (renderTts != null) {
+            return true;
+        }
+        CountDownLatch bound = new CountDownLatch(1);
+        int[] status = {TextToSpeech.ERROR};
+        TextToSpeech tts = new TextToSpeech(context, result -> {
+            status[0] = result;
+            bound.countDown();
+        });
+        try {
+            if (!bound.await(INIT_TIMEOUT_MS, TimeUnit.MILLISECONDS) || status[0] != TextToSpeech.SUCCESS) {
+                tts.shutdown();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            tts.shutdown();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override
+            public void onStart(String utteranceId) {
+            }
+            
+            @Override
+            public void onDone(String utteranceId) {
+                renderOk = true;
+                renderLatch.countDown();
+            }
+            
+            @Override
+            public void onError(String utteranceId) {
+                renderLatch.countDown();
+            }
+        });
+        renderTts = tts;
+        return true;
+    }
+    
+    // Advice is written for Indian farmers, so the -IN variant of the language comes first
+    private static boolean applyLanguage(TextToSpeech tts, String language) {
+        Locale locale = new Locale(language, "IN");
+        Voice voice = pickOfflineVoice(tts, locale);
+        if (voice != null && tts.setVoice(voice) == TextToSpeech.SUCCESS) {
+            return true;
+        }
+        return tts.setLanguage(locale) >= TextToSpeech.LANG_AVAILABLE;
+    }
+    
+    // Best installed voice for the language that works without a network connection
+    private static Voice pickOfflineVoice(TextToSpeech tts, Locale locale) {
+        Set<Voice> voices;
+        try {
+            voices = tts.getVoices();
+        } catch (RuntimeException e) {
+            return null; // some engines throw before their voice list is ready
+        }
+        if (voices == null) {
+            return null;
+        }
+        Voice best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (Voice voice : voices) {
+            Set<String> features = voice.getFeatures();
+            if (voice.isNetworkConnectionRequired()
+                    || !locale.getLanguage().equals(voice.getLocale().getLanguage())
+                    || (features != null && features.contains(TextToSpeech.Engine.KEY_FEATURE_NOT_INSTALLED))) {
+                continue;
+            }
+            // Matching country beats quality: an en-IN voice reads Indian names better
+            int score = voice.getQuality() + (locale.getCountry().equals(voice.getLocale().getCountry()) ? 1000 : 0);
+            if (score > bestScore) {
+                best = voice;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+    
+    private static final class Utterance {
+        final int id;
+        final String language;
+        final String text;
+        
+        Utterance(int id, String language, String text) {
+            this.id = id;
+            this.language = language;
+            this.text = text;
+        }
+    }
+}
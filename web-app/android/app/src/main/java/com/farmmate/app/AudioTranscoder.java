@@ -0,0 +1,172 @@
+package com.farmmate.app;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses the 16-bit PCM WAV that TextToSpeech.synthesizeToFile writes into AAC-LC in an
+ * MP4 container with the platform encoder. Speech at 32 kbps mono is about a tenth of the WAV.
+ */
+final class AudioTranscoder {
+    private static final int BIT_RATE = 32000;
+    private static final long TIMEOUT_US = 10000;
+    
+    private AudioTranscoder() {
+    }
+    
+    static void wavToAac(File wav, File output) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(wav)))) {
+            Wav header = Wav.read(in);
+            MediaFormat format = MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC,
+                    header.sampleRate, header.channels);
+            format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+            encode(in, header, format, output);
+        }
+    }
+    
+    private static void encode(DataInputStream in, Wav header, MediaFormat format, File output) throws IOException {
+        MediaCodec codec = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_AUDIO_AAC);
+        MediaMuxer muxer = new MediaMuxer(output.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        boolean muxerStarted = false;
+        try {
+            codec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+            int frameBytes = 2 * header.channels;
+            byte[] chunk = new byte[16 * 1024];
+            long remaining = header.dataBytes;
+            long framesQueued = 0;
+            int track = -1;
+            boolean inputDone = false;
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            while (true) {
+                if (!inputDone) {
+                    int inIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inIndex >= 0) {
+                        ByteBuffer buffer = codec.getInputBuffer(inIndex);
+                        buffer.clear();
+                        // Whole frames only, so the timestamps stay exact
+                        int want = (int) Math.min(remaining, Math.min(buffer.remaining(), chunk.length));
+                        want -= want % frameBytes;
+                        int read = readUpTo(in, chunk, want);
+                        long ptsUs = framesQueued * 1000000L / header.sampleRate;
+                        read -= read % frameBytes;
+                        if (read <= 0) {
+                            codec.queueInputBuffer(inIndex, 0, 0, ptsUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            buffer.put(chunk, 0, read);
+                            codec.queueInputBuffer(inIndex, 0, read, ptsUs, 0);
+                            framesQueued += read / frameBytes;
+                            remaining -= read;
+                        }
+                    }
+                }
+                
+                int outIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    track = muxer.addTrack(codec.getOutputFormat());
+                    muxer.start();
+                    muxerStarted = true;
+                } else if (outIndex >= 0) {
+                    ByteBuffer encoded = codec.getOutputBuffer(outIndex);
+                    // The codec config already went to the muxer with the output format
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0 && muxerStarted) {
+                        encoded.position(info.offset);
+                        encoded.limit(info.offset + info.size);
+                        muxer.writeSampleData(track, encoded, info);
+                    }
+                    codec.releaseOutputBuffer(outIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                }
+            }
+            if (!muxerStarted) {
+                throw new IOException("Encoder produced no output");
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException("AAC encoding failed: " + e.getMessage(), e);
+        } finally {
+            try {
+                codec.stop();
+            } catch (IllegalStateException e) {
+                // Never started
+            }
+            codec.release();
+            if (muxerStarted) {
+                try {
+                    muxer.stop();
+                } catch (IllegalStateException e) {
+                    // No samples written; the caller discards the file
+                }
+            }
+            muxer.release();
+        }
+    }
+    
+    // Fills chunk[0, want) unless the file ends first; a short WAV ends on a partial frame
+    private static int readUpTo(DataInputStream in, byte[] chunk, int want) throws IOException {
+        int total = 0;
+        while (total < want) {
+            int read = in.read(chunk, total, want - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+    
+    // RIFF header up to the start of the "data" chunk; only 16-bit PCM is accepted
+    private static final class Wav {
+        int channels;
+        int sampleRate;
+        long dataBytes;
+        
+        static Wav read(DataInputStream in) throws IOException {
+            if (in.readInt() != 0x52494646 /* RIFF */) {
+                throw new IOException("Not a WAV file");
+            }
+            in.readInt();
+            if (in.readInt() != 0x57415645 /* WAVE */) {
+                throw new IOException("Not a WAV file");
+            }
+            Wav wav = new Wav();
+            boolean haveFormat = false;
+            while (true) {
+                int tag = in.readInt();
+                long size = Integer.reverseBytes(in.readInt()) & 0xFFFFFFFFL;
+                if (tag == 0x666D7420 /* "fmt " */) {
+                    int encoding = Short.reverseBytes(in.readShort());
+                    wav.channels = Short.reverseBytes(in.readShort());
+                    wav.sampleRate = Integer.reverseBytes(in.readInt());
+                    in.skipBytes(6);
+                    int bits = Short.reverseBytes(in.readShort());
+                    if (encoding != 1 || bits != 16 || wav.channels < 1 || wav.sampleRate <= 0) {
+                        throw new IOException("Unsupported WAV format " + encoding + "/" + bits + " bit");
+                    }
+                    in.skipBytes((int) size - 16);
+                    haveFormat = true;
+                } else if (tag == 0x64617461 /* data */) {
+                    if (!haveFormat) {
+                        throw new IOException("WAV data before format");
+                    }
+                    // Some engines leave the size at 0 or -1 when streaming; read to the end then
+                    wav.dataBytes = size == 0 || size == 0xFFFFFFFFL ? Long.MAX_VALUE : size;
+                    return wav;
+                } else {
+                    in.skipBytes((int) (size + (size & 1)));
+                }
+            }
+        }
+    }
+}
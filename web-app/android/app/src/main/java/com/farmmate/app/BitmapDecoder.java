@@ -0,0 +1,73 @@
+package com.farmmate.app;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes gallery and base64 images at the smallest power-of-two subsample
+ * that still keeps the short edge at or above minEdge, instead of
+ * materializing the full 12-48 MP frame. Single photos are decoded at
+ * LeafTiler.decodeEdge, twice the model's input edge (512 for the bundled
+ * 256x256 models), so leaf cropping and tiling keep detail; batch scans use
+ * the input edge itself.
+ */
+public final class BitmapDecoder {
+    private static final String TAG = "BitmapDecoder";
+    
+    private BitmapDecoder() {
+    }
+    
+    public static Bitmap decodeUri(ContentResolver resolver, Uri uri, int minEdge) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        
+        BitmapFactory.Options options = decodeOptions(bounds, minEdge);
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+    
+    public static Bitmap decodeBytes(byte[] data, int minEdge) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, bounds);
+        return BitmapFactory.decodeByteArray(data, 0, data.length, decodeOptions(bounds, minEdge));
+    }
+    
+    // Largest power of two that keeps both edges >= minEdge (1 if the image is already small)
+    public static int calculateInSampleSize(int width, int height, int minEdge) {
+        int sampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return sampleSize;
+        }
+        while (Math.min(width, height) / (sampleSize * 2) >= minEdge) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+    
+    private static BitmapFactory.Options decodeOptions(BitmapFactory.Options bounds, int minEdge) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = calculateInSampleSize(bounds.outWidth, bounds.outHeight, minEdge);
+        // Software ARGB so getPixels() works and colors match what the models were trained on
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📐 Source " + bounds.outWidth + "x" + bounds.outHeight + ", inSampleSize " + options.inSampleSize);
+        }
+        return options;
+    }
+}
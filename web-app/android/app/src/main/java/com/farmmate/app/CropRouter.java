@@ -0,0 +1,202 @@
+package com.farmmate.app;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Picks the crop for an image so the user can skip the crop picker ("auto" crop).
+ * With a router model (models.json "router", labels are crop ids) a confident route runs one
+ * disease model; otherwise the two most likely crops run in parallel and the best joint
+ * p(crop) * p(disease | crop) wins. Without a router model "auto" is unavailable: confidences
+ * from separately trained disease models are not comparable, so the most confident one is not
+ * evidence of the crop. JSBridge rejects "auto" and the Home screen hides it until one ships.
+ */
+public class CropRouter {
+    private static final String TAG = "CropRouter";
+    public static final String AUTO = "auto";
+    public static final String UNAVAILABLE = "Could not detect the crop, please pick one";
+    // Route straight to one disease model at or above this crop probability
+    private static final float CONFIDENT = 0.8f;
+    private static final int FALLBACK_CROPS = 2;
+    
+    private final TFLiteClassifier classifier;
+    private final ScanMetrics metrics;
+    // The caller runs the first candidate itself, so one extra thread covers two crops.
+    // Both are on the scan's critical path, so this one runs at the scan worker's priority.
+    private final ExecutorService parallel = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(ScanExecutor.SCAN_PRIORITY);
+            runnable.run();
+        }, "farmmate-route");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public CropRouter(TFLiteClassifier classifier, ScanMetrics metrics) {
+        this.classifier = classifier;
+        this.metrics = metrics;
+    }
+    
+    public static boolean isAuto(String cropType) {
+        return cropType != null && AUTO.equalsIgnoreCase(cropType.trim());
+    }
+    
+    // True once models.json lists a router model that is on disk
+    public boolean isAvailable() {
+        return classifier.getModelRegistry().find(ModelRegistry.ROUTER) != null;
+    }
+    
+    public Routing classify(Bitmap bitmap, int k) throws IOException {
+        List<Candidate> candidates = route(bitmap);
+        boolean fallback = candidates.size() > 1;
+        
+        // The router model stays resident too, so parallel runs need room for it plus every candidate
+        if (fallback && classifier.getMaxModels() >= candidates.size() + 1) {
+            List<Future<ClassificationResult>> pending = new ArrayList<>();
+            for (int i = 1; i < candidates.size(); i++) {
+                String crop = candidates.get(i).crop;
+                pending.add(parallel.submit(() -> classifier.classifyImage(bitmap, crop, k)));
+            }
+            candidates.get(0).result = classifier.classifyImage(bitmap, candidates.get(0).crop, k);
+            for (int i = 1; i < candidates.size(); i++) {
+                candidates.get(i).result = await(pending.get(i - 1));
+            }
+        } else {
+            // Without room for all of them, candidates would just evict each other (and the router)
+            for (Candidate candidate : candidates) {
+                candidate.result = classifier.classifyImage(bitmap, candidate.crop, k);
+            }
+        }
+        
+        Candidate best = candidates.get(0);
+        for (Candidate candidate : candidates) {
+            if (candidate.jointScore() > best.jointScore()) {
+                best = candidate;
+            }
+        }
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🧭 Routed to " + best.crop + " (p=" + best.probability + ", fallback: " + fallback + ")");
+        }
+        return new Routing(best.result, best.probability, fallback, candidates);
+    }
+    
+    // Most likely crops with a disease model, best first
+    private List<Candidate> route(Bitmap bitmap) throws IOException {
+        ModelRegistry registry = classifier.getModelRegistry();
+        if (registry.find(ModelRegistry.ROUTER) == null) {
+            throw new IOException(UNAVAILABLE);
+        }
+        metrics.begin(ScanMetrics.Stage.ROUTING);
+        ClassificationResult routed;
+        try {
+            routed = classifier.classifyImage(bitmap, ModelRegistry.ROUTER, FALLBACK_CROPS);
+        } finally {
+            metrics.end(ScanMetrics.Stage.ROUTING);
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        if (routed.getTopScore() >= CONFIDENT) {
+            // A confident route to a crop without a model must not fall through to another crop
+            candidates.add(new Candidate(classifier.resolveCrop(routed.getTopLabel()), routed.getTopScore()));
+        } else {
+            for (int i = 0; i < routed.size(); i++) {
+                ModelRegistry.ModelInfo info = registry.find(routed.getLabel(i));
+                if (info != null) {
+                    candidates.add(new Candidate(info.getCrop(), routed.getScore(i)));
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new IOException("Could not detect a supported crop, please pick one");
+        }
+        return candidates;
+    }
+    
+    private static ClassificationResult await(Future<ClassificationResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IOException("Interrupted while routing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+    
+    public void close() {
+        parallel.shutdownNow();
+    }
+    
+    static final class Candidate {
+        final String crop;
+        final float probability;
+        ClassificationResult result;
+        
+        Candidate(String crop, float probability) {
+            this.crop = crop;
+            this.probability = probability;
+        }
+        
+        float jointScore() {
+            return probability * result.getTopScore();
+        }
+    }
+    
+    // Disease result for the chosen crop plus how it was chosen
+    public static final class Routing {
+        private final ClassificationResult result;
+        private final float confidence;
+        private final boolean fallback;
+        private final List<Candidate> candidates;
+        
+        Routing(ClassificationResult result, float confidence, boolean fallback, List<Candidate> candidates) {
+            this.result = result;
+            this.confidence = confidence;
+            this.fallback = fallback;
+            this.candidates = candidates;
+        }
+        
+        public ClassificationResult getResult() {
+            return result;
+        }
+        
+        public float getConfidence() {
+            return confidence;
+        }
+        
+        public boolean isFallback() {
+            return fallback;
+        }
+        
+        // { crop, confidence, fallback, candidates: [{ crop, confidence, disease, disease_confidence }] }
+        public JSONObject toJson() throws JSONException {
+            JSONArray items = new JSONArray();
+            for (Candidate candidate : candidates) {
+                JSONObject item = new JSONObject();
+                item.put("crop", candidate.crop);
+                item.put("confidence", Math.round(candidate.probability * 100));
+                item.put("disease", candidate.result.getTopLabel());
+                item.put("disease_confidence", Math.round(candidate.result.getTopScore() * 100));
+                items.put(item);
+            }
+            JSONObject json = new JSONObject();
+            json.put("crop", result.getCrop());
+            json.put("confidence", Math.round(confidence * 100));
+            json.put("fallback", fallback);
+            json.put("candidates", items);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.farmmate.app;
+
+import android.util.Log;
+
+/**
+ * Gate for per-scan debug logging: callers check ENABLED before building the message,
+ * so release builds skip both the string concatenation and the Log call.
+ * On in debug builds; release builds can opt in with
+ * adb shell setprop log.tag.FarmMate DEBUG (read once at startup).
+ */
+final class DebugLog {
+    static final boolean ENABLED = BuildConfig.DEBUG || Log.isLoggable("FarmMate", Log.DEBUG);
+    
+    private DebugLog() {
+    }
+}
@@ -0,0 +1,103 @@
+package com.farmmate.app;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Captured bitmaps kept natively under a short id so the WebView only ever
+ * sees the id and a thumbnail. Entries expire after a TTL and the oldest
+ * are dropped once maxEntries is exceeded.
+ */
+public class ImageStore implements MemoryGovernor.Consumer {
+    private static final String TAG = "ImageStore";
+    
+    private final long ttlMs;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private int nextId = 1;
+    
+    public ImageStore(long ttlMs, int maxEntries) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+    }
+    
+    public synchronized String put(Bitmap bitmap) {
+        evictExpired();
+        String id = "img-" + Integer.toString(nextId++, 36);
+        entries.put(id, new Entry(bitmap, SystemClock.elapsedRealtime() + ttlMs));
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📥 Stored " + id + " (" + bitmap.getWidth() + "x" + bitmap.getHeight() + "), " + entries.size() + " held");
+        }
+        return id;
+    }
+    
+    // Returns null if the id is unknown or has expired
+    public synchronized Bitmap get(String id) {
+        evictExpired();
+        Entry entry = entries.get(id);
+        return entry != null ? entry.bitmap : null;
+    }
+    
+    public synchronized void remove(String id) {
+        entries.remove(id);
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+    }
+    
+    @Override
+    public String getName() {
+        return "images";
+    }
+    
+    // Scans of a dropped image ask the user to capture it again
+    @Override
+    public synchronized void trim(MemoryGovernor.Tier tier) {
+        evictExpired();
+        int keep = tier == MemoryGovernor.Tier.CACHES ? maxEntries : tier == MemoryGovernor.Tier.IDLE ? 1 : 0;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > keep && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+    
+    @Override
+    public synchronized long getByteCount() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.bitmap.getAllocationByteCount();
+        }
+        return bytes;
+    }
+    
+    private void evictExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+            }
+        }
+    }
+    
+    private static class Entry {
+        final Bitmap bitmap;
+        final long expiresAt;
+        
+        Entry(Bitmap bitmap, long expiresAt) {
+            this.bitmap = bitmap;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.farmmate.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.tensorflow.lite.Interpreter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the interpreter thread count and XNNPACK on/off per model and device by timing
+ * blank inferences, and persists the winner so interpreters are created with it.
+ * Keys include the model hash (or version) and the device, so a new model or an OS
+ * update triggers a fresh calibration instead of reusing a stale result.
+ */
+public class InferenceTuner {
+    private static final String TAG = "InferenceTuner";
+    private static final String PREFS_NAME = "farmmate_tuning";
+    private static final int WARMUP_RUNS = 2;
+    private static final int TIMED_RUNS = 5;
+    // The old hardcoded value, kept until a model has been calibrated
+    private static final int DEFAULT_THREADS = 4;
+    
+    private final SharedPreferences prefs;
+    private final String device;
+    private final int cores;
+    
+    public InferenceTuner(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.cores = Runtime.getRuntime().availableProcessors();
+        this.device = Build.MANUFACTURER + "/" + Build.MODEL + "/" + Build.VERSION.SDK_INT + "/" + cores;
+    }
+    
+    // Calibrated config for the model, or the default when it hasn't been calibrated yet
+    public Config get(String modelKey) {
+        Config stored = Config.parse(prefs.getString(prefKey(modelKey), null));
+        return stored != null ? stored : new Config(Math.min(DEFAULT_THREADS, cores), true, 0);
+    }
+    
+    public boolean isCalibrated(String modelKey) {
+        return prefs.contains(prefKey(modelKey));
+    }
+    
+    // Times every candidate config on its own interpreter and stores the fastest (median of
+    // TIMED_RUNS). Blocks for a few seconds per model; call off the main thread.
+    public Config calibrate(String modelKey, ByteBuffer model) {
+        long startNs = System.nanoTime();
+        Config best = null;
+        for (int threads : threadCandidates()) {
+            for (boolean xnnpack : new boolean[] {true, false}) {
+                long medianUs;
+                try {
+                    medianUs = measure(model, threads, xnnpack);
+                } catch (RuntimeException e) {
+                    // XNNPACK can refuse some graphs; skip configs the runtime rejects
+                    Log.w(TAG, "⚠️ " + modelKey + " threads=" + threads + " xnnpack=" + xnnpack + " failed: " + e.getMessage());
+                    continue;
+                }
+                if (DebugLog.ENABLED) {
+                    Log.d(TAG, "⏱️ " + modelKey + " threads=" + threads + " xnnpack=" + xnnpack + ": " + medianUs + " us");
+                }
+                if (best == null || medianUs < best.medianUs) {
+                    best = new Config(threads, xnnpack, medianUs);
+                }
+            }
+        }
+        if (best == null) {
+            return get(modelKey);
+        }
+        prefs.edit().putString(prefKey(modelKey), best.encode()).apply();
+        Log.d(TAG, "✅ Calibrated " + modelKey + " -> " + best + " in " + (System.nanoTime() - startNs) / 1000000 + " ms");
+        return best;
+    }
+    
+    // Forgets every stored result so the next calibration pass redoes all models
+    public void clear() {
+        prefs.edit().clear().apply();
+    }
+    
+    // { "<model key>": { threads, xnnpack, median_us }, ... } for this device
+    public JSONObject toJson() throws JSONException {
+        JSONObject result = new JSONObject();
+        String suffix = "|" + device;
+        for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+            Config config = e.getValue() instanceof String ? Config.parse((String) e.getValue()) : null;
+            if (config != null && e.getKey().endsWith(suffix)) {
+                result.put(e.getKey().substring(0, e.getKey().length() - suffix.length()), config.toJson());
+            }
+        }
+        return result;
+    }
+    
+    // 1, 2, 4, ... up to the core count, plus the core count itself
+    private List<Integer> threadCandidates() {
+        List<Integer> candidates = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            candidates.add(threads);
+        }
+        candidates.add(cores);
+        return candidates;
+    }
+    
+    private static long measure(ByteBuffer model, int threads, boolean xnnpack) {
+        Interpreter.Options options = new Interpreter.Options();
+        options.setNumThreads(threads);
+        options.setUseXNNPACK(xnnpack);
+        try (Interpreter interpreter = new Interpreter(model, options)) {
+            ByteBuffer input = ByteBuffer.allocateDirect(interpreter.getInputTensor(0).numBytes())
+                    .order(ByteOrder.nativeOrder());
+            ByteBuffer output = ByteBuffer.allocateDirect(interpreter.getOutputTensor(0).numBytes())
+                    .order(ByteOrder.nativeOrder());
+            long[] timesUs = new long[TIMED_RUNS];
+            for (int i = 0; i < WARMUP_RUNS + TIMED_RUNS; i++) {
+                input.rewind();
+                output.rewind();
+                long startNs = System.nanoTime();
+                interpreter.run(input, output);
+                long elapsedNs = System.nanoTime() - startNs;
+                // Native time leaves out JNI copies, which don't depend on the config
+                Long nativeNs = interpreter.getLastNativeInferenceDurationNanoseconds();
+                if (i >= WARMUP_RUNS) {
+                    timesUs[i - WARMUP_RUNS] = (nativeNs != null ? nativeNs : elapsedNs) / 1000;
+                }
+            }
+            Arrays.sort(timesUs);
+            return timesUs[TIMED_RUNS / 2];
+        }
+    }
+    
+    private String prefKey(String modelKey) {
+        return modelKey + "|" + device;
+    }
+    
+    public static final class Config {
+        private final int threads;
+        private final boolean xnnpack;
+        // 0 when not calibrated
+        private final long medianUs;
+        
+        Config(int threads, boolean xnnpack, long medianUs) {
+            this.threads = threads;
+            this.xnnpack = xnnpack;
+            this.medianUs = medianUs;
+        }
+        
+        public Interpreter.Options toOptions() {
+            Interpreter.Options options = new Interpreter.Options();
+            options.setNumThreads(threads);
+            options.setUseXNNPACK(xnnpack);
+            return options;
+        }
+        
+        public int getThreads() {
+            return threads;
+        }
+        
+        public boolean usesXnnpack() {
+            return xnnpack;
+        }
+        
+        public long getMedianUs() {
+            return medianUs;
+        }
+        
+        public boolean sameSettingsAs(Config other) {
+            return threads == other.threads && xnnpack == other.xnnpack;
+        }
+        
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("threads", threads);
+            json.put("xnnpack", xnnpack);
+            json.put("median_us", medianUs);
+            return json;
+        }
+        
+        // "threads,xnnpack,medianUs"
+        String encode() {
+            return threads + "," + xnnpack + "," + medianUs;
+        }
+        
+        static Config parse(String encoded) {
+            if (encoded == null) {
+                return null;
+            }
+            String[] parts = encoded.split(",");
+            try {
+                return new Config(Integer.parseInt(parts[0]), Boolean.parseBoolean(parts[1]), Long.parseLong(parts[2]));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return "threads=" + threads + ", xnnpack=" + xnnpack + ", median=" + medianUs + " us";
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.farmmate.app;
+
+import android.os.Debug;
+import android.util.Log;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived cache of TFLite interpreters keyed by normalized crop.
+ * Holds at most maxModels crops (LRU) and up to interpretersPerCrop
+ * interpreters per crop so concurrent scans don't share an Interpreter.
+ */
+public class InterpreterPool {
+    private static final String TAG = "InterpreterPool";
+    private static final long ACQUIRE_TIMEOUT_MS = 30000;
+    
+    // Supplies model bytes, labels, options and preprocessing when a crop is first used
+    public interface ModelSource {
+        ByteBuffer loadModel(String cropKey) throws IOException;
+        List<String> loadLabels(String cropKey) throws IOException;
+        Interpreter.Options createOptions(String cropKey);
+        ImagePreprocessor createPreprocessor(String cropKey) throws IOException;
+        // Throws when the model's tensors don't match what the source expects
+        void verifySpec(String cropKey, ModelSpec spec) throws IOException;
+        // True when the loaded buffer maps the model file, so its pages are clean and the
+        // kernel can drop them; false for copies in anonymous native memory
+        boolean isFileBacked(String cropKey);
+    }
+    
+    private final ModelSource source;
+    private final int maxModels;
+    private final int interpretersPerCrop;
+    private final LinkedHashMap<String, Entry> entries;
+    
+    public InterpreterPool(ModelSource source, int maxModels, int interpretersPerCrop) {
+        if (maxModels < 1 || interpretersPerCrop < 1) {
+            throw new IllegalArgumentException("Pool sizes must be >= 1");
+        }
+        this.source = source;
+        this.maxModels = maxModels;
+        this.interpretersPerCrop = interpretersPerCrop;
+        // accessOrder = true gives us LRU iteration order
+        this.entries = new LinkedHashMap<>(maxModels + 1, 0.75f, true);
+    }
+    
+    public Lease acquire(String cropKey) throws IOException {
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACQUIRE_TIMEOUT_MS);
+        while (true) {
+            Entry entry;
+            List<Entry> evicted = new ArrayList<>();
+            synchronized (entries) {
+                entry = entries.get(cropKey);
+                if (entry == null) {
+                    entry = new Entry(cropKey, interpretersPerCrop);
+                    entries.put(cropKey, entry);
+                    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+                    while (entries.size() > maxModels && it.hasNext()) {
+                        Entry eldest = it.next().getValue();
+                        it.remove();
+                        evicted.add(eldest);
+                    }
+                }
+            }
+            for (Entry e : evicted) {
+                if (DebugLog.ENABLED) {
+                    Log.d(TAG, "♻️ Evicting model for crop: " + e.cropKey);
+                }
+                e.close();
+            }
+            try {
+                return entry.acquire(source, deadlineNs);
+            } catch (EntryClosedException e) {
+                // Evicted while this thread waited or loaded; the next pass starts a fresh entry
+                if (System.nanoTime() >= deadlineNs) {
+                    throw new IOException("Timed out waiting for interpreter: " + cropKey);
+                }
+            }
+        }
+    }
+    
+    public int getMaxModels() {
+        return maxModels;
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    public boolean isLoaded(String cropKey) {
+        synchronized (entries) {
+            Entry entry = entries.get(cropKey);
+            return entry != null && entry.isLoaded();
+        }
+    }
+    
+    // Drops one crop so its next acquire() reloads the model, e.g. after a hot swap
+    public void evict(String cropKey) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.remove(cropKey);
+        }
+        if (entry != null) {
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "♻️ Evicting model for crop: " + cropKey);
+            }
+            entry.close();
+        }
+    }
+    
+    // Closes idle interpreters beyond keepPerCrop for every crop; leased ones are left alone
+    // and the crop creates new ones on demand again
+    public void closeIdle(int keepPerCrop) {
+        List<Entry> all;
+        synchronized (entries) {
+            all = new ArrayList<>(entries.values());
+        }
+        for (Entry e : all) {
+            e.closeIdle(keepPerCrop);
+        }
+    }
+    
+    // Evicts least recently used crops until at most maxResident remain; crops with a leased
+    // or loading interpreter are skipped, so a scan never loses the model it is running
+    public void trimToModels(int maxResident) {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > maxResident && it.hasNext()) {
+                Entry entry = it.next().getValue();
+                if (entry.isInUse()) {
+                    continue;
+                }
+                evicted.add(entry);
+                it.remove();
+            }
+        }
+        for (Entry e : evicted) {
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "♻️ Evicting model for crop: " + e.cropKey);
+            }
+            e.close();
+        }
+    }
+    
+    // Copied model buffers plus the measured native arena of every live interpreter.
+    // Mapped model files are left out: their pages are clean and reclaimable.
+    public long getByteCount() {
+        List<Entry> all;
+        synchronized (entries) {
+            all = new ArrayList<>(entries.values());
+        }
+        long bytes = 0;
+        for (Entry e : all) {
+            bytes += e.getByteCount();
+        }
+        return bytes;
+    }
+    
+    // Closes every cached interpreter; leased ones close when released
+    public void clear() {
+        List<Entry> all;
+        synchronized (entries) {
+            all = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        for (Entry e : all) {
+            e.close();
+        }
+    }
+    
+    static ModelSpec readSpec(Interpreter interpreter) throws IOException {
+        return new ModelSpec(toSpec(interpreter.getInputTensor(0)), toSpec(interpreter.getOutputTensor(0)));
+    }
+    
+    private static TensorSpec toSpec(Tensor tensor) throws IOException {
+        TensorSpec.Type type;
+        switch (tensor.dataType()) {
+            case FLOAT32:
+                type = TensorSpec.Type.FLOAT32;
+                break;
+            case UINT8:
+                type = TensorSpec.Type.UINT8;
+                break;
+            case INT8:
+                type = TensorSpec.Type.INT8;
+                break;
+            default:
+                throw new IOException("Unsupported tensor type: " + tensor.dataType());
+        }
+        Tensor.QuantizationParams q = tensor.quantizationParams();
+        return new TensorSpec(type, tensor.shape(), q.getScale(), q.getZeroPoint());
+    }
+    
+    // Exclusive use of one interpreter; close() hands it back to the pool
+    public static class Lease implements InferenceEngine {
+        private final Entry entry;
+        private Interpreter interpreter;
+        
+        Lease(Entry entry, Interpreter interpreter) {
+            this.entry = entry;
+            this.interpreter = interpreter;
+        }
+        
+        public Interpreter getInterpreter() {
+            return interpreter;
+        }
+        
+        public List<String> getLabels() {
+            return entry.labels;
+        }
+        
+        public String getCropKey() {
+            return entry.cropKey;
+        }
+        
+        @Override
+        public ModelSpec getSpec() {
+            return entry.spec;
+        }
+        
+        // Output is float32 or quantized bytes; either way callers get dequantized floats
+        @Override
+        public float[][] run(ByteBuffer input, int batchSize) {
+            ModelSpec spec = entry.spec;
+            // No-op when the interpreter already has this batch size
+            int[] inputShape = spec.getInput().getShape();
+            inputShape[0] = batchSize;
+            interpreter.resizeInput(0, inputShape);
+            
+            TensorSpec out = spec.getOutput();
+            int numClasses = spec.getNumClasses();
+            if (!out.isQuantized()) {
+                float[][] output = new float[batchSize][numClasses];
+                interpreter.run(input, output);
+                return output;
+            }
+            
+            byte[][] output = new byte[batchSize][numClasses];
+            interpreter.run(input, output);
+            float[][] scores = new float[batchSize][numClasses];
+            for (int b = 0; b < batchSize; b++) {
+                out.dequantize(output[b], scores[b]);
+            }
+            return scores;
+        }
+        
+        public ImagePreprocessor getPreprocessor() {
+            return entry.preprocessor;
+        }
+        
+        @Override
+        public void close() {
+            if (interpreter != null) {
+                entry.release(interpreter);
+                interpreter = null;
+            }
+        }
+    }
+    
+    // Thrown to waiters and loaders of an entry that was evicted; acquire() retries
+    private static final class EntryClosedException extends IOException {
+        EntryClosedException(String cropKey) {
+            super("Model evicted while loading: " + cropKey);
+        }
+    }
+    
+    // State is guarded by the entry's monitor, which is only held briefly. Model loads and
+    // interpreter creation run under loadLock instead, so release(), closeIdle() and
+    // getByteCount() never wait for a cold load.
+    static class Entry {
+        final String cropKey;
+        final ArrayDeque<Interpreter> idle = new ArrayDeque<>();
+        final int maxInterpreters;
+        private final Object loadLock = new Object();
+        ByteBuffer modelBuffer;
+        // modelBuffer's capacity when it is a copy, 0 when it maps the model file
+        long modelBytes;
+        List<String> labels;
+        ModelSpec spec;
+        ImagePreprocessor preprocessor;
+        int created;
+        // Slots reserved by threads creating an interpreter outside the monitor
+        int creating;
+        // Native heap growth seen while creating one interpreter (tensor arena and kernel state)
+        long arenaBytes;
+        boolean closed;
+        
+        Entry(String cropKey, int maxInterpreters) {
+            this.cropKey = cropKey;
+            this.maxInterpreters = maxInterpreters;
+        }
+        
+        synchronized boolean isLoaded() {
+            return modelBuffer != null && !closed;
+        }
+        
+        synchronized long getByteCount() {
+            return modelBytes + created * arenaBytes;
+        }
+        
+        synchronized boolean isInUse() {
+            return created + creating > idle.size();
+        }
+        
+        // An idle interpreter, a new one while under maxInterpreters, or the next one released
+        Lease acquire(ModelSource source, long deadlineNs) throws IOException {
+            synchronized (this) {
+                while (true) {
+                    if (closed) {
+                        throw new EntryClosedException(cropKey);
+                    }
+                    Interpreter interpreter = idle.poll();
+                    if (interpreter != null) {
+                        return new Lease(this, interpreter);
+                    }
+                    if (created + creating < maxInterpreters) {
+                        creating++;
+                        break;
+                    }
+                    long waitMs = TimeUnit.NANOSECONDS.toMillis(deadlineNs - System.nanoTime());
+                    if (waitMs <= 0) {
+                        throw new IOException("Timed out waiting for interpreter: " + cropKey);
+                    }
+                    try {
+                        wait(waitMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted waiting for interpreter: " + cropKey);
+                    }
+                }
+            }
+            
+            long startNs = System.nanoTime();
+            Interpreter interpreter = null;
+            int count = 0;
+            try {
+                interpreter = create(source);
+                synchronized (this) {
+                    if (closed) {
+                        throw new EntryClosedException(cropKey);
+                    }
+                    count = ++created;
+                }
+            } finally {
+                synchronized (this) {
+                    creating--;
+                    // Wakes a waiter to take the slot if this creation failed
+                    notifyAll();
+                }
+                if (count == 0 && interpreter != null) {
+                    interpreter.close();
+                }
+            }
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "✅ Created interpreter " + count + "/" + maxInterpreters + " for " + cropKey
+                        + " in " + (System.nanoTime() - startNs) / 1000000 + " ms");
+            }
+            return new Lease(this, interpreter);
+        }
+        
+        private Interpreter create(ModelSource source) throws IOException {
+            synchronized (loadLock) {
+                ByteBuffer model;
+                synchronized (this) {
+                    model = modelBuffer;
+                }
+                if (model == null) {
+                    model = source.loadModel(cropKey);
+                    long copiedBytes = source.isFileBacked(cropKey) ? 0 : model.capacity();
+                    List<String> loadedLabels = source.loadLabels(cropKey);
+                    ImagePreprocessor loadedPreprocessor = source.createPreprocessor(cropKey);
+                    synchronized (this) {
+                        if (closed) {
+                            throw new EntryClosedException(cropKey);
+                        }
+                        modelBuffer = model;
+                        modelBytes = copiedBytes;
+                        labels = loadedLabels;
+                        preprocessor = loadedPreprocessor;
+                    }
+                }
+                long nativeBefore = Debug.getNativeHeapAllocatedSize();
+                Interpreter interpreter = new Interpreter(model, source.createOptions(cropKey));
+                // Approximate: native allocations on other threads land in the same window
+                long arena = Debug.getNativeHeapAllocatedSize() - nativeBefore;
+                if (spec == null) {
+                    ModelSpec loadedSpec;
+                    try {
+                        loadedSpec = readSpec(interpreter);
+                        source.verifySpec(cropKey, loadedSpec);
+                    } catch (IOException e) {
+                        interpreter.close();
+                        throw e;
+                    }
+                    if (DebugLog.ENABLED) {
+                        Log.d(TAG, "📐 " + cropKey + " tensors: " + loadedSpec);
+                    }
+                    synchronized (this) {
+                        spec = loadedSpec;
+                    }
+                }
+                synchronized (this) {
+                    arenaBytes = Math.max(arenaBytes, arena);
+                }
+                return interpreter;
+            }
+        }
+        
+        synchronized void release(Interpreter interpreter) {
+            if (closed) {
+                interpreter.close();
+                return;
+            }
+            idle.offer(interpreter);
+            notifyAll();
+        }
+        
+        synchronized void closeIdle(int keep) {
+            Interpreter interpreter;
+            while (idle.size() > keep && (interpreter = idle.poll()) != null) {
+                interpreter.close();
+                created--;
+            }
+            notifyAll();
+        }
+        
+        // Waiters wake up, see closed and retry through InterpreterPool.acquire
+        synchronized void close() {
+            closed = true;
+            modelBuffer = null;
+            modelBytes = 0;
+            Interpreter interpreter;
+            while ((interpreter = idle.poll()) != null) {
+                interpreter.close();
+            }
+            notifyAll();
+        }
+    }
+}
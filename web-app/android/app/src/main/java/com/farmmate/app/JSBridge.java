@@ -3,8 +3,9 @@ package com.farmmate.app;
 import android.util.Log;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.provider.MediaStore;
 import android.util.Base64;
@@ -14,56 +15,336 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONException;
 
 public class JSBridge {
     private static final String TAG = "FarmMateJSBridge";
+    private static final int THUMBNAIL_SIZE = 320;
+    // Predictions returned per image, so close calls (e.g. Early vs Late blight) show both
+    private static final int TOP_K = 3;
     private Context context;
     private WebView webView;
     private TFLiteClassifier tfLiteClassifier;
+    private final CropRouter cropRouter;
+    private final LeafTiler leafTiler;
+    private final TestTimeAugmenter augmenter;
+    private final ModelCascade modelCascade;
+    private final ScanHistory scanHistory;
+    private final MemoryGovernor memoryGovernor;
+    // Created on first startLiveScan(), main thread only
+    private LiveScanner liveScanner;
     private AdviceRepository adviceRepository;
-    private String currentCrop = "tomato";
-    private String currentLanguage = "en";
+    private final AdviceSpeaker adviceSpeaker;
+    private static final String PREFS_NAME = "farmmate_prefs";
+    private volatile String currentCrop = "tomato";
+    private volatile String currentLanguage = "en";
+    // High accuracy mode: augmented views for borderline scans within this many ms (0 = off)
+    private volatile int highAccuracyBudgetMs;
+    private final SharedPreferences prefs;
+    private final StartupScheduler startupScheduler = new StartupScheduler();
+    private volatile boolean warmUpDone = false;
+    private final ScanExecutor scanExecutor;
+    // Captured images stay here for 10 minutes; JS only gets an id and a thumbnail
+    private final ImageStore imageStore = new ImageStore(10 * 60 * 1000, 4);
+    private final ScanMetrics metrics = new ScanMetrics(MemoryStats::allocatedBytes);
     
     public JSBridge(Context context, WebView webView) {
         this.context = context;
         this.webView = webView;
-        this.tfLiteClassifier = new TFLiteClassifier(context);
+        this.tfLiteClassifier = new TFLiteClassifier(context, metrics);
+        this.cropRouter = new CropRouter(tfLiteClassifier, metrics);
+        this.leafTiler = new LeafTiler(tfLiteClassifier, metrics);
+        this.augmenter = new TestTimeAugmenter(tfLiteClassifier);
+        this.modelCascade = new ModelCascade(context, tfLiteClassifier, metrics);
+        this.scanHistory = new ScanHistory(context);
         this.adviceRepository = new AdviceRepository(context);
-        Log.d(TAG, "✅ JSBridge initialized");
+        this.adviceSpeaker = new AdviceSpeaker(context, this::deliverSpeechState);
+        // Last choices survive restarts so warm-up targets the right model and language
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.currentCrop = prefs.getString("current_crop", currentCrop);
+        this.currentLanguage = prefs.getString("current_language", currentLanguage);
+        this.highAccuracyBudgetMs = prefs.getInt("high_accuracy_budget_ms", 0);
+        this.memoryGovernor = new MemoryGovernor(context);
+        memoryGovernor.register(tfLiteClassifier);
+        memoryGovernor.register(imageStore);
+        memoryGovernor.register(adviceRepository);
+        // One worker (the interpreter already uses several threads) and two waiting scans
+        this.scanExecutor = new ScanExecutor(1, 2, new ScanExecutor.Listener() {
+            @Override
+            public void onResult(String requestId, String result) {
+                deliverResult(requestId, result);
+            }
+            
+            @Override
+            public void onDropped(String requestId, String reason) {
+                deliverResult(requestId, getErrorResponse("Scan " + reason, true));
+            }
+        });
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "✅ JSBridge initialized");
+        }
     }
     
     @JavascriptInterface
     public String testConnection() {
-        Log.d(TAG, "🔗 testConnection called");
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🔗 testConnection called");
+        }
         return "JSBridge is working! Connected to Android";
     }
     
+    // Readiness of the advice data and the current crop's model, for a "model ready" indicator.
+    // The same object is pushed to window.onNativeReady whenever it changes.
+    @JavascriptInterface
+    public String getReadiness() {
+        try {
+            JSONObject readiness = new JSONObject();
+            readiness.put("crop", currentCrop);
+            readiness.put("language", currentLanguage);
+            readiness.put("advice_ready", adviceRepository.isLoaded(currentLanguage));
+            readiness.put("model_ready", tfLiteClassifier.isModelLoaded(currentCrop));
+            readiness.put("warmup_done", warmUpDone);
+            readiness.put("auto_detect", cropRouter.isAvailable());
+            return readiness.toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+    
+    // Called by MainActivity once the bridge is attached: advice and the last-used
+    // crop's model are loaded off the UI thread after the WebView goes idle
+    public void scheduleWarmUp() {
+        startupScheduler.runWhenIdle(() -> {
+            adviceRepository.preload(currentLanguage);
+            notifyReadiness();
+            warmUpModels(currentCrop);
+            warmUpDone = true;
+            memoryGovernor.enforce();
+            notifyReadiness();
+            // One-time per model and device; later launches find the stored result and skip this.
+            // Calibration may evict the warmed model, so warm it up again with the new settings.
+            if (!tfLiteClassifier.calibrateAll(false).isEmpty()) {
+                warmUpModels(currentCrop);
+            }
+            scanHistory.compactIfDue(result -> { });
+        });
+    }
+    
+    // Stored thread/XNNPACK choice per model for this device:
+    // { "tomato@555d9a4fcc67": { threads, xnnpack, median_us }, ... }
+    @JavascriptInterface
+    public String getTuning() {
+        try {
+            return tfLiteClassifier.getTuner().toJson().toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+    
+    // Re-runs calibration for every model in the background (e.g. after a big OS update)
+    // and pushes getTuning() to window.onCalibrationDone when finished
+    @JavascriptInterface
+    public void recalibrate() {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "⏱️ Recalibration requested");
+        }
+        startupScheduler.runInBackground(() -> {
+            tfLiteClassifier.calibrateAll(true);
+            warmUpModels(currentCrop);
+            final String jsCode = "window.onCalibrationDone && window.onCalibrationDone(" + getTuning() + ")";
+            webView.post(() -> webView.evaluateJavascript(jsCode, null));
+        });
+    }
+    
+    // Per-stage p50/p95/p99 latency (us) and allocation (bytes) since the last reset,
+    // plus result cache counters
+    @JavascriptInterface
+    public String getMetrics() {
+        try {
+            return buildMetrics().toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+    
+    private JSONObject buildMetrics() throws JSONException {
+        ResultCache cache = tfLiteClassifier.getResultCache();
+        JSONObject cacheStats = new JSONObject();
+        cacheStats.put("hits", cache.getHits());
+        cacheStats.put("misses", cache.getMisses());
+        cacheStats.put("evictions", cache.getEvictions());
+        cacheStats.put("entries", cache.size());
+        cacheStats.put("bytes", cache.getByteCount());
+        JSONObject result = metrics.toJson();
+        result.put("result_cache", cacheStats);
+        result.put("memory", memoryGovernor.toJson());
+        result.put("cascade", modelCascade.toJson());
+        result.put("speech_cache_bytes", adviceSpeaker.getCacheBytes());
+        return result;
+    }
+    
+    // Overrides the memory budget (default: a sixteenth of RAM, 48-384 MB); lowering it trims now
+    @JavascriptInterface
+    public void setMemoryBudget(int megabytes) {
+        memoryGovernor.setBudgetBytes(megabytes * 1024L * 1024L);
+    }
+    
+    // Overrides the fast-stage threshold (0-1) of a crop's cascade; negative restores the manifest value.
+    // Tune with getMetrics().cascade: per-confidence-bucket scan counts and full-model agreement.
+    @JavascriptInterface
+    public boolean setCascadeThreshold(String crop, float threshold) {
+        try {
+            modelCascade.setThreshold(crop, threshold);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Cannot set cascade threshold: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // High accuracy mode: scans whose top two answers are close get a second look at flipped,
+    // cropped and rotated views, for at most budgetMs (<= 0 uses the default). Off by default.
+    @JavascriptInterface
+    public void setHighAccuracy(boolean enabled, int budgetMs) {
+        highAccuracyBudgetMs = enabled ? (budgetMs > 0 ? budgetMs : TestTimeAugmenter.DEFAULT_BUDGET_MS) : 0;
+        prefs.edit().putInt("high_accuracy_budget_ms", highAccuracyBudgetMs).apply();
+    }
+    
+    @JavascriptInterface
+    public int getHighAccuracyBudget() {
+        return highAccuracyBudgetMs;
+    }
+    
+    // Called by MainActivity's onTrimMemory/onLowMemory
+    public void onTrimMemory(int level) {
+        memoryGovernor.onTrimMemory(level);
+    }
+    
+    public void onLowMemory() {
+        memoryGovernor.onLowMemory();
+    }
+    
+    // Called by MainActivity's onRequestPermissionsResult, on the main thread
+    public void onRequestPermissionsResult(int requestCode, int[] grantResults) {
+        if (requestCode == LiveScanner.CAMERA_PERMISSION_REQUEST && liveScanner != null) {
+            liveScanner.onPermissionResult(grantResults.length > 0
+                    && grantResults[0] == PackageManager.PERMISSION_GRANTED);
+        }
+    }
+    
+    // Registered crops with model version, source (asset or storage) and input shape
+    @JavascriptInterface
+    public String getModels() {
+        try {
+            return tfLiteClassifier.getModelRegistry().toJson().toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+    
+    // Re-reads files/models/models.json after a model download; returns the changed crops
+    @JavascriptInterface
+    public String reloadModels() {
+        List<String> changed = tfLiteClassifier.reloadModels();
+        notifyReadiness();
+        return new JSONArray(changed).toString();
+    }
+    
+    @JavascriptInterface
+    public void resetMetrics() {
+        metrics.reset();
+        modelCascade.reset();
+    }
+    
+    // Writes getMetrics() to the app's external files dir (readable over adb without root)
+    // and returns the file path, or an empty string on failure
+    @JavascriptInterface
+    public String dumpMetrics() {
+        File dir = context.getExternalFilesDir(null);
+        if (dir == null) {
+            dir = context.getFilesDir();
+        }
+        File file = new File(dir, "scan_metrics_" + System.currentTimeMillis() + ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            writer.write(buildMetrics().toString(2));
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "📊 Metrics written to " + file.getAbsolutePath());
+            }
+            return file.getAbsolutePath();
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "❌ Failed to write metrics: " + e.getMessage());
+            return "";
+        }
+    }
+    
+    private void notifyReadiness() {
+        final String jsCode = "window.onNativeReady && window.onNativeReady(" + getReadiness() + ")";
+        webView.post(() -> webView.evaluateJavascript(jsCode, null));
+    }
+    
     @JavascriptInterface
     public void setCurrentCrop(String crop) {
-        Log.d(TAG, "🌱 setCurrentCrop: " + crop);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🌱 setCurrentCrop: " + crop);
+        }
         this.currentCrop = crop;
+        prefs.edit().putString("current_crop", crop).apply();
+        // Load the newly picked crop's model while the user frames the photo
+        if (warmUpDone) {
+            startupScheduler.runInBackground(() -> {
+                warmUpModels(crop);
+                notifyReadiness();
+            });
+        }
         Toast.makeText(context, "Crop set to: " + crop, Toast.LENGTH_SHORT).show();
     }
     
+    // "auto" has no disease model of its own; warm up the router instead. Crops with a cascade
+    // warm up both stages, since every scan starts with the fast one.
+    private void warmUpModels(String crop) {
+        if (CropRouter.isAuto(crop)) {
+            tfLiteClassifier.warmUp(ModelRegistry.ROUTER);
+            return;
+        }
+        tfLiteClassifier.warmUp(crop);
+        if (modelCascade.hasFastStage(crop)) {
+            tfLiteClassifier.warmUp(crop + ModelRegistry.FAST_SUFFIX);
+        }
+    }
+    
     @JavascriptInterface
     public void setCurrentLanguage(String langCode) {
-        Log.d(TAG, "🌐 Language set to: " + langCode);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🌐 Language set to: " + langCode);
+        }
         this.currentLanguage = langCode;
+        prefs.edit().putString("current_language", langCode).apply();
+        startupScheduler.runInBackground(() -> adviceRepository.preload(langCode));
     }
     
     @JavascriptInterface
     public void openCamera() {
-        Log.d(TAG, "📸 openCamera called");
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📸 openCamera called");
+        }
         if (context instanceof AppCompatActivity) {
             AppCompatActivity activity = (AppCompatActivity) context;
             activity.runOnUiThread(() -> {
                 try {
                     Intent intent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
                     if (intent.resolveActivity(activity.getPackageManager()) != null) {
-                        Log.d(TAG, "✅ Starting camera...");
+                        if (DebugLog.ENABLED) {
+                            Log.d(TAG, "✅ Starting camera...");
+                        }
                         activity.startActivityForResult(intent, 1001);
                     } else {
                         Log.e(TAG, "❌ No camera app found");
@@ -79,14 +360,18 @@ public class JSBridge {
     
     @JavascriptInterface
     public void openGallery() {
-        Log.d(TAG, "🖼️ openGallery called");
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🖼️ openGallery called");
+        }
         if (context instanceof AppCompatActivity) {
             AppCompatActivity activity = (AppCompatActivity) context;
             activity.runOnUiThread(() -> {
                 try {
                     Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
                     intent.setType("image/*");
-                    Log.d(TAG, "✅ Starting gallery...");
+                    if (DebugLog.ENABLED) {
+                        Log.d(TAG, "✅ Starting gallery...");
+                    }
                     activity.startActivityForResult(Intent.createChooser(intent, "Select Picture"), 1002);
                 } catch (Exception e) {
                     Log.e(TAG, "❌ Gallery error: " + e.getMessage());
@@ -98,89 +383,489 @@ public class JSBridge {
     
     @JavascriptInterface
     public String classifyImage(String base64Image, String cropType) {
-        Log.d(TAG, "🎯 classifyImage called");
-        Log.d(TAG, "📏 Image length: " + (base64Image != null ? base64Image.length() : 0));
-        Log.d(TAG, "🌱 Crop type: " + cropType);
+        return runClassification(base64Image, cropType);
+    }
+    
+    // Non-blocking variant: returns immediately and later calls
+    // window.onClassificationResult(requestId, result) on the WebView
+    @JavascriptInterface
+    public void classifyImageAsync(String requestId, String base64Image, String cropType) {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📥 classifyImageAsync queued: " + requestId);
+        }
+        scanExecutor.submit(requestId, () -> runClassification(base64Image, cropType));
+    }
+    
+    // Live scan: camera preview behind the WebView (the page must leave that area transparent) with
+    // smoothed top-K results pushed to window.onLiveScanResult a few times per second
+    @JavascriptInterface
+    public void startLiveScan(String cropType) {
+        final String cropKey;
+        try {
+            cropKey = tfLiteClassifier.resolveCrop(cropType);
+        } catch (IOException e) {
+            deliverLiveResult(getErrorResponse(e.getMessage()));
+            return;
+        }
+        if (!(context instanceof AppCompatActivity)) {
+            deliverLiveResult(getErrorResponse("Live scan needs an activity"));
+            return;
+        }
+        AppCompatActivity activity = (AppCompatActivity) context;
+        activity.runOnUiThread(() -> {
+            if (liveScanner == null) {
+                liveScanner = new LiveScanner(activity, webView, tfLiteClassifier, metrics, TOP_K, new LiveScanner.Listener() {
+                    @Override
+                    public void onResult(ClassificationResult result, int frames, float fps) {
+                        try {
+                            JSONObject response = ResponseBuilder.classification(result, lookupAdvice(result));
+                            response.put("frames", frames);
+                            response.put("fps", Math.round(fps * 10) / 10.0);
+                            deliverLiveResult(response.toString());
+                        } catch (JSONException e) {
+                            Log.e(TAG, "❌ Live result JSON error: " + e.getMessage());
+                        }
+                    }
+                    
+                    @Override
+                    public void onError(String error) {
+                        deliverLiveResult(getErrorResponse(error));
+                    }
+                });
+            }
+            if (liveScanner.isRunning()) {
+                liveScanner.setCrop(cropKey);
+            } else {
+                liveScanner.start(cropKey);
+            }
+        });
+    }
+    
+    @JavascriptInterface
+    public void stopLiveScan() {
+        if (context instanceof AppCompatActivity) {
+            ((AppCompatActivity) context).runOnUiThread(() -> {
+                if (liveScanner != null) {
+                    liveScanner.stop();
+                }
+            });
+        }
+    }
+    
+    private void deliverLiveResult(String resultJson) {
+        final String jsCode = "window.onLiveScanResult && window.onLiveScanResult("
+                + resultJson.replace("\u2028", "\\u2028").replace("\u2029", "\\u2029") + ")";
+        webView.post(() -> webView.evaluateJavascript(jsCode, null));
+    }
+    
+    @JavascriptInterface
+    public boolean cancelClassification(String requestId) {
+        return scanExecutor.cancel(requestId);
+    }
+    
+    // Classifies an image captured through openCamera/openGallery by the id
+    // handed to handleImageCaptured, so the full image never crosses the bridge
+    @JavascriptInterface
+    public String classifyStoredImage(String imageId, String cropType) {
+        return runStoredClassification(imageId, cropType);
+    }
+    
+    @JavascriptInterface
+    public void classifyStoredImageAsync(String requestId, String imageId, String cropType) {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📥 classifyStoredImageAsync queued: " + requestId + " for " + imageId);
+        }
+        scanExecutor.submit(requestId, () -> runStoredClassification(imageId, cropType));
+    }
+    
+    @JavascriptInterface
+    public void releaseImage(String imageId) {
+        imageStore.remove(imageId);
+    }
+    
+    private String runStoredClassification(String imageId, String cropType) {
+        metrics.begin(ScanMetrics.Stage.TOTAL);
+        try {
+            if (CropRouter.isAuto(cropType)) {
+                if (!cropRouter.isAvailable()) {
+                    return getErrorResponse(CropRouter.UNAVAILABLE);
+                }
+            } else {
+                tfLiteClassifier.resolveCrop(cropType);
+            }
+            Bitmap bitmap = imageStore.get(imageId);
+            if (bitmap == null) {
+                Log.e(TAG, "❌ Unknown or expired image id: " + imageId);
+                return getErrorResponse("Image expired, please capture it again");
+            }
+            return classifyBitmap(bitmap, cropType);
+        } catch (IOException e) {
+            Log.e(TAG, "❌ " + e.getMessage());
+            return getErrorResponse(e.getMessage());
+        } finally {
+            metrics.end(ScanMetrics.Stage.TOTAL);
+        }
+    }
+    
+    private String runClassification(String base64Image, String cropType) {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🎯 classifyImage called, image length: " + (base64Image != null ? base64Image.length() : 0));
+        }
         
+        metrics.begin(ScanMetrics.Stage.TOTAL);
         try {
+            // Unknown crops and crops without a model fail here, before any decoding
+            if (CropRouter.isAuto(cropType) && !cropRouter.isAvailable()) {
+                return getErrorResponse(CropRouter.UNAVAILABLE);
+            }
+            String cropKey = CropRouter.isAuto(cropType) ? CropRouter.AUTO : tfLiteClassifier.resolveCrop(cropType);
+            
             // Decode base64 to bitmap
+            metrics.begin(ScanMetrics.Stage.BASE64_DECODE);
             byte[] decodedBytes = Base64.decode(base64Image, Base64.DEFAULT);
-            Bitmap bitmap = BitmapFactory.decodeByteArray(decodedBytes, 0, decodedBytes.length);
+            metrics.end(ScanMetrics.Stage.BASE64_DECODE);
+            metrics.begin(ScanMetrics.Stage.BITMAP_DECODE);
+            Bitmap bitmap = BitmapDecoder.decodeBytes(decodedBytes,
+                    LeafTiler.decodeEdge(tfLiteClassifier.getInputEdge(cropKey)));
+            metrics.end(ScanMetrics.Stage.BITMAP_DECODE);
             
             if (bitmap == null) {
                 Log.e(TAG, "❌ Failed to decode image");
                 return getErrorResponse("Failed to decode image");
             }
             
-            Log.d(TAG, "✅ Image decoded. Size: " + bitmap.getWidth() + "x" + bitmap.getHeight());
+            return classifyBitmap(bitmap, cropKey);
+        
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Exception in classifyImage: " + e.getMessage());
+            e.printStackTrace();
+            return getErrorResponse("Error: " + e.getMessage());
+        } finally {
+            metrics.end(ScanMetrics.Stage.TOTAL);
+        }
+    }
+    
+    private String classifyBitmap(Bitmap bitmap, String cropType) {
+        try {
+            // Classify using TFLite (it resizes to the model's input); the result carries the canonical crop.
+            // "auto" lets the router pick the crop instead of the crop picker; large photos of a
+            // known crop are cropped to the leaf and tiled, and close calls get augmented views
+            // in high accuracy mode. Crops with a cascade try their fast model first.
+            CropRouter.Routing routing = null;
+            ModelCascade.FirstStage cascade = null;
+            LeafTiler.Tiling tiling = null;
+            ClassificationResult single = null;
+            TestTimeAugmenter.Augmented augmented = null;
+            ClassificationResult result;
+            if (CropRouter.isAuto(cropType)) {
+                routing = cropRouter.classify(bitmap, TOP_K);
+                result = routing.getResult();
+            } else {
+                cascade = modelCascade.classify(bitmap, cropType, TOP_K);
+                if (cascade != null && cascade.isAnswered()) {
+                    result = cascade.getResult();
+                } else {
+                    long fullStartNs = System.nanoTime();
+                    tiling = leafTiler.classify(bitmap, cropType, TOP_K);
+                    result = tiling.getResult();
+                    if (cascade != null) {
+                        modelCascade.recordEscalation(cascade, result, (System.nanoTime() - fullStartNs) / 1000);
+                    }
+                    int budgetMs = highAccuracyBudgetMs;
+                    if (budgetMs > 0 && TestTimeAugmenter.isBorderline(result)) {
+                        metrics.begin(ScanMetrics.Stage.AUGMENT);
+                        augmented = augmenter.refine(bitmap, tiling.getRegion(), result.getCrop(), tiling.getLabels(),
+                                tiling.getProbabilities(), TOP_K, budgetMs);
+                        metrics.end(ScanMetrics.Stage.AUGMENT);
+                        single = result;
+                        result = augmented.getResult();
+                    }
+                }
+            }
+            JSONObject[] advice = lookupAdvice(result);
+            
+            // Build response JSON (with the mapped crop)
+            metrics.begin(ScanMetrics.Stage.JSON_BUILD);
+            JSONObject responseJson = ResponseBuilder.classification(result, advice);
+            if (routing != null) {
+                responseJson.put("routing", routing.toJson());
+            }
+            if (cascade != null) {
+                responseJson.put("cascade", cascade.toJson());
+            }
+            if (tiling != null && tiling.isTiled()) {
+                responseJson.put("tiling", tiling.toJson());
+            }
+            if (augmented != null) {
+                responseJson.put("augmentation", augmented.toJson(single));
+            }
+            String response = responseJson.toString();
+            metrics.end(ScanMetrics.Stage.JSON_BUILD);
             
-            // Resize to 224x224 (common ML input size)
-            Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, 224, 224, true);
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "✅ " + result.getCrop() + ": " + result.getTopLabel() + " (" + result.getTopScore() + ")");
+            }
+            recordHistory(result, cascade != null && cascade.isAnswered(), bitmap);
+            prepareSpeech(result);
+            memoryGovernor.enforce();
+            return response;
+        
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Exception in classifyBitmap: " + e.getMessage());
+            e.printStackTrace();
+            return getErrorResponse("Error: " + e.getMessage());
+        }
+    }
+    
+    // Renders the top result's advice in the current language now, so "Listen" plays at once
+    private void prepareSpeech(ClassificationResult result) {
+        String summary = adviceRepository.getTtsSummary(result.getCrop(), result.getTopLabel(), currentLanguage);
+        if (summary != null) {
+            adviceSpeaker.prepare(result.getTopLabel(), currentLanguage, summary);
+        }
+    }
+    
+    // Queues the scan for the history database; only the small thumbnail is kept in memory.
+    // fastStage: the cascade's first-stage model answered, so its version is the one recorded.
+    private void recordHistory(ClassificationResult result, boolean fastStage, Bitmap bitmap) {
+        ModelRegistry registry = tfLiteClassifier.getModelRegistry();
+        ModelRegistry.ModelInfo info = fastStage ? registry.findFast(result.getCrop()) : registry.find(result.getCrop());
+        float scale = Math.min(1f, (float) ScanHistory.THUMBNAIL_EDGE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        Bitmap thumbnail = scale < 1f
+                ? Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                        Math.max(1, Math.round(bitmap.getHeight() * scale)), true)
+                : bitmap;
+        scanHistory.record(result, info != null ? info.getModelKey() : null, thumbnail);
+    }
+    
+    // Past scans, newest first, a page at a time: beforeId is the previous page's
+    // next_before_id (0 for the first page), crop filters ("" for all).
+    // { success, items: [{ id, scanned_at, crop, disease, confidence, predictions, model_version,
+    //   has_thumbnail }], next_before_id } where next_before_id is -1 after the last page
+    @JavascriptInterface
+    public String getHistory(long beforeId, int limit, String crop) {
+        try {
+            String cropKey = crop == null || crop.isEmpty() ? null : tfLiteClassifier.getModelRegistry().canonical(crop);
+            JSONObject page = scanHistory.page(beforeId, limit, cropKey);
+            page.put("success", true);
+            return page.toString();
+        } catch (IOException | JSONException | RuntimeException e) {
+            Log.e(TAG, "❌ getHistory failed: " + e.getMessage());
+            return getErrorResponse("Could not read scan history");
+        }
+    }
+    
+    // JPEG data URI of a past scan's thumbnail, or "" when it has none
+    @JavascriptInterface
+    public String getHistoryThumbnail(long id) {
+        try {
+            byte[] jpeg = scanHistory.readThumbnail(id);
+            return jpeg != null ? "data:image/jpeg;base64," + Base64.encodeToString(jpeg, Base64.NO_WRAP) : "";
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Thumbnail read failed: " + e.getMessage());
+            return "";
+        }
+    }
+    
+    @JavascriptInterface
+    public void deleteHistoryItem(long id) {
+        scanHistory.delete(id);
+    }
+    
+    // Writes scans with id > afterId to a JSON Lines file in the background and pushes
+    // { path, count, last_id } (or null on failure) to window.onHistoryExported
+    @JavascriptInterface
+    public void exportHistory(long afterId) {
+        scanHistory.exportJsonLines(afterId, result -> {
+            final String jsCode = "window.onHistoryExported && window.onHistoryExported("
+                    + (result != null ? result.toString() : "null") + ")";
+            webView.post(() -> webView.evaluateJavascript(jsCode, null));
+        });
+    }
+    
+    // Advice for every prediction, in the current language
+    private JSONObject[] lookupAdvice(ClassificationResult result) {
+        metrics.begin(ScanMetrics.Stage.ADVICE_LOOKUP);
+        JSONObject[] advice = new JSONObject[result.size()];
+        for (int i = 0; i < advice.length; i++) {
+            advice[i] = adviceRepository.getAdvice(result.getCrop(), result.getLabel(i), currentLanguage);
+        }
+        metrics.end(ScanMetrics.Stage.ADVICE_LOOKUP);
+        return advice;
+    }
+    
+    // Classifies several leaves of one crop in a single batched inference.
+    // imagesJson is a JSON array of base64 strings (data URI prefixes are allowed).
+    @JavascriptInterface
+    public String classifyImages(String imagesJson, String cropType) {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🎯 classifyImages called, crop: " + cropType);
+        }
+        
+        metrics.begin(ScanMetrics.Stage.TOTAL);
+        try {
+            JSONArray images = new JSONArray(imagesJson);
+            String modelCropType = tfLiteClassifier.resolveCrop(cropType);
+            int decodeEdge = tfLiteClassifier.getInputEdge(modelCropType);
             
-            // Map maize to corn for model loading
-            String modelCropType = cropType;
-            if ("maize".equalsIgnoreCase(cropType)) {
-                modelCropType = "corn";
-                Log.d(TAG, "🌽 MAPPING: maize -> corn");
+            // Decode everything first; undecodable images are reported but not batched
+            List<Bitmap> bitmaps = new ArrayList<>();
+            List<Integer> bitmapIndices = new ArrayList<>();
+            JSONArray results = new JSONArray();
+            for (int i = 0; i < images.length(); i++) {
+                Bitmap bitmap = decodeBase64Bitmap(images.optString(i, ""), decodeEdge);
+                if (bitmap == null) {
+                    JSONObject failed = new JSONObject();
+                    failed.put("index", i);
+                    failed.put("success", false);
+                    failed.put("error", "Failed to decode image");
+                    results.put(i, failed);
+                } else {
+                    bitmaps.add(bitmap);
+                    bitmapIndices.add(i);
+                }
             }
             
-            Log.d(TAG, "🤖 Calling TFLiteClassifier with crop: " + modelCropType);
+            if (bitmaps.isEmpty()) {
+                return getErrorResponse("No decodable images");
+            }
             
-            // Classify using TFLite - PASS THE MAPPED CROP TYPE
-            String[] result = tfLiteClassifier.classifyImage(resizedBitmap, modelCropType);
+            TFLiteClassifier.BatchResult batch = tfLiteClassifier.classifyImages(bitmaps, modelCropType);
             
-            if (result == null || result.length < 2) {
-                Log.e(TAG, "❌ Classification failed");
-                return getErrorResponse("Classification failed");
+            for (int b = 0; b < batch.size(); b++) {
+                ClassificationResult result = batch.getResult(b, modelCropType, TOP_K);
+                JSONObject item = new JSONObject();
+                item.put("index", bitmapIndices.get(b));
+                item.put("success", true);
+                ResponseBuilder.putResult(item, result, lookupAdvice(result));
+                results.put(bitmapIndices.get(b), item);
             }
             
-            String diseaseName = result[0];
-            float confidence = Float.parseFloat(result[1]);
+            // Field-level diagnosis: mean probability across leaves, plus how many leaves voted for each label
+            List<String> labels = batch.getLabels();
+            ClassificationResult fieldResult = ClassificationResult.fromProbabilities(modelCropType, labels,
+                    batch.getMeanProbabilities(), TOP_K);
+            JSONObject[] fieldAdvice = lookupAdvice(fieldResult);
+            String fieldDisease = fieldResult.getTopLabel();
             
-            Log.d(TAG, "✅ Classification successful!");
-            Log.d(TAG, "🦠 Disease: " + diseaseName);
-            Log.d(TAG, "📊 Confidence: " + confidence);
+            metrics.begin(ScanMetrics.Stage.JSON_BUILD);
+            int[] votes = batch.getTopCounts();
             
-            // Get advice from database
-            JSONObject advice = adviceRepository.getAdvice(modelCropType, diseaseName, currentLanguage);
+            JSONObject labelCounts = new JSONObject();
+            for (int i = 0; i < labels.size(); i++) {
+                if (votes[i] > 0) {
+                    labelCounts.put(labels.get(i), votes[i]);
+                }
+            }
+            
+            JSONObject field = new JSONObject();
+            ResponseBuilder.putResult(field, fieldResult, fieldAdvice);
+            field.put("leaf_count", batch.size());
+            field.put("label_counts", labelCounts);
             
-            // Build response JSON
             JSONObject response = new JSONObject();
             response.put("success", true);
-            response.put("crop", modelCropType);  // Use mapped crop
-            response.put("disease", diseaseName);
-            response.put("confidence", Math.round(confidence * 100));
+            response.put("crop", modelCropType);
+            response.put("results", results);
+            response.put("field", field);
+            String responseJson = response.toString();
+            metrics.end(ScanMetrics.Stage.JSON_BUILD);
             
-            if (advice != null) {
-                response.put("advice_cause", advice.optString("cause", ""));
-                response.put("advice_cure", advice.optString("cure", ""));
-                response.put("advice_suggestions", advice.optString("suggestions", ""));
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "✅ Batch of " + batch.size() + " classified, field diagnosis: " + fieldDisease);
             }
-            
-            Log.d(TAG, "✅ Returning JSON response");
-            return response.toString();
-            
+            memoryGovernor.enforce();
+            return responseJson;
+        
         } catch (Exception e) {
-            Log.e(TAG, "❌ Exception in classifyImage: " + e.getMessage());
+            Log.e(TAG, "❌ Exception in classifyImages: " + e.getMessage());
             e.printStackTrace();
             return getErrorResponse("Error: " + e.getMessage());
+        } finally {
+            metrics.end(ScanMetrics.Stage.TOTAL);
+        }
+    }
+    
+    // minEdge is the model's input edge, so the decoder downsamples no further than needed
+    private Bitmap decodeBase64Bitmap(String base64Image, int minEdge) {
+        if (base64Image.contains(",")) {
+            base64Image = base64Image.substring(base64Image.indexOf(',') + 1);
+        }
+        try {
+            metrics.begin(ScanMetrics.Stage.BASE64_DECODE);
+            byte[] decodedBytes = Base64.decode(base64Image, Base64.DEFAULT);
+            metrics.end(ScanMetrics.Stage.BASE64_DECODE);
+            metrics.begin(ScanMetrics.Stage.BITMAP_DECODE);
+            Bitmap bitmap = BitmapDecoder.decodeBytes(decodedBytes, minEdge);
+            metrics.end(ScanMetrics.Stage.BITMAP_DECODE);
+            return bitmap;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    // Reads the advice summary for a diagnosis aloud, from the audio cache when it has been
+    // rendered. Returns an id for window.onSpeechState, or -1 when there is no advice to read.
+    @JavascriptInterface
+    public int speakAdvice(String crop, String disease, String language) {
+        if (disease == null || disease.isEmpty()) {
+            return -1;
         }
+        if (language == null || language.isEmpty()) {
+            language = currentLanguage;
+        }
+        String summary = adviceRepository.getTtsSummary(tfLiteClassifier.getModelRegistry().canonical(crop), disease, language);
+        if (summary == null) {
+            return -1;
+        }
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🔊 Advice TTS: " + disease + " (" + language + ")");
+        }
+        return adviceSpeaker.speak(disease, language, summary);
     }
     
+    // Any other text; cached the same way, keyed by its content. -1 when there is nothing to say.
     @JavascriptInterface
-    public void speak(String text, String language) {
-        Log.d(TAG, "🔊 TTS: " + text.substring(0, Math.min(50, text.length())) + "...");
-        Toast.makeText(context, "TTS: " + text.substring(0, Math.min(50, text.length())) + "...", Toast.LENGTH_SHORT).show();
+    public int speak(String text, String language) {
+        if (text == null || text.trim().isEmpty()) {
+            return -1;
+        }
+        if (language == null || language.isEmpty()) {
+            language = currentLanguage;
+        }
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🔊 TTS: " + text.substring(0, Math.min(50, text.length())) + "...");
+        }
+        return adviceSpeaker.speak("text", language, text);
     }
     
     @JavascriptInterface
     public void stopSpeaking() {
-        Log.d(TAG, "🔇 TTS stop");
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🔇 TTS stop");
+        }
+        adviceSpeaker.stop();
+    }
+    
+    // { id, state, cached } to window.onSpeechState; state is speaking, done, stopped or error
+    private void deliverSpeechState(int utteranceId, String state, boolean cached) {
+        try {
+            JSONObject event = new JSONObject();
+            event.put("id", utteranceId);
+            event.put("state", state);
+            event.put("cached", cached);
+            final String jsCode = "window.onSpeechState && window.onSpeechState(" + event + ")";
+            webView.post(() -> webView.evaluateJavascript(jsCode, null));
+        } catch (JSONException e) {
+            // put() only throws for non-finite numbers
+        }
     }
     
     // Helper method to handle image capture result - UPDATED
     public void handleImageResult(Intent data, boolean fromCamera) {
-        Log.d(TAG, "🖼️ handleImageResult - fromCamera: " + fromCamera);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🖼️ handleImageResult - fromCamera: " + fromCamera);
+        }
         
         try {
             Bitmap bitmap = null;
@@ -189,7 +874,9 @@ public class JSBridge {
                 // Camera returns thumbnail in extras
                 if (data != null && data.getExtras() != null) {
                     bitmap = (Bitmap) data.getExtras().get("data");
-                    Log.d(TAG, "📸 Got camera thumbnail");
+                    if (DebugLog.ENABLED) {
+                        Log.d(TAG, "📸 Got camera thumbnail");
+                    }
                 } else {
                     Log.e(TAG, "❌ Camera data is null");
                     sendErrorToJS("Camera returned no image");
@@ -199,9 +886,14 @@ public class JSBridge {
                 // Gallery returns URI
                 if (data != null && data.getData() != null) {
                     Uri selectedImage = data.getData();
-                    Log.d(TAG, "🖼️ Loading gallery image from URI");
+                    if (DebugLog.ENABLED) {
+                        Log.d(TAG, "🖼️ Loading gallery image from URI");
+                    }
                     try {
-                        bitmap = MediaStore.Images.Media.getBitmap(context.getContentResolver(), selectedImage);
+                        metrics.begin(ScanMetrics.Stage.BITMAP_DECODE);
+                        bitmap = BitmapDecoder.decodeUri(context.getContentResolver(), selectedImage,
+                                LeafTiler.decodeEdge(tfLiteClassifier.getInputEdge(currentCrop)));
+                        metrics.end(ScanMetrics.Stage.BITMAP_DECODE);
                     } catch (SecurityException e) {
                         Log.e(TAG, "❌ Permission error: " + e.getMessage());
                         sendErrorToJS("Permission denied for gallery");
@@ -215,20 +907,25 @@ public class JSBridge {
             }
             
             if (bitmap != null) {
-                Log.d(TAG, "✅ Image loaded. Size: " + bitmap.getWidth() + "x" + bitmap.getHeight());
+                if (DebugLog.ENABLED) {
+                    Log.d(TAG, "✅ Image loaded. Size: " + bitmap.getWidth() + "x" + bitmap.getHeight());
+                }
                 
-                // Convert to base64
-                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                bitmap.compress(Bitmap.CompressFormat.JPEG, 70, byteArrayOutputStream);
-                byte[] byteArray = byteArrayOutputStream.toByteArray();
-                String base64Image = Base64.encodeToString(byteArray, Base64.DEFAULT);
+                String imageId = imageStore.put(bitmap);
+                memoryGovernor.enforce();
+                String thumbnail = encodeThumbnail(bitmap);
                 
-                Log.d(TAG, "📊 Base64 length: " + base64Image.length());
+                if (DebugLog.ENABLED) {
+                    Log.d(TAG, "📊 Thumbnail base64 length: " + thumbnail.length());
+                }
                 
-                // Send to JavaScript
-                final String jsCode = "javascript:handleImageCaptured('data:image/jpeg;base64," + base64Image + "')";
+                // Send only the id and a small preview to JavaScript
+                final String jsCode = "javascript:handleImageCaptured('data:image/jpeg;base64," + thumbnail
+                        + "', null, '" + imageId + "')";
                 webView.post(() -> {
-                    Log.d(TAG, "🔄 Sending to JavaScript...");
+                    if (DebugLog.ENABLED) {
+                        Log.d(TAG, "🔄 Sending to JavaScript...");
+                    }
                     webView.evaluateJavascript(jsCode, null);
                 });
             } else {
@@ -242,6 +939,39 @@ public class JSBridge {
         }
     }
     
+    private String encodeThumbnail(Bitmap bitmap) {
+        float scale = Math.min(1f, (float) THUMBNAIL_SIZE / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        Bitmap thumbnail = scale < 1f
+                ? Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                        Math.max(1, Math.round(bitmap.getHeight() * scale)), true)
+                : bitmap;
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        thumbnail.compress(Bitmap.CompressFormat.JPEG, 80, byteArrayOutputStream);
+        return Base64.encodeToString(byteArrayOutputStream.toByteArray(), Base64.NO_WRAP);
+    }
+    
+    // Called from MainActivity.onDestroy to free cached interpreters
+    public void close() {
+        startupScheduler.shutdown();
+        scanExecutor.shutdown();
+        cropRouter.close();
+        if (liveScanner != null) {
+            liveScanner.close();
+        }
+        imageStore.clear();
+        adviceSpeaker.close();
+        scanHistory.close();
+        tfLiteClassifier.close();
+    }
+    
+    private void deliverResult(String requestId, String resultJson) {
+        // JSON is a valid JS literal except for the two line separators
+        final String jsCode = "window.onClassificationResult && window.onClassificationResult("
+                + JSONObject.quote(requestId) + ", "
+                + resultJson.replace("\u2028", "\\u2028").replace("\u2029", "\\u2029") + ")";
+        webView.post(() -> webView.evaluateJavascript(jsCode, null));
+    }
+    
     private void sendErrorToJS(String error) {
         final String jsError = "javascript:handleImageCaptured(null, '" + error + "')";
         webView.post(() -> {
@@ -250,14 +980,11 @@ public class JSBridge {
     }
     
     private String getErrorResponse(String error) {
+        return getErrorResponse(error, false);
+    }
+    
+    private String getErrorResponse(String error, boolean dropped) {
         Log.e(TAG, "🚨 Error: " + error);
-        try {
-            JSONObject response = new JSONObject();
-            response.put("success", false);
-            response.put("error", error);
-            return response.toString();
-        } catch (JSONException e) {
-            return "{\"success\":false,\"error\":\"JSON error\"}";
-        }
+        return ResponseBuilder.error(error, dropped);
     }
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.farmmate.app;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Large photos: crops to the leaf region (LeafMap) and covers it with overlapping model-sized
+ * tiles plus one view of the whole region, classified as one batch. Tile scores are merged
+ * weighted by how much leaf each tile holds and how sure the model is about it, so one
+ * diseased leaf in a field shot isn't squashed to a few pixels. The tile count is capped so
+ * the batch fits LATENCY_BUDGET_US at the model's measured per-item inference time.
+ */
+public class LeafTiler {
+    private static final String TAG = "LeafTiler";
+    // Photos are decoded to this multiple of the model input so tiles have real detail to show
+    public static final int DECODE_SCALE = 2;
+    // Long edge of the thumbnail the colour pass runs on
+    private static final int MAP_EDGE = 96;
+    private static final long LATENCY_BUDGET_US = 400_000;
+    // Used until the model has run or been calibrated once; the whole view plus a 2x2 grid
+    private static final int DEFAULT_TILES = 5;
+    // Images below this multiple of the input edge gain nothing from cropping or tiling
+    private static final float MIN_SCALE = 1.5f;
+    // Tiles of bare background still get a small say
+    private static final float MIN_LEAF = 0.05f;
+    
+    private final TFLiteClassifier classifier;
+    private final ScanMetrics metrics;
+    
+    public LeafTiler(TFLiteClassifier classifier, ScanMetrics metrics) {
+        this.classifier = classifier;
+        this.metrics = metrics;
+    }
+    
+    // Short edge to decode photos at for the crop's model
+    public static int decodeEdge(int inputEdge) {
+        return inputEdge * DECODE_SCALE;
+    }
+    
+    public Tiling classify(Bitmap bitmap, String cropType, int k) throws IOException {
+        String cropKey = classifier.resolveCrop(cropType);
+        int inputEdge = classifier.getInputEdge(cropKey);
+        if (Math.min(bitmap.getWidth(), bitmap.getHeight()) < inputEdge * MIN_SCALE) {
+            TFLiteClassifier.BatchResult single = classifier.classifyImages(Collections.singletonList(bitmap), cropKey);
+            return new Tiling(single.getResult(0, cropKey, k), single.getLabels(), single.getProbabilities(0),
+                    null, null, null, null);
+        }
+        
+        metrics.begin(ScanMetrics.Stage.LEAF_REGION);
+        LeafMap map = leafMap(bitmap);
+        LeafMap.Region area = map.findRegion(inputEdge);
+        int maxTiles = tileBudget(cropKey);
+        List<LeafMap.Region> tiles = LeafMap.tiles(area, inputEdge, maxTiles);
+        metrics.end(ScanMetrics.Stage.LEAF_REGION);
+        
+        TFLiteClassifier.BatchResult batch = classifier.classifyRegions(bitmap, tiles, cropKey);
+        float[] weights = new float[tiles.size()];
+        float[] merged = merge(batch, map, tiles, weights);
+        ClassificationResult result = ClassificationResult.fromProbabilities(cropKey, batch.getLabels(), merged, k);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🧩 " + cropKey + ": region " + area + ", " + tiles.size() + " tiles (budget " + maxTiles
+                    + ") -> " + result.getTopLabel());
+        }
+        return new Tiling(result, batch.getLabels(), merged, area, tiles, batch, weights);
+    }
+    
+    private static LeafMap leafMap(Bitmap bitmap) {
+        float scale = (float) MAP_EDGE / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        Bitmap thumbnail = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        int[] pixels = new int[width * height];
+        thumbnail.getPixels(pixels, 0, width, 0, 0, width, height);
+        // createScaledBitmap returns the source itself when no scaling was needed
+        if (thumbnail != bitmap) {
+            thumbnail.recycle();
+        }
+        return new LeafMap(pixels, width, height, bitmap.getWidth(), bitmap.getHeight());
+    }
+    
+    // Tiles (the whole-region view included) that fit the latency budget, 1..MAX_BATCH_SIZE
+    private int tileBudget(String cropKey) {
+        long itemUs = classifier.estimateItemUs(cropKey);
+        if (itemUs <= 0) {
+            return DEFAULT_TILES;
+        }
+        return (int) Math.max(1, Math.min(TFLiteClassifier.MAX_BATCH_SIZE, LATENCY_BUDGET_US / itemUs));
+    }
+    
+    // Weighted mean of the tile probabilities; weights (leaf coverage x top score) are written out
+    private static float[] merge(TFLiteClassifier.BatchResult batch, LeafMap map, List<LeafMap.Region> tiles,
+                                 float[] weights) {
+        float[] merged = new float[batch.getLabels().size()];
+        float total = 0f;
+        for (int i = 0; i < tiles.size(); i++) {
+            float[] probabilities = batch.getProbabilities(i);
+            weights[i] = Math.max(MIN_LEAF, map.coverage(tiles.get(i))) * probabilities[batch.getTopIndex(i)];
+            total += weights[i];
+            for (int c = 0; c < merged.length && c < probabilities.length; c++) {
+                merged[c] += weights[i] * probabilities[c];
+            }
+        }
+        for (int c = 0; c < merged.length; c++) {
+            merged[c] /= total;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] /= total;
+        }
+        return merged;
+    }
+    
+    // Merged result plus the region and tiles it came from (null for images too small to tile)
+    public static final class Tiling {
+        private final ClassificationResult result;
+        private final List<String> labels;
+        private final float[] probabilities;
+        private final LeafMap.Region region;
+        private final List<LeafMap.Region> tiles;
+        private final TFLiteClassifier.BatchResult batch;
+        private final float[] weights;
+        
+        Tiling(ClassificationResult result, List<String> labels, float[] probabilities, LeafMap.Region region,
+               List<LeafMap.Region> tiles, TFLiteClassifier.BatchResult batch, float[] weights) {
+            this.result = result;
+            this.labels = labels;
+            this.probabilities = probabilities;
+            this.region = region;
+            this.tiles = tiles;
+            this.batch = batch;
+            this.weights = weights;
+        }
+        
+        public ClassificationResult getResult() {
+            return result;
+        }
+        
+        // Full (merged) distribution behind the top-k result
+        public float[] getProbabilities() {
+            return probabilities;
+        }
+        
+        public List<String> getLabels() {
+            return labels;
+        }
+        
+        // Leaf region the tiles cover; null when the whole image was classified
+        public LeafMap.Region getRegion() {
+            return region;
+        }
+        
+        public boolean isTiled() {
+            return tiles != null;
+        }
+        
+        // { region: { x, y, width, height }, tiles: [{ x, y, size, disease, confidence, weight }] }
+        // The first tile is the whole region.
+        public JSONObject toJson() throws JSONException {
+            JSONArray items = new JSONArray();
+            for (int i = 0; i < tiles.size(); i++) {
+                LeafMap.Region tile = tiles.get(i);
+                int top = batch.getTopIndex(i);
+                JSONObject item = new JSONObject();
+                item.put("x", tile.getX());
+                item.put("y", tile.getY());
+                item.put("size", Math.max(tile.getWidth(), tile.getHeight()));
+                item.put("disease", batch.getLabels().get(top));
+                item.put("confidence", Math.round(batch.getProbabilities(i)[top] * 100));
+                item.put("weight", Math.round(weights[i] * 100));
+                items.put(item);
+            }
+            JSONObject area = new JSONObject();
+            area.put("x", region.getX());
+            area.put("y", region.getY());
+            area.put("width", region.getWidth());
+            area.put("height", region.getHeight());
+            JSONObject json = new JSONObject();
+            json.put("region", area);
+            json.put("tiles", items);
+            return json;
+        }
+    }
+}
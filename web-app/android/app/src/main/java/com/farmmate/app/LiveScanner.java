@@ -0,0 +1,244 @@
+package com.farmmate.app;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.graphics.Color;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.webkit.WebView;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+import com.getcapacitor.BridgeActivity;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Live scan mode: CameraX preview behind the (transparent) WebView plus an analyzer that
+ * classifies preview frames. KEEP_ONLY_LATEST drops frames that arrive while inference is
+ * busy, so work never queues up; results are smoothed across frames and reported at most
+ * every EMIT_INTERVAL_MS. start()/stop()/onPermissionResult() must be called on the main thread.
+ */
+public class LiveScanner {
+    private static final String TAG = "LiveScanner";
+    private static final long EMIT_INTERVAL_MS = 250;
+    // Weight of the newest frame; ~0.3 settles within a handful of frames
+    private static final float SMOOTHING = 0.3f;
+    public static final int CAMERA_PERMISSION_REQUEST = 1003;
+    
+    // Called on the analysis thread
+    public interface Listener {
+        void onResult(ClassificationResult result, int frames, float fps);
+        void onError(String error);
+    }
+    
+    private final AppCompatActivity activity;
+    private final WebView webView;
+    private final TFLiteClassifier classifier;
+    private final ScanMetrics metrics;
+    private final Listener listener;
+    private final int topK;
+    // Normal priority: DISPLAY would compete with the UI and render threads this keeps smooth
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_DEFAULT);
+            runnable.run();
+        }, "farmmate-live");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final YuvFrame frame = new YuvFrame();
+    private final ScoreSmoother smoother = new ScoreSmoother(SMOOTHING);
+    // Restored by stop(); WebView has no getter for its background colour
+    private final int webViewBackground;
+    private ProcessCameraProvider cameraProvider;
+    private PreviewView previewView;
+    private volatile String crop;
+    // Crop to start once the camera permission request returns
+    private String pendingCrop;
+    // Crop the smoother's state belongs to; only touched on the analysis thread
+    private String smoothedCrop;
+    private volatile boolean restarted;
+    private volatile boolean running;
+    private long lastEmitMs;
+    private long windowStartMs;
+    private int windowFrames;
+    private float fps;
+    
+    public LiveScanner(AppCompatActivity activity, WebView webView, TFLiteClassifier classifier,
+                       ScanMetrics metrics, int topK, Listener listener) {
+        this.activity = activity;
+        this.webView = webView;
+        this.classifier = classifier;
+        this.metrics = metrics;
+        this.listener = listener;
+        this.topK = topK;
+        this.webViewBackground = configuredBackground(activity);
+    }
+    
+    // Capacitor's configured backgroundColor, else the WebView default
+    private static int configuredBackground(AppCompatActivity activity) {
+        if (activity instanceof BridgeActivity && ((BridgeActivity) activity).getBridge() != null) {
+            String color = ((BridgeActivity) activity).getBridge().getConfig().getBackgroundColor();
+            if (color != null) {
+                try {
+                    return Color.parseColor(color);
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "⚠️ Ignoring backgroundColor " + color);
+                }
+            }
+        }
+        return Color.WHITE;
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public void start(String cropKey) {
+        if (activity.checkSelfPermission(Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+            // MainActivity forwards the answer to onPermissionResult()
+            pendingCrop = cropKey;
+            activity.requestPermissions(new String[] {Manifest.permission.CAMERA}, CAMERA_PERMISSION_REQUEST);
+            return;
+        }
+        crop = cropKey;
+        if (running) {
+            return;
+        }
+        running = true;
+        Log.d(TAG, "🎥 Starting live scan for " + cropKey);
+        
+        if (previewView == null) {
+            previewView = new PreviewView(activity);
+        }
+        ViewGroup parent = (ViewGroup) webView.getParent();
+        if (previewView.getParent() == null) {
+            parent.addView(previewView, 0, new ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+        // The page shows the preview through a transparent area
+        webView.setBackgroundColor(Color.TRANSPARENT);
+        
+        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(activity);
+        future.addListener(() -> {
+            try {
+                cameraProvider = future.get();
+                bind();
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Camera unavailable: " + e.getMessage());
+                stop();
+                listener.onError("Camera unavailable: " + e.getMessage());
+            }
+        }, ContextCompat.getMainExecutor(activity));
+    }
+    
+    // Starts the scan that was waiting for the camera permission, or reports the denial
+    public void onPermissionResult(boolean granted) {
+        String cropKey = pendingCrop;
+        pendingCrop = null;
+        if (cropKey == null) {
+            return;
+        }
+        if (granted) {
+            start(cropKey);
+        } else {
+            listener.onError("Camera permission is needed for live scan");
+        }
+    }
+    
+    // Switches model without restarting the camera
+    public void setCrop(String cropKey) {
+        crop = cropKey;
+    }
+    
+    public void stop() {
+        pendingCrop = null;
+        if (!running) {
+            return;
+        }
+        running = false;
+        Log.d(TAG, "⏹️ Stopping live scan");
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll();
+        }
+        if (previewView != null && previewView.getParent() != null) {
+            ((ViewGroup) previewView.getParent()).removeView(previewView);
+        }
+        webView.setBackgroundColor(webViewBackground);
+    }
+    
+    public void close() {
+        stop();
+        analysisExecutor.shutdownNow();
+    }
+    
+    private void bind() {
+        if (!running) {
+            return;
+        }
+        Preview preview = new Preview.Builder().build();
+        preview.setSurfaceProvider(previewView.getSurfaceProvider());
+        
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                .build();
+        analysis.setAnalyzer(analysisExecutor, this::analyze);
+        
+        cameraProvider.unbindAll();
+        cameraProvider.bindToLifecycle(activity, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+        restarted = true;
+        windowStartMs = SystemClock.elapsedRealtime();
+        windowFrames = 0;
+    }
+    
+    private void analyze(ImageProxy image) {
+        String cropKey = crop;
+        try {
+            if (!running) {
+                return;
+            }
+            metrics.begin(ScanMetrics.Stage.LIVE_FRAME);
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            frame.set(planes[0].getBuffer(), planes[1].getBuffer(), planes[2].getBuffer(),
+                    planes[0].getRowStride(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                    image.getWidth(), image.getHeight(), image.getImageInfo().getRotationDegrees());
+            TFLiteClassifier.BatchResult batch = classifier.classifyFrame(frame, cropKey);
+            if (restarted || !cropKey.equals(smoothedCrop)) {
+                restarted = false;
+                smoother.reset();
+                smoothedCrop = cropKey;
+            }
+            float[] smoothed = smoother.update(batch.getProbabilities(0));
+            metrics.end(ScanMetrics.Stage.LIVE_FRAME);
+            
+            long now = SystemClock.elapsedRealtime();
+            windowFrames++;
+            if (now - windowStartMs >= 1000) {
+                fps = windowFrames * 1000f / (now - windowStartMs);
+                windowStartMs = now;
+                windowFrames = 0;
+            }
+            if (now - lastEmitMs >= EMIT_INTERVAL_MS) {
+                lastEmitMs = now;
+                listener.onResult(ClassificationResult.fromProbabilities(cropKey, batch.getLabels(), smoothed, topK),
+                        smoother.getFrames(), fps);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Live frame failed: " + e.getMessage());
+            listener.onError(e.getMessage());
+            activity.runOnUiThread(this::stop);
+        } finally {
+            image.close();
+        }
+    }
+}
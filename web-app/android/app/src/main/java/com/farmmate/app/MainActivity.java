@@ -14,7 +14,9 @@ public class MainActivity extends BridgeActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         
-        Log.d(TAG, "🚀 MainActivity onCreate");
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🚀 MainActivity onCreate");
+        }
         
         // Enable debugging
         WebView.setWebContentsDebuggingEnabled(true);
@@ -25,25 +27,68 @@ public class MainActivity extends BridgeActivity {
             jsBridge = new JSBridge(this, webView);
             webView.addJavascriptInterface(jsBridge, "Android");
             
-            Log.d(TAG, "✅ JSBridge added to WebView");
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "✅ JSBridge added to WebView");
+            }
+            
+            // Advice loading and model warm-up wait until the WebView is idle
+            jsBridge.scheduleWarmUp();
             
             // Test connection
             webView.evaluateJavascript("window.AndroidBridge = window.Android || {};", null);
         });
     }
     
+    // The governor releases caches, idle models and photos in tiers depending on the level
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (jsBridge != null) {
+            jsBridge.onTrimMemory(level);
+        }
+    }
+    
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        if (jsBridge != null) {
+            jsBridge.onLowMemory();
+        }
+    }
+    
+    // Live scan asks for the camera permission and starts once it is granted
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (jsBridge != null) {
+            jsBridge.onRequestPermissionsResult(requestCode, grantResults);
+        }
+    }
+    
+    @Override
+    protected void onDestroy() {
+        if (jsBridge != null) {
+            jsBridge.close();
+        }
+        super.onDestroy();
+    }
+    
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         
-        Log.d(TAG, "📸 onActivityResult called");
-        Log.d(TAG, "   Request Code: " + requestCode);
-        Log.d(TAG, "   Result Code: " + resultCode);
-        Log.d(TAG, "   Data: " + (data != null ? "has data" : "null"));
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📸 onActivityResult called");
+            Log.d(TAG, "   Request Code: " + requestCode);
+            Log.d(TAG, "   Result Code: " + resultCode);
+            Log.d(TAG, "   Data: " + (data != null ? "has data" : "null"));
+        }
         
         if (resultCode == RESULT_OK) {
             if (requestCode == 1001) { // Camera request code
-                Log.d(TAG, "✅ Camera photo received");
+                if (DebugLog.ENABLED) {
+                    Log.d(TAG, "✅ Camera photo received");
+                }
                 if (jsBridge != null) {
                     if (data != null) {
                         jsBridge.handleImageResult(data, true); // true = from camera
@@ -56,7 +101,9 @@ public class MainActivity extends BridgeActivity {
                     Log.e(TAG, "❌ JSBridge is null");
                 }
             } else if (requestCode == 1002) { // Gallery request code
-                Log.d(TAG, "✅ Gallery image selected");
+                if (DebugLog.ENABLED) {
+                    Log.d(TAG, "✅ Gallery image selected");
+                }
                 if (jsBridge != null) {
                     if (data != null && data.getData() != null) {
                         jsBridge.handleImageResult(data, false); // false = from gallery
@@ -0,0 +1,155 @@
+package com.farmmate.app;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.util.Log;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One byte budget for what the scan path keeps in memory: model buffers and interpreter
+ * arenas, decoded photos, cached results and advice data. When the total goes over budget
+ * consumers are trimmed in tiers, cheapest to rebuild first, down to IDLE; CRITICAL is only
+ * applied when the system calls onTrimMemory/onLowMemory. Phones with plenty of RAM keep
+ * their models warm, and small ones fall back to reloading instead of running out of memory.
+ */
+public class MemoryGovernor {
+    private static final String TAG = "MemoryGovernor";
+    private static final long MB = 1024 * 1024;
+    // Default budget is a sixteenth of RAM within these bounds: ~128 MB on 2 GB, 384 MB on 6 GB+
+    private static final long MIN_BUDGET = 48 * MB;
+    private static final long MAX_BUDGET = 384 * MB;
+    private static final long LOW_RAM_BUDGET = 64 * MB;
+    private static final Tier[] BUDGET_TIERS = {Tier.CACHES, Tier.IDLE};
+    
+    // Ordered by how much is released; each tier includes the ones before it
+    public enum Tier {
+        // Results, expired photos and spare interpreters: all cheap to rebuild
+        CACHES,
+        // Everything but the most recently used model, photo and language, and models in use
+        IDLE,
+        // All of it; the next scan reloads what it needs. Only on system memory pressure
+        CRITICAL
+    }
+    
+    public interface Consumer {
+        String getName();
+        long getByteCount();
+        void trim(Tier tier);
+    }
+    
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private volatile long budgetBytes;
+    private volatile long trims;
+    
+    public MemoryGovernor(Context context) {
+        this.budgetBytes = defaultBudget(context);
+        Log.d(TAG, "🧠 Memory budget " + budgetBytes / MB + " MB");
+    }
+    
+    private static long defaultBudget(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) {
+            return MIN_BUDGET;
+        }
+        if (am.isLowRamDevice()) {
+            return LOW_RAM_BUDGET;
+        }
+        ActivityManager.MemoryInfo info = new ActivityManager.MemoryInfo();
+        am.getMemoryInfo(info);
+        return Math.max(MIN_BUDGET, Math.min(MAX_BUDGET, info.totalMem / 16));
+    }
+    
+    public void register(Consumer consumer) {
+        consumers.add(consumer);
+    }
+    
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+    
+    // Applies right away, so lowering the budget trims immediately
+    public void setBudgetBytes(long bytes) {
+        budgetBytes = Math.max(MIN_BUDGET / 2, bytes);
+        enforce();
+    }
+    
+    public long getUsedBytes() {
+        long used = 0;
+        for (Consumer consumer : consumers) {
+            used += consumer.getByteCount();
+        }
+        return used;
+    }
+    
+    // Cheap when under budget (a few counters); call after anything that may have grown memory.
+    // Stops at IDLE, which keeps the model just used, so one scan never forces the next to reload.
+    public void enforce() {
+        long used = getUsedBytes();
+        if (used <= budgetBytes) {
+            return;
+        }
+        for (Tier tier : BUDGET_TIERS) {
+            trim(tier);
+            long after = getUsedBytes();
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "🧹 Over budget (" + used / MB + "/" + budgetBytes / MB + " MB), " + tier + " -> " + after / MB + " MB");
+            }
+            if (after <= budgetBytes) {
+                return;
+            }
+            used = after;
+        }
+    }
+    
+    // From Activity.onTrimMemory
+    public void onTrimMemory(int level) {
+        Tier tier;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            tier = Tier.CRITICAL;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            tier = Tier.IDLE;
+        } else {
+            // RUNNING_MODERATE and UI_HIDDEN
+            tier = Tier.CACHES;
+        }
+        Log.d(TAG, "🧹 onTrimMemory(" + level + ") -> " + tier);
+        trim(tier);
+    }
+    
+    public void onLowMemory() {
+        Log.d(TAG, "🧹 onLowMemory");
+        trim(Tier.CRITICAL);
+    }
+    
+    private synchronized void trim(Tier tier) {
+        trims++;
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.trim(tier);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "❌ Trimming " + consumer.getName() + " failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    // { budget_bytes, used_bytes, trims, consumers: { name: bytes } }
+    public JSONObject toJson() throws JSONException {
+        JSONObject byConsumer = new JSONObject();
+        long used = 0;
+        for (Consumer consumer : consumers) {
+            long bytes = consumer.getByteCount();
+            byConsumer.put(consumer.getName(), bytes);
+            used += bytes;
+        }
+        JSONObject json = new JSONObject();
+        json.put("budget_bytes", budgetBytes);
+        json.put("used_bytes", used);
+        json.put("trims", trims);
+        json.put("consumers", byConsumer);
+        return json;
+    }
+}
@@ -0,0 +1,27 @@
+package com.farmmate.app;
+
+import android.os.Debug;
+
+/**
+ * Cheap process-wide memory counters for ScanMetrics.
+ */
+public final class MemoryStats {
+    private MemoryStats() {
+    }
+    
+    // Java heap bytes allocated according to ART (counted per allocation buffer, so small
+    // stages read coarse) plus native heap in use, which is where bitmap pixels live on API 26+.
+    // Only deltas are meaningful; a GC or native free in between can make one negative.
+    public static long allocatedBytes() {
+        long javaAllocated = 0;
+        String stat = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        if (stat != null) {
+            try {
+                javaAllocated = Long.parseLong(stat);
+            } catch (NumberFormatException e) {
+                // Not ART, or the stat is unavailable
+            }
+        }
+        return javaAllocated + Debug.getNativeHeapAllocatedSize();
+    }
+}
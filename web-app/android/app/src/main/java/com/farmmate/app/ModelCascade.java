@@ -0,0 +1,214 @@
+package com.farmmate.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Two-stage scans for crops whose manifest entry has a "fast" model: the small model runs
+ * first and answers on its own when its top label is one it may answer and its score clears
+ * the crop's threshold; anything else escalates to the full model. Per-crop hit rates, time
+ * per stage and a histogram of first-stage confidence (with how often the full model agreed
+ * on escalated scans) are kept so thresholds can be tuned; overrides persist per crop.
+ */
+public class ModelCascade {
+    private static final String TAG = "ModelCascade";
+    private static final String PREFS_NAME = "farmmate_cascade";
+    // Confidence histogram buckets of 10 points each
+    private static final int BUCKETS = 10;
+    
+    private final TFLiteClassifier classifier;
+    private final ScanMetrics metrics;
+    private final SharedPreferences prefs;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    
+    public ModelCascade(Context context, TFLiteClassifier classifier, ScanMetrics metrics) {
+        this.classifier = classifier;
+        this.metrics = metrics;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+    
+    public boolean hasFastStage(String cropType) {
+        return classifier.getModelRegistry().findFast(cropType) != null;
+    }
+    
+    // Runs the crop's fast stage; null when the crop has no cascade
+    public FirstStage classify(Bitmap bitmap, String cropType, int k) throws IOException {
+        ModelRegistry.ModelInfo fast = classifier.getModelRegistry().findFast(cropType);
+        if (fast == null) {
+            return null;
+        }
+        String cropKey = classifier.resolveCrop(cropType);
+        metrics.begin(ScanMetrics.Stage.CASCADE);
+        long startNs = System.nanoTime();
+        TFLiteClassifier.BatchResult batch;
+        try {
+            batch = classifier.classifyImages(Collections.singletonList(bitmap), fast.getCrop());
+        } finally {
+            metrics.end(ScanMetrics.Stage.CASCADE);
+        }
+        long elapsedUs = (System.nanoTime() - startNs) / 1000;
+        // Reported under the crop itself so responses and history don't see the stage key
+        ClassificationResult result = batch.getResult(0, cropKey, k);
+        float threshold = getThreshold(cropKey);
+        boolean answerable = fast.canAnswer(result.getTopLabel());
+        boolean answered = answerable && result.getTopScore() >= threshold;
+        statsFor(cropKey).recordFast(result.getTopScore(), answerable, answered, elapsedUs);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "⚡ " + cropKey + " fast stage: " + result.getTopLabel() + " (" + result.getTopScore()
+                    + ", threshold " + threshold + ") -> " + (answered ? "answered" : "escalating"));
+        }
+        return new FirstStage(result, answerable, answered, threshold, elapsedUs);
+    }
+    
+    // Records the full model's answer to a scan the fast stage escalated
+    public void recordEscalation(FirstStage first, ClassificationResult full, long fullUs) {
+        boolean agreed = first.answerable && first.result.getTopLabel().equals(full.getTopLabel());
+        statsFor(full.getCrop()).recordFull(first.result.getTopScore(), first.answerable, agreed, fullUs);
+    }
+    
+    // Per-crop override of the manifest threshold; a negative value restores the manifest's
+    public void setThreshold(String cropType, float threshold) throws IOException {
+        String cropKey = classifier.resolveCrop(cropType);
+        if (threshold < 0) {
+            prefs.edit().remove(cropKey).apply();
+        } else {
+            prefs.edit().putFloat(cropKey, Math.min(1f, threshold)).apply();
+        }
+    }
+    
+    public float getThreshold(String cropKey) {
+        ModelRegistry.ModelInfo fast = classifier.getModelRegistry().findFast(cropKey);
+        return prefs.getFloat(cropKey, fast != null ? fast.getThreshold() : 1f);
+    }
+    
+    public void reset() {
+        stats.clear();
+    }
+    
+    private Stats statsFor(String cropKey) {
+        Stats existing = stats.get(cropKey);
+        if (existing != null) {
+            return existing;
+        }
+        Stats created = new Stats();
+        Stats raced = stats.putIfAbsent(cropKey, created);
+        return raced != null ? raced : created;
+    }
+    
+    // { tomato: { threshold, scans, fast_answers, escalations, fast_hit_rate, fast_avg_us, full_avg_us,
+    //   confidence: [{ from, scans, checked, agreed }] } }; bucket i covers top scores in [i/10, (i+1)/10)
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, Stats> e : stats.entrySet()) {
+            JSONObject item = e.getValue().toJson();
+            item.put("threshold", Math.round(getThreshold(e.getKey()) * 100));
+            json.put(e.getKey(), item);
+        }
+        return json;
+    }
+    
+    private static final class Stats {
+        long scans;
+        long fastAnswers;
+        long escalations;
+        long fastUs;
+        long fullUs;
+        // Scans by fast-stage top score, for labels the fast stage may answer
+        final long[] bucketScans = new long[BUCKETS];
+        // Escalated scans per bucket, and how many of those the full model agreed with
+        final long[] bucketChecked = new long[BUCKETS];
+        final long[] bucketAgreed = new long[BUCKETS];
+        
+        synchronized void recordFast(float score, boolean answerable, boolean answered, long elapsedUs) {
+            scans++;
+            fastUs += elapsedUs;
+            if (answered) {
+                fastAnswers++;
+            }
+            if (answerable) {
+                bucketScans[bucket(score)]++;
+            }
+        }
+        
+        synchronized void recordFull(float fastScore, boolean answerable, boolean agreed, long elapsedUs) {
+            escalations++;
+            fullUs += elapsedUs;
+            if (answerable) {
+                bucketChecked[bucket(fastScore)]++;
+                if (agreed) {
+                    bucketAgreed[bucket(fastScore)]++;
+                }
+            }
+        }
+        
+        private static int bucket(float score) {
+            return Math.max(0, Math.min(BUCKETS - 1, (int) (score * BUCKETS)));
+        }
+        
+        synchronized JSONObject toJson() throws JSONException {
+            JSONArray buckets = new JSONArray();
+            for (int i = 0; i < BUCKETS; i++) {
+                JSONObject bucket = new JSONObject();
+                bucket.put("from", i * 100 / BUCKETS);
+                bucket.put("scans", bucketScans[i]);
+                bucket.put("checked", bucketChecked[i]);
+                bucket.put("agreed", bucketAgreed[i]);
+                buckets.put(bucket);
+            }
+            JSONObject json = new JSONObject();
+            json.put("scans", scans);
+            json.put("fast_answers", fastAnswers);
+            json.put("escalations", escalations);
+            json.put("fast_hit_rate", scans > 0 ? Math.round(fastAnswers * 100.0 / scans) : 0);
+            json.put("fast_avg_us", scans > 0 ? fastUs / scans : 0);
+            json.put("full_avg_us", escalations > 0 ? fullUs / escalations : 0);
+            json.put("confidence", buckets);
+            return json;
+        }
+    }
+    
+    // The fast stage's answer, and whether it was final
+    public static final class FirstStage {
+        private final ClassificationResult result;
+        private final boolean answerable;
+        private final boolean answered;
+        private final float threshold;
+        private final long elapsedUs;
+        
+        FirstStage(ClassificationResult result, boolean answerable, boolean answered, float threshold, long elapsedUs) {
+            this.result = result;
+            this.answerable = answerable;
+            this.answered = answered;
+            this.threshold = threshold;
+            this.elapsedUs = elapsedUs;
+        }
+        
+        public ClassificationResult getResult() {
+            return result;
+        }
+        
+        public boolean isAnswered() {
+            return answered;
+        }
+        
+        // { stage: "fast" | "full", fast_disease, fast_confidence, threshold, fast_us }
+        public JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("stage", answered ? "fast" : "full");
+            json.put("fast_disease", result.getTopLabel());
+            json.put("fast_confidence", Math.round(result.getTopScore() * 100));
+            json.put("threshold", Math.round(threshold * 100));
+            json.put("fast_us", elapsedUs);
+            return json;
+        }
+    }
+}
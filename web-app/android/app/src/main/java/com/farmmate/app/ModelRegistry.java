@@ -0,0 +1,453 @@
+package com.farmmate.app;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Crop -> model file, labels, expected input and normalization, read from assets/models.json.
+ * files/models/models.json (same format, paths relative to that directory) can override
+ * individual crops with downloaded models; reload() picks changes up without a restart.
+ * Crops listed without a model (labels only) fail fast instead of borrowing another crop's model.
+ * An optional top-level "router" entry is a crop-identification model whose labels are crop ids.
+ * A crop's optional "fast" entry (same fields plus "threshold" and "answers") is a small first
+ * stage that answers confident scans on its own; it is registered as crop + FAST_SUFFIX.
+ */
+public class ModelRegistry {
+    private static final String TAG = "ModelRegistry";
+    public static final String MANIFEST = "models.json";
+    public static final String STORAGE_DIR = "models";
+    // Registry key of the crop-identification model; never listed as a crop
+    public static final String ROUTER = "router";
+    // Registry key suffix of a crop's first-stage model, e.g. "tomato:fast"
+    public static final String FAST_SUFFIX = ":fast";
+    
+    private final Context context;
+    private volatile State state;
+    
+    public ModelRegistry(Context context) {
+        this.context = context;
+    }
+    
+    // Model for a crop or alias; throws without touching any model file when there is none
+    public ModelInfo require(String crop) throws IOException {
+        String key = canonical(crop);
+        ModelInfo info = getState().models.get(key);
+        if (info == null) {
+            throw new IOException("Unknown crop: " + crop);
+        }
+        if (!info.hasModel()) {
+            throw new IOException("No model available for " + key + " yet");
+        }
+        return info;
+    }
+    
+    // Like require() but returns null instead of throwing
+    public ModelInfo find(String crop) {
+        ModelInfo info = getState().models.get(canonical(crop));
+        return info != null && info.hasModel() ? info : null;
+    }
+    
+    // First-stage model of a crop's cascade, or null when the crop has none
+    public ModelInfo findFast(String crop) {
+        return find(canonical(crop) + FAST_SUFFIX);
+    }
+    
+    // Crops that have a disease model, sorted
+    public List<String> getAvailableCrops() {
+        List<String> crops = new ArrayList<>();
+        for (ModelInfo info : getState().models.values()) {
+            if (info.hasModel() && !ROUTER.equals(info.crop) && !info.isFastStage()) {
+                crops.add(info.crop);
+            }
+        }
+        Collections.sort(crops);
+        return crops;
+    }
+    
+    public String canonical(String crop) {
+        String key = crop == null ? "" : crop.trim().toLowerCase(Locale.ROOT);
+        String alias = getState().aliases.get(key);
+        return alias != null ? alias : key;
+    }
+    
+    // Re-reads both manifests and returns the crops whose model changed (added, removed or
+    // replaced); callers evict those from the interpreter pool
+    public synchronized List<String> reload() {
+        State previous = state;
+        State next = load();
+        state = next;
+        if (previous == null) {
+            return Collections.emptyList();
+        }
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, ModelInfo> e : next.models.entrySet()) {
+            ModelInfo old = previous.models.get(e.getKey());
+            if (old == null || !old.sameModelAs(e.getValue())) {
+                changed.add(e.getKey());
+            }
+        }
+        for (String crop : previous.models.keySet()) {
+            if (!next.models.containsKey(crop)) {
+                changed.add(crop);
+            }
+        }
+        Log.d(TAG, "🔄 Reloaded model registry, changed: " + changed);
+        return changed;
+    }
+    
+    // { crops: { tomato: { available, version, source, input, fast: {...} }, ... }, router: {...},
+    //   aliases: { maize: "corn" } }
+    public JSONObject toJson() throws JSONException {
+        State current = getState();
+        JSONObject crops = new JSONObject();
+        JSONObject router = null;
+        Map<String, JSONObject> fast = new HashMap<>();
+        for (ModelInfo info : current.models.values()) {
+            JSONObject item = new JSONObject();
+            item.put("available", info.hasModel());
+            item.put("version", info.version);
+            item.put("source", info.baseDir != null ? "storage" : "asset");
+            if (info.inputShape != null) {
+                item.put("input", new JSONArray(info.inputShape));
+            }
+            if (ROUTER.equals(info.crop)) {
+                router = item;
+            } else if (info.isFastStage()) {
+                item.put("threshold", info.threshold);
+                fast.put(info.crop.substring(0, info.crop.length() - FAST_SUFFIX.length()), item);
+            } else {
+                crops.put(info.crop, item);
+            }
+        }
+        for (Map.Entry<String, JSONObject> e : fast.entrySet()) {
+            JSONObject item = crops.optJSONObject(e.getKey());
+            if (item != null) {
+                item.put("fast", e.getValue());
+            }
+        }
+        JSONObject result = new JSONObject();
+        result.put("crops", crops);
+        if (router != null) {
+            result.put("router", router);
+        }
+        result.put("aliases", new JSONObject(current.aliases));
+        return result;
+    }
+    
+    private State getState() {
+        State current = state;
+        if (current == null) {
+            synchronized (this) {
+                current = state;
+                if (current == null) {
+                    current = load();
+                    state = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private State load() {
+        long startNs = System.nanoTime();
+        State loaded = new State();
+        try (InputStream in = context.getAssets().open(MANIFEST)) {
+            parse(new JSONObject(readString(in)), null, loaded);
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "❌ Failed to read " + MANIFEST + ": " + e.getMessage());
+        }
+        
+        File dir = new File(context.getFilesDir(), STORAGE_DIR);
+        File override = new File(dir, MANIFEST);
+        if (override.isFile()) {
+            try (InputStream in = new FileInputStream(override)) {
+                parse(new JSONObject(readString(in)), dir, loaded);
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "❌ Ignoring " + override + ": " + e.getMessage());
+            }
+        }
+        Log.d(TAG, "📋 " + loaded.models.size() + " crops registered in " + (System.nanoTime() - startNs) / 1000 + " us");
+        return loaded;
+    }
+    
+    // Storage entries inherit missing fields from the asset entry and are only accepted
+    // once the model file exists and matches its sha256
+    private static void parse(JSONObject manifest, File baseDir, State into) throws JSONException {
+        JSONObject aliases = manifest.optJSONObject("aliases");
+        if (aliases != null) {
+            Iterator<String> keys = aliases.keys();
+            while (keys.hasNext()) {
+                String alias = keys.next();
+                into.aliases.put(alias.toLowerCase(Locale.ROOT), aliases.getString(alias).toLowerCase(Locale.ROOT));
+            }
+        }
+        
+        JSONObject crops = manifest.getJSONObject("crops");
+        Iterator<String> keys = crops.keys();
+        while (keys.hasNext()) {
+            String name = keys.next();
+            JSONObject crop = crops.getJSONObject(name);
+            put(name.toLowerCase(Locale.ROOT), crop, baseDir, into);
+            JSONObject fast = crop.optJSONObject("fast");
+            if (fast != null) {
+                put(name.toLowerCase(Locale.ROOT) + FAST_SUFFIX, fast, baseDir, into);
+            }
+        }
+        JSONObject router = manifest.optJSONObject(ROUTER);
+        if (router != null) {
+            put(ROUTER, router, baseDir, into);
+        }
+    }
+    
+    private static void put(String crop, JSONObject json, File baseDir, State into) throws JSONException {
+        ModelInfo info = ModelInfo.fromJson(crop, json, baseDir, into.models.get(crop));
+        if (baseDir != null) {
+            try {
+                info.verifyFile();
+            } catch (IOException e) {
+                Log.e(TAG, "❌ Rejected stored model for " + crop + ": " + e.getMessage());
+                return;
+            }
+            Log.d(TAG, "📦 Using stored model for " + crop + " v" + info.version);
+        }
+        into.models.put(crop, info);
+    }
+    
+    private static String readString(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+    
+    private static final class State {
+        final Map<String, ModelInfo> models = new HashMap<>();
+        final Map<String, String> aliases = new HashMap<>();
+    }
+    
+    public static final class ModelInfo {
+        private final String crop;
+        private final String modelPath;
+        private final String labelsPath;
+        private final String version;
+        private final String sha256;
+        private final int[] inputShape;
+        private final TensorSpec.Type inputType;
+        private final ImagePreprocessor preprocessor;
+        // null for APK assets
+        private final File baseDir;
+        private final boolean labelsInAssets;
+        // Fast stages only: lowest top score that is accepted, and the labels allowed to be final
+        // answers (null = all of them)
+        private final float threshold;
+        private final List<String> answers;
+        
+        private ModelInfo(String crop, String modelPath, String labelsPath, String version, String sha256,
+                          int[] inputShape, TensorSpec.Type inputType, float mean, float std, File baseDir,
+                          boolean labelsInAssets, float threshold, List<String> answers) {
+            this.crop = crop;
+            this.modelPath = modelPath;
+            this.labelsPath = labelsPath;
+            this.version = version;
+            this.sha256 = sha256;
+            this.inputShape = inputShape;
+            this.inputType = inputType;
+            this.preprocessor = new ImagePreprocessor(mean, std);
+            this.baseDir = baseDir;
+            this.labelsInAssets = labelsInAssets;
+            this.threshold = threshold;
+            this.answers = answers;
+        }
+        
+        static ModelInfo fromJson(String crop, JSONObject json, File baseDir, ModelInfo inherited) throws JSONException {
+            String modelPath = json.optString("model", null);
+            // A fast stage without its own labels shares the crop's label file (same classes, smaller model)
+            String base = crop.endsWith(FAST_SUFFIX) ? crop.substring(0, crop.length() - FAST_SUFFIX.length()) : crop;
+            String labelsPath = json.optString("labels", inherited != null ? inherited.labelsPath : base + "_labels.txt");
+            // Labels fall back to the APK copy when a stored model doesn't ship its own
+            boolean labelsFromAssets = baseDir != null && !json.has("labels");
+            
+            int[] inputShape = inherited != null ? inherited.inputShape : null;
+            TensorSpec.Type inputType = inherited != null ? inherited.inputType : null;
+            JSONObject input = json.optJSONObject("input");
+            if (input != null) {
+                JSONArray shape = input.optJSONArray("shape");
+                if (shape != null) {
+                    inputShape = new int[shape.length()];
+                    for (int i = 0; i < inputShape.length; i++) {
+                        inputShape[i] = shape.getInt(i);
+                    }
+                }
+                String dtype = input.optString("dtype", null);
+                if (dtype != null) {
+                    try {
+                        inputType = TensorSpec.Type.valueOf(dtype.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new JSONException("Unsupported dtype for " + crop + ": " + dtype);
+                    }
+                }
+            }
+            
+            float mean = inherited != null ? inherited.preprocessor.getMean() : 127.5f;
+            float std = inherited != null ? inherited.preprocessor.getStd() : 127.5f;
+            JSONObject normalization = json.optJSONObject("normalization");
+            if (normalization != null) {
+                mean = (float) normalization.optDouble("mean", mean);
+                std = (float) normalization.optDouble("std", std);
+            }
+            
+            float threshold = (float) json.optDouble("threshold", inherited != null ? inherited.threshold : 0.9);
+            List<String> answers = inherited != null ? inherited.answers : null;
+            JSONArray answerLabels = json.optJSONArray("answers");
+            if (answerLabels != null) {
+                answers = new ArrayList<>();
+                for (int i = 0; i < answerLabels.length(); i++) {
+                    answers.add(answerLabels.getString(i));
+                }
+            }
+            
+            return new ModelInfo(crop, modelPath, labelsPath, json.optString("version", "0"),
+                    json.optString("sha256", null), inputShape, inputType, mean, std, baseDir, labelsFromAssets,
+                    threshold, answers);
+        }
+        
+        public String getCrop() {
+            return crop;
+        }
+        
+        public String getVersion() {
+            return version;
+        }
+        
+        // Identifies this exact model file, e.g. for per-model tuning results
+        public String getModelKey() {
+            return crop + "@" + (sha256 != null ? sha256.substring(0, Math.min(12, sha256.length())) : "v" + version);
+        }
+        
+        public boolean hasModel() {
+            return modelPath != null;
+        }
+        
+        public boolean isFastStage() {
+            return crop.endsWith(FAST_SUFFIX);
+        }
+        
+        // Manifest threshold of a fast stage
+        public float getThreshold() {
+            return threshold;
+        }
+        
+        // Whether a fast stage may give label as the final answer; e.g. a healthy/diseased model
+        // answers "Tomato_healthy" but always escalates "diseased"
+        public boolean canAnswer(String label) {
+            return answers == null || answers.contains(label);
+        }
+        
+        public boolean isFromStorage() {
+            return baseDir != null;
+        }
+        
+        public String getModelPath() {
+            return modelPath;
+        }
+        
+        public File getModelFile() {
+            return new File(baseDir, modelPath);
+        }
+        
+        public ImagePreprocessor getPreprocessor() {
+            return preprocessor;
+        }
+        
+        // Longest input edge from the manifest, or fallback when the manifest has no shape
+        public int getInputEdge(int fallback) {
+            return inputShape != null && inputShape.length == 4 ? Math.max(inputShape[1], inputShape[2]) : fallback;
+        }
+        
+        public InputStream openLabels(AssetManager assets) throws IOException {
+            return baseDir != null && !labelsInAssets
+                    ? new FileInputStream(new File(baseDir, labelsPath))
+                    : assets.open(labelsPath);
+        }
+        
+        // Fails when the loaded model's input disagrees with the manifest (batch size is ignored)
+        public void checkInput(TensorSpec actual) throws IOException {
+            if (inputType != null && inputType != actual.getType()) {
+                throw new IOException(crop + " model input is " + actual.getType() + ", manifest says " + inputType);
+            }
+            int[] shape = actual.getShape();
+            if (inputShape != null && (inputShape.length != shape.length
+                    || !Arrays.equals(Arrays.copyOfRange(inputShape, 1, inputShape.length),
+                            Arrays.copyOfRange(shape, 1, shape.length)))) {
+                throw new IOException(crop + " model input is " + Arrays.toString(shape)
+                        + ", manifest says " + Arrays.toString(inputShape));
+            }
+        }
+        
+        boolean sameModelAs(ModelInfo other) {
+            return equalsNullable(modelPath, other.modelPath) && equalsNullable(sha256, other.sha256)
+                    && equalsNullable(version, other.version) && equalsNullable(baseDir, other.baseDir);
+        }
+        
+        void verifyFile() throws IOException {
+            if (modelPath == null) {
+                throw new IOException("no model file listed");
+            }
+            if (sha256 == null) {
+                throw new IOException("stored models need a sha256");
+            }
+            File file = getModelFile();
+            if (!file.isFile()) {
+                throw new IOException(file + " not found");
+            }
+            String actual = sha256Of(file);
+            if (!actual.equalsIgnoreCase(sha256)) {
+                throw new IOException("sha256 mismatch for " + file.getName() + ": " + actual);
+            }
+        }
+        
+        private static String sha256Of(File file) throws IOException {
+            try (InputStream in = new FileInputStream(file)) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+                StringBuilder hex = new StringBuilder();
+                for (byte b : digest.digest()) {
+                    hex.append(String.format(Locale.ROOT, "%02x", b));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+        }
+        
+        private static boolean equalsNullable(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
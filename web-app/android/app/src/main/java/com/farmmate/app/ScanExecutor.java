@@ -0,0 +1,124 @@
+package com.farmmate.app;
+
+import android.os.Process;
+import android.util.Log;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded executor for scan requests keyed by a JS-supplied request id.
+ * When the queue is full the oldest waiting request is dropped in favour of
+ * the newest, so repeated taps on "scan" coalesce instead of piling up.
+ * Cancelled requests never deliver a result, even if inference already ran.
+ */
+public class ScanExecutor {
+    private static final String TAG = "ScanExecutor";
+    // Scans are user-initiated and on the critical path; BACKGROUND would confine them to
+    // little cores on big.LITTLE devices
+    static final int SCAN_PRIORITY = Process.THREAD_PRIORITY_DEFAULT;
+    
+    // Called on the worker thread; never called for cancelled requests
+    public interface Listener {
+        void onResult(String requestId, String result);
+        void onDropped(String requestId, String reason);
+    }
+    
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ScanTask> tasks = new ConcurrentHashMap<>();
+    private final Listener listener;
+    
+    public ScanExecutor(int workers, int maxPending, Listener listener) {
+        this.listener = listener;
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(maxPending),
+                runnable -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(SCAN_PRIORITY);
+                        runnable.run();
+                    }, "farmmate-scan");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    // Queue full: drop the oldest waiting scan and retry with the new one
+                    Runnable oldest = pool.getQueue().poll();
+                    if (oldest instanceof ScanTask) {
+                        ScanTask dropped = (ScanTask) oldest;
+                        dropped.cancel(false);
+                        tasks.remove(dropped.requestId, dropped);
+                        notifyDropped(dropped.requestId, "superseded");
+                    }
+                    if (pool.isShutdown() || !pool.getQueue().offer(runnable)) {
+                        ScanTask rejected = (ScanTask) runnable;
+                        tasks.remove(rejected.requestId, rejected);
+                        notifyDropped(rejected.requestId, "rejected");
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+    
+    public void submit(String requestId, Callable<String> work) {
+        ScanTask task = new ScanTask(requestId, work);
+        ScanTask previous = tasks.put(requestId, task);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        executor.execute(task);
+    }
+    
+    // Returns false if the request already finished or was never submitted
+    public boolean cancel(String requestId) {
+        ScanTask task = tasks.remove(requestId);
+        if (task == null) {
+            return false;
+        }
+        boolean cancelled = task.cancel(true);
+        executor.remove(task);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🛑 Cancel " + requestId + ": " + cancelled);
+        }
+        return cancelled;
+    }
+    
+    public int getPendingCount() {
+        return executor.getQueue().size();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+        tasks.clear();
+    }
+    
+    private void notifyDropped(String requestId, String reason) {
+        Log.w(TAG, "⚠️ Scan " + requestId + " dropped: " + reason);
+        listener.onDropped(requestId, reason);
+    }
+    
+    private class ScanTask extends FutureTask<String> {
+        final String requestId;
+        
+        ScanTask(String requestId, Callable<String> work) {
+            super(work);
+            this.requestId = requestId;
+        }
+        
+        @Override
+        protected void done() {
+            tasks.remove(requestId, this);
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                listener.onResult(requestId, get());
+            } catch (InterruptedException | ExecutionException e) {
+                notifyDropped(requestId, "failed");
+            }
+        }
+    }
+}
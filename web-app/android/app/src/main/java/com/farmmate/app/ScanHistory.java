@@ -0,0 +1,465 @@
+package com.farmmate.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.util.Log;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-device scan history (SQLite, databases/scan_history.db, thumbnails as JPEG files).
+ * Scans are queued and written by one background thread in batched transactions, so the
+ * bridge and UI threads never wait on disk. Pages are keyset-paginated by id and export
+ * streams a page at a time, so neither ever holds the whole table in memory.
+ */
+public class ScanHistory {
+    private static final String TAG = "ScanHistory";
+    private static final String DB_NAME = "scan_history.db";
+    private static final String PREFS_NAME = "farmmate_history";
+    private static final String PREF_COMPACTED_AT = "compacted_at";
+    private static final int DB_VERSION = 1;
+    // Written after this many queued scans or FLUSH_DELAY_MS after the first, whichever is sooner
+    private static final int BATCH_SIZE = 16;
+    private static final long FLUSH_DELAY_MS = 2000;
+    // compact() keeps the newest MAX_RECORDS scans; compactIfDue() runs it at most once a day
+    private static final int MAX_RECORDS = 5000;
+    private static final long COMPACT_INTERVAL_MS = 24L * 60 * 60 * 1000;
+    // VACUUM rewrites the whole file, so only when at least this share of its pages is free
+    private static final double VACUUM_FREE_FRACTION = 0.25;
+    private static final int MAX_PAGE = 100;
+    private static final int EXPORT_PAGE = 200;
+    public static final int THUMBNAIL_EDGE = 160;
+    
+    private static final String[] SCHEMA = {
+        // One row per scan; predictions_json holds the top-K as [{ label, confidence }]
+        "CREATE TABLE IF NOT EXISTS scan_history ("
+            + " id INTEGER PRIMARY KEY AUTOINCREMENT,"
+            + " scanned_at INTEGER NOT NULL,"   // epoch ms
+            + " crop_name TEXT NOT NULL,"
+            + " disease_key TEXT NOT NULL,"     // top-1 label
+            + " confidence INTEGER NOT NULL,"   // top-1, percent
+            + " predictions_json TEXT NOT NULL,"
+            + " model_version TEXT,"            // ModelInfo.getModelKey(), e.g. tomato@555d9a4fcc67
+            + " thumbnail_ref TEXT"             // file name under files/history_thumbs, null if none
+            + ")",
+        // Keyset pages filtered by crop walk this index instead of scanning the table
+        "CREATE INDEX IF NOT EXISTS idx_history_crop ON scan_history (crop_name, id)"
+    };
+    private static final String INSERT = "INSERT INTO scan_history (scanned_at, crop_name, disease_key, confidence,"
+            + " predictions_json, model_version, thumbnail_ref) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String COLUMNS = "id, scanned_at, crop_name, disease_key, confidence, predictions_json,"
+            + " model_version, thumbnail_ref";
+    
+    private final Helper helper;
+    private final SharedPreferences prefs;
+    private final File thumbnailDir;
+    private final File exportDir;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "farmmate-history");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Guarded by itself
+    private final List<Record> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    
+    public ScanHistory(Context context) {
+        this.helper = new Helper(context);
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.thumbnailDir = new File(context.getFilesDir(), "history_thumbs");
+        File external = context.getExternalFilesDir(null);
+        this.exportDir = external != null ? external : context.getFilesDir();
+    }
+    
+    // Queues one scan; thumbnail should already be small (THUMBNAIL_EDGE) and may be null.
+    // Never blocks on disk.
+    public void record(ClassificationResult result, String modelVersion, Bitmap thumbnail) {
+        Record record = new Record(System.currentTimeMillis(), result, modelVersion, thumbnail);
+        synchronized (pending) {
+            pending.add(record);
+            if (pending.size() >= BATCH_SIZE) {
+                flushScheduled = true;
+                execute(this::flush);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                if (!writer.isShutdown()) {
+                    writer.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+    
+    // Newest first. beforeId <= 0 starts at the newest scan; crop may be null for all crops.
+    // { items: [...], next_before_id } where next_before_id is -1 on the last page.
+    public JSONObject page(long beforeId, int limit, String crop) throws IOException, JSONException {
+        awaitPendingWrites();
+        int size = Math.max(1, Math.min(MAX_PAGE, limit));
+        StringBuilder where = new StringBuilder("id < ?");
+        List<String> args = new ArrayList<>();
+        args.add(Long.toString(beforeId > 0 ? beforeId : Long.MAX_VALUE));
+        if (crop != null && !crop.isEmpty()) {
+            where.append(" AND crop_name = ?");
+            args.add(crop);
+        }
+        JSONArray items = new JSONArray();
+        long lastId = -1;
+        SQLiteDatabase db = helper.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMNS + " FROM scan_history WHERE " + where
+                + " ORDER BY id DESC LIMIT " + size, args.toArray(new String[0]))) {
+            while (cursor.moveToNext()) {
+                items.put(toJson(cursor));
+                lastId = cursor.getLong(0);
+            }
+        }
+        JSONObject json = new JSONObject();
+        json.put("items", items);
+        json.put("next_before_id", items.length() == size ? lastId : -1);
+        return json;
+    }
+    
+    // JPEG bytes of a scan's thumbnail, or null
+    public byte[] readThumbnail(long id) throws IOException {
+        awaitPendingWrites();
+        String ref;
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT thumbnail_ref FROM scan_history WHERE id = ?", new String[] {Long.toString(id)})) {
+            ref = cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+        File file = ref != null ? new File(thumbnailDir, ref) : null;
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        // java.nio.file needs API 26
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) file.length());
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return bytes.toByteArray();
+    }
+    
+    public void delete(long id) {
+        execute(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            String ref = null;
+            try (Cursor cursor = db.rawQuery("SELECT thumbnail_ref FROM scan_history WHERE id = ?",
+                    new String[] {Long.toString(id)})) {
+                if (cursor.moveToFirst()) {
+                    ref = cursor.getString(0);
+                }
+            }
+            db.delete("scan_history", "id = ?", new String[] {Long.toString(id)});
+            if (ref != null) {
+                new File(thumbnailDir, ref).delete();
+            }
+        });
+    }
+    
+    // Keeps the newest MAX_RECORDS scans, deletes thumbnails no row refers to and vacuums the
+    // file when enough of it is free. Runs on the writer thread; the callback gets
+    // { removed_records, removed_thumbnails, vacuumed } or null on failure.
+    public void compact(Callback callback) {
+        execute(() -> callback.onDone(compactNow()));
+    }
+    
+    // compact() for app start: skipped when the last compaction was under COMPACT_INTERVAL_MS
+    // ago, so launches don't pay for it. The callback gets null when skipped.
+    public void compactIfDue(Callback callback) {
+        execute(() -> {
+            long last = prefs.getLong(PREF_COMPACTED_AT, 0);
+            long now = System.currentTimeMillis();
+            callback.onDone(now - last >= COMPACT_INTERVAL_MS || now < last ? compactNow() : null);
+        });
+    }
+    
+    // Writer thread only
+    private JSONObject compactNow() {
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            int removed = db.delete("scan_history", "id <= (SELECT id FROM scan_history ORDER BY id DESC"
+                    + " LIMIT 1 OFFSET " + MAX_RECORDS + ")", null);
+            Set<String> referenced = new HashSet<>();
+            try (Cursor cursor = db.rawQuery(
+                    "SELECT thumbnail_ref FROM scan_history WHERE thumbnail_ref IS NOT NULL", null)) {
+                while (cursor.moveToNext()) {
+                    referenced.add(cursor.getString(0));
+                }
+            }
+            int orphans = 0;
+            File[] files = thumbnailDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!referenced.contains(file.getName()) && file.delete()) {
+                        orphans++;
+                    }
+                }
+            }
+            long freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+            long pages = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+            boolean vacuum = pages > 0 && freePages >= pages * VACUUM_FREE_FRACTION;
+            if (vacuum) {
+                db.execSQL("VACUUM");
+            }
+            prefs.edit().putLong(PREF_COMPACTED_AT, System.currentTimeMillis()).apply();
+            Log.d(TAG, "🧹 Compacted history: " + removed + " scans, " + orphans + " thumbnails removed"
+                    + (vacuum ? ", vacuumed " + freePages + "/" + pages + " free pages" : ""));
+            JSONObject json = new JSONObject();
+            json.put("removed_records", removed);
+            json.put("removed_thumbnails", orphans);
+            json.put("vacuumed", vacuum);
+            return json;
+        } catch (RuntimeException | JSONException e) {
+            Log.e(TAG, "❌ Compaction failed: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Streams every scan with id > afterId (oldest first) to a JSON Lines file for sync,
+    // EXPORT_PAGE rows at a time. Runs on the writer thread; the callback gets
+    // { path, count, last_id } (last_id is the afterId for the next incremental export) or null.
+    public void exportJsonLines(long afterId, Callback callback) {
+        execute(() -> {
+            JSONObject json = null;
+            File file = new File(exportDir, "scan_history_" + System.currentTimeMillis() + ".jsonl");
+            try (OutputStream out = new FileOutputStream(file);
+                 Writer lines = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"))) {
+                SQLiteDatabase db = helper.getReadableDatabase();
+                long lastId = Math.max(0, afterId);
+                int count = 0;
+                int rows;
+                do {
+                    rows = 0;
+                    try (Cursor cursor = db.rawQuery("SELECT " + COLUMNS + " FROM scan_history WHERE id > ?"
+                            + " ORDER BY id LIMIT " + EXPORT_PAGE, new String[] {Long.toString(lastId)})) {
+                        while (cursor.moveToNext()) {
+                            lines.write(toJson(cursor).toString());
+                            lines.write('\n');
+                            lastId = cursor.getLong(0);
+                            rows++;
+                        }
+                    }
+                    count += rows;
+                } while (rows == EXPORT_PAGE);
+                lines.flush();
+                Log.d(TAG, "📤 Exported " + count + " scans to " + file.getAbsolutePath());
+                json = new JSONObject();
+                json.put("path", file.getAbsolutePath());
+                json.put("count", count);
+                json.put("last_id", lastId);
+            } catch (IOException | RuntimeException | JSONException e) {
+                Log.e(TAG, "❌ Export failed: " + e.getMessage());
+            }
+            callback.onDone(json);
+        });
+    }
+    
+    // Writes whatever is queued and closes the database; called when the activity is destroyed
+    public void close() {
+        execute(() -> {
+            flush();
+            helper.close();
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public interface Callback {
+        void onDone(JSONObject result);
+    }
+    
+    // Reads wait for queued scans so a page right after a scan includes it
+    private void awaitPendingWrites() throws IOException {
+        synchronized (pending) {
+            if (pending.isEmpty() || writer.isShutdown()) {
+                return;
+            }
+        }
+        try {
+            writer.submit(this::flush).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving history");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+    
+    private void execute(Runnable task) {
+        if (!writer.isShutdown()) {
+            writer.execute(task);
+        }
+    }
+    
+    // Writer thread only: one transaction for the whole queue. Thumbnails are encoded
+    // before it starts so the transaction only covers the inserts.
+    private void flush() {
+        List<Record> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startNs = System.nanoTime();
+        String[] refs = new String[batch.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = writeThumbnail(batch.get(i));
+        }
+        SQLiteDatabase db = helper.getWritableDatabase();
+        boolean saved = false;
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(INSERT)) {
+            for (int i = 0; i < refs.length; i++) {
+                Record record = batch.get(i);
+                insert.clearBindings();
+                insert.bindLong(1, record.scannedAt);
+                insert.bindString(2, record.result.getCrop());
+                insert.bindString(3, record.result.getTopLabel());
+                insert.bindLong(4, Math.round(record.result.getTopScore() * 100));
+                insert.bindString(5, record.predictionsJson());
+                if (record.modelVersion != null) {
+                    insert.bindString(6, record.modelVersion);
+                }
+                if (refs[i] != null) {
+                    insert.bindString(7, refs[i]);
+                }
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+            saved = true;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "❌ Failed to save " + batch.size() + " scans: " + e.getMessage());
+        } finally {
+            db.endTransaction();
+        }
+        if (!saved) {
+            // The rows were rolled back, so nothing refers to these files
+            for (String ref : refs) {
+                if (ref != null) {
+                    new File(thumbnailDir, ref).delete();
+                }
+            }
+            return;
+        }
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "💾 Saved " + batch.size() + " scans in " + (System.nanoTime() - startNs) / 1000 + " us");
+        }
+    }
+    
+    // File name under thumbnailDir, or null when there is no thumbnail or it couldn't be written
+    private String writeThumbnail(Record record) {
+        if (record.thumbnail == null) {
+            return null;
+        }
+        if (!thumbnailDir.isDirectory() && !thumbnailDir.mkdirs()) {
+            return null;
+        }
+        String name = record.scannedAt + "_" + Integer.toHexString(System.identityHashCode(record)) + ".jpg";
+        try (OutputStream out = new FileOutputStream(new File(thumbnailDir, name))) {
+            record.thumbnail.compress(Bitmap.CompressFormat.JPEG, 75, out);
+            return name;
+        } catch (IOException e) {
+            Log.w(TAG, "⚠️ Thumbnail not saved: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private static JSONObject toJson(Cursor cursor) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("id", cursor.getLong(0));
+        json.put("scanned_at", cursor.getLong(1));
+        json.put("crop", cursor.getString(2));
+        json.put("disease", cursor.getString(3));
+        json.put("confidence", cursor.getInt(4));
+        json.put("predictions", new JSONArray(cursor.getString(5)));
+        json.put("model_version", cursor.isNull(6) ? JSONObject.NULL : cursor.getString(6));
+        json.put("has_thumbnail", !cursor.isNull(7));
+        return json;
+    }
+    
+    private static final class Record {
+        final long scannedAt;
+        final ClassificationResult result;
+        final String modelVersion;
+        final Bitmap thumbnail;
+        
+        Record(long scannedAt, ClassificationResult result, String modelVersion, Bitmap thumbnail) {
+            this.scannedAt = scannedAt;
+            this.result = result;
+            this.modelVersion = modelVersion;
+            this.thumbnail = thumbnail;
+        }
+        
+        // [{ label, confidence }] in rank order
+        String predictionsJson() {
+            JSONArray predictions = new JSONArray();
+            try {
+                for (int i = 0; i < result.size(); i++) {
+                    JSONObject prediction = new JSONObject();
+                    prediction.put("label", result.getLabel(i));
+                    prediction.put("confidence", Math.round(result.getScore(i) * 100));
+                    predictions.put(prediction);
+                }
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+            return predictions.toString();
+        }
+    }
+    
+    private static final class Helper extends SQLiteOpenHelper {
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+        }
+        
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            for (String statement : SCHEMA) {
+                db.execSQL(statement);
+            }
+        }
+        
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Only one version so far
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.farmmate.app;
+
+import android.content.Context;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Size-bounded disk cache of synthesized advice audio (files/tts_cache, AAC in .m4a).
+ * Files are named by disease, language and a hash of the spoken text, so edited advice gets
+ * new audio and the old file just ages out; the least recently played go first.
+ */
+public class SpeechCache {
+    private static final String DIR = "tts_cache";
+    private static final String SUFFIX = ".m4a";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // About 30 minutes of speech at 32 kbps, i.e. every disease in all three languages
+    private static final long MAX_BYTES = 16L * 1024 * 1024;
+    
+    private final File dir;
+    
+    public SpeechCache(Context context) {
+        this.dir = new File(context.getFilesDir(), DIR);
+    }
+    
+    // e.g. Tomato_Early_blight-hi-3f9a1c0d52be
+    public static String key(String disease, String language, String text) {
+        String name = disease.replaceAll("[^A-Za-z0-9]+", "_");
+        if (name.length() > 48) {
+            name = name.substring(0, 48);
+        }
+        return name + "-" + language.toLowerCase(Locale.ROOT) + "-" + sha256Of(text).substring(0, 12);
+    }
+    
+    // Cached audio for key, marked as just played; null on a miss
+    public File get(String key) {
+        File file = file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+    
+    public boolean contains(String key) {
+        return file(key).isFile();
+    }
+    
+    // Scratch file next to the cache, so put() is a rename on the same filesystem
+    public File tempFile(String key, String extension) {
+        dir.mkdirs();
+        return new File(dir, key + extension + TEMP_SUFFIX);
+    }
+    
+    public void put(String key, File audio) throws IOException {
+        if (!audio.renameTo(file(key))) {
+            throw new IOException("Cannot move " + audio.getName() + " into " + DIR);
+        }
+        trim();
+    }
+    
+    // Leftovers from a render interrupted by process death
+    public void deleteTempFiles() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                file.delete();
+            }
+        }
+    }
+    
+    public synchronized long getByteCount() {
+        long bytes = 0;
+        for (File file : listAudio()) {
+            bytes += file.length();
+        }
+        return bytes;
+    }
+    
+    // Deletes least recently played files until the rest fit in MAX_BYTES
+    private synchronized void trim() {
+        List<File> files = listAudio();
+        Collections.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        long bytes = 0;
+        for (File file : files) {
+            bytes += file.length();
+            if (bytes > MAX_BYTES) {
+                file.delete();
+            }
+        }
+    }
+    
+    private List<File> listAudio() {
+        File[] files = dir.listFiles((parent, name) -> name.endsWith(SUFFIX));
+        return files != null ? new ArrayList<>(Arrays.asList(files)) : new ArrayList<>();
+    }
+    
+    private File file(String key) {
+        return new File(dir, key + SUFFIX);
+    }
+    
+    private static String sha256Of(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(text.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format(Locale.ROOT, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.farmmate.app;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs startup work on a single low-priority background thread, optionally
+ * deferred until the main looper goes idle (i.e. the WebView has finished
+ * its first layout and script work) so warm-up never competes with first paint.
+ */
+public class StartupScheduler {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "farmmate-startup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public void runInBackground(Runnable task) {
+        if (!executor.isShutdown()) {
+            executor.execute(task);
+        }
+    }
+    
+    // Must be called on the main thread
+    public void runWhenIdle(Runnable task) {
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                runInBackground(task);
+                return false; // one-shot
+            }
+        });
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
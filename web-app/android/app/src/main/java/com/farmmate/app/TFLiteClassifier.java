@@ -1,270 +1,716 @@
 package com.farmmate.app;
 
+import android.app.ActivityManager;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.util.Log;
 import org.tensorflow.lite.Interpreter;
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class TFLiteClassifier {
+public class TFLiteClassifier implements InterpreterPool.ModelSource, MemoryGovernor.Consumer {
     private static final String TAG = "TFLiteClassifier";
-    private static final int IMAGE_SIZE = 224;
-    private static final int NUM_CHANNELS = 3;
-    private static final int NUM_BYTES_PER_CHANNEL = 4; // Float
-    private static final int BATCH_SIZE = 1;
+    // Input edge for crops whose manifest entry has no shape; the real size is read from each model's input tensor
+    public static final int IMAGE_SIZE = 256;
+    // Larger batches are split so the input tensor stays a few MB at most
+    public static final int MAX_BATCH_SIZE = 8;
+    private static final int INTERPRETERS_PER_CROP = 2;
+    // Probability vectors are ~100 bytes each, so the entry cap is what normally binds
+    private static final int RESULT_CACHE_ENTRIES = 64;
+    private static final long RESULT_CACHE_BYTES = 64 * 1024;
+    private static final Paint FILTER_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
     
-    private Interpreter tflite;
-    private List<String> labels = new ArrayList<>();
+    private final InterpreterPool interpreterPool;
+    private final ResultCache resultCache = new ResultCache(RESULT_CACHE_ENTRIES, RESULT_CACHE_BYTES);
+    private final ModelRegistry registry;
+    private final InferenceTuner tuner;
+    private final ThreadLocal<InputBuffers> inputBuffers = new ThreadLocal<InputBuffers>() {
+        @Override
+        protected InputBuffers initialValue() {
+            return new InputBuffers();
+        }
+    };
+    private final ScanMetrics metrics;
+    // Last measured inference time per batch item, by crop
+    private final Map<String, Long> itemInferenceUs = new ConcurrentHashMap<>();
+    // Asset paths of compressed models that had to be copied instead of mapped
+    private final Set<String> copiedModels = ConcurrentHashMap.newKeySet();
+    private volatile float temperature = 1f;
     private Context context;
     
     public TFLiteClassifier(Context context) {
+        this(context, ScanMetrics.NONE);
+    }
+    
+    public TFLiteClassifier(Context context, ScanMetrics metrics) {
+        this(context, defaultMaxModels(context), INTERPRETERS_PER_CROP, metrics);
+    }
+    
+    public TFLiteClassifier(Context context, int maxModels, int interpretersPerCrop, ScanMetrics metrics) {
         this.context = context;
-        Log.d(TAG, "✅ TFLiteClassifier initialized");
+        this.metrics = metrics;
+        this.registry = new ModelRegistry(context);
+        this.tuner = new InferenceTuner(context);
+        this.interpreterPool = new InterpreterPool(this, maxModels, interpretersPerCrop);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "✅ TFLiteClassifier initialized (models: " + maxModels + ", interpreters/crop: " + interpretersPerCrop + ")");
+        }
     }
     
-    public String[] classifyImage(Bitmap bitmap, String cropType) {
-        Log.d(TAG, "==============================================");
-        Log.d(TAG, "🤖 classifyImage() called");
-        Log.d(TAG, "🌱 Crop type: " + cropType);
-        Log.d(TAG, "📐 Bitmap size: " + bitmap.getWidth() + "x" + bitmap.getHeight());
-        
-        try {
-            // Load model and labels for the specific crop
-            Log.d(TAG, "🔍 Loading model for crop: " + cropType);
-            loadModel(cropType);
-            
-            if (tflite == null) {
-                Log.e(TAG, "❌ Model not loaded for crop: " + cropType);
-                return new String[]{"Model not loaded", "0.0"};
+    // Low-RAM devices keep a single model resident, everything else keeps two
+    private static int defaultMaxModels(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return am != null && am.isLowRamDevice() ? 1 : 2;
+    }
+    
+    // Canonical crop key (aliases resolved); throws for unknown crops and crops without a model
+    // before any image is decoded or any model file is opened
+    public String resolveCrop(String cropType) throws IOException {
+        return registry.require(cropType).getCrop();
+    }
+    
+    // Edge the crop's model expects, so callers can decode images no larger than needed
+    public int getInputEdge(String cropType) {
+        ModelRegistry.ModelInfo info = registry.find(cropType);
+        return info != null ? info.getInputEdge(IMAGE_SIZE) : IMAGE_SIZE;
+    }
+    
+    // Picks up models added or replaced under files/models; the next scan of a changed crop
+    // loads the new model, scans already holding an interpreter finish on the old one
+    public List<String> reloadModels() {
+        List<String> changed = registry.reload();
+        for (String crop : changed) {
+            interpreterPool.evict(crop);
+        }
+        if (!changed.isEmpty()) {
+            resultCache.clear();
+        }
+        return changed;
+    }
+    
+    public ModelRegistry getModelRegistry() {
+        return registry;
+    }
+    
+    // Benchmarks thread counts and XNNPACK for the crop's model (blocks for a few seconds), stores
+    // the fastest, and drops the crop's pooled interpreters if they were created with other settings
+    public InferenceTuner.Config calibrate(String cropType) throws IOException {
+        ModelRegistry.ModelInfo info = registry.require(cropType);
+        InferenceTuner.Config before = tuner.get(info.getModelKey());
+        InferenceTuner.Config config = tuner.calibrate(info.getModelKey(), loadModel(info.getCrop()));
+        if (!config.sameSettingsAs(before)) {
+            interpreterPool.evict(info.getCrop());
+        }
+        return config;
+    }
+    
+    // Calibrates every registered model (the router and fast stages included) that has no stored
+    // result yet, or all of them when force is set; returns the crops that were calibrated
+    public List<String> calibrateAll(boolean force) {
+        if (force) {
+            tuner.clear();
+        }
+        List<String> crops = new ArrayList<>(registry.getAvailableCrops());
+        for (String crop : registry.getAvailableCrops()) {
+            if (registry.findFast(crop) != null) {
+                crops.add(crop + ModelRegistry.FAST_SUFFIX);
             }
-            
-            Log.d(TAG, "✅ Model loaded successfully");
-            Log.d(TAG, "🔄 Preprocessing image...");
-            
-            // Preprocess the image
-            ByteBuffer inputBuffer = convertBitmapToByteBuffer(bitmap);
-            
-            Log.d(TAG, "▶️ Running inference...");
-            
-            // Run inference
-            float[][] output = new float[1][labels.size()];
-            tflite.run(inputBuffer, output);
-            
-            Log.d(TAG, "✅ Inference complete");
-            Log.d(TAG, "📊 Number of labels: " + labels.size());
-            
-            // Get top prediction
-            float[] probabilities = output[0];
-            
-            // Log all probabilities for debugging
-            for (int i = 0; i < Math.min(5, probabilities.length); i++) {
-                Log.d(TAG, "   Label[" + i + "]: " + labels.get(i) + " = " + probabilities[i]);
+        }
+        if (registry.find(ModelRegistry.ROUTER) != null) {
+            crops.add(ModelRegistry.ROUTER);
+        }
+        List<String> calibrated = new ArrayList<>();
+        for (String crop : crops) {
+            ModelRegistry.ModelInfo info = registry.find(crop);
+            if (info == null || tuner.isCalibrated(info.getModelKey())) {
+                continue;
             }
+            try {
+                calibrate(crop);
+                calibrated.add(crop);
+            } catch (IOException e) {
+                Log.e(TAG, "❌ Calibration failed for " + crop + ": " + e.getMessage());
+            }
+        }
+        return calibrated;
+    }
+    
+    public InferenceTuner getTuner() {
+        return tuner;
+    }
+    
+    // How many crops' models can be resident at once
+    public int getMaxModels() {
+        return interpreterPool.getMaxModels();
+    }
+    
+    // Top-k predictions for one image; throws if the crop's model can't be loaded
+    public ClassificationResult classifyImage(Bitmap bitmap, String cropType, int k) throws IOException {
+        String cropKey = resolveCrop(cropType);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🤖 classifyImage() crop: " + cropKey + ", bitmap: " + bitmap.getWidth() + "x" + bitmap.getHeight());
+        }
+        
+        try (InterpreterPool.Lease lease = acquire(cropKey, metrics)) {
+            // Preprocess and run inference
+            float[] probabilities = runBatch(lease, Collections.singletonList(bitmap), null, null, metrics,
+                    resultCache)[0];
+            ClassificationResult result = ClassificationResult.fromProbabilities(cropKey, lease.getLabels(), probabilities, k);
             
-            int maxIndex = getMaxIndex(probabilities);
-            float confidence = probabilities[maxIndex];
-            
-            String diseaseName = labels.get(maxIndex);
-            
-            Log.d(TAG, "🎯 TOP PREDICTION:");
-            Log.d(TAG, "   Disease: " + diseaseName);
-            Log.d(TAG, "   Confidence: " + confidence + " (" + (confidence * 100) + "%)");
-            Log.d(TAG, "   Index: " + maxIndex);
-            
-            return new String[]{diseaseName, String.valueOf(confidence)};
-            
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Error classifying image: " + e.getMessage(), e);
-            e.printStackTrace();
-            return new String[]{"Error: " + e.getMessage(), "0.0"};
-        } finally {
-            // Close interpreter to free memory
-            if (tflite != null) {
-                Log.d(TAG, "🗑️ Closing interpreter...");
-                tflite.close();
-                tflite = null;
-                labels.clear();
-                Log.d(TAG, "✅ Interpreter closed");
+            if (DebugLog.ENABLED) {
+                for (int i = 0; i < result.size(); i++) {
+                    Log.d(TAG, "🎯 #" + (i + 1) + " " + result.getLabel(i) + " = " + result.getScore(i));
+                }
             }
+            return result;
         }
     }
     
-    private void loadModel(String cropType) throws IOException {
-        // FIX: Ensure consistent naming
-        String modelFile;
-        String labelFile;
+    // Runs several images of the same crop through one interpreter, MAX_BATCH_SIZE at a time
+    public BatchResult classifyImages(List<Bitmap> bitmaps, String cropType) throws IOException {
+        String cropKey = resolveCrop(cropType);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🤖 classifyImages() called with " + bitmaps.size() + " images, crop: " + cropKey);
+        }
         
-        // Map crop names to file names
-        if ("corn".equalsIgnoreCase(cropType) || "maize".equalsIgnoreCase(cropType)) {
-            modelFile = "corn_model.tflite";
-            labelFile = "corn_labels.txt";
-            Log.d(TAG, "🌽 Mapping crop '" + cropType + "' to corn model");
-        } else if ("potato".equalsIgnoreCase(cropType)) {
-            modelFile = "potato_model.tflite";
-            labelFile = "potato_labels.txt";
-        } else if ("rice".equalsIgnoreCase(cropType)) {
-            modelFile = "rice_model.tflite";
-            labelFile = "rice_labels.txt";
-        } else if ("tomato".equalsIgnoreCase(cropType)) {
-            modelFile = "tomato_model.tflite";
-            labelFile = "tomato_labels.txt";
-        } else {
-            // Default to tomato if unknown crop
-            modelFile = "tomato_model.tflite";
-            labelFile = "tomato_labels.txt";
-            Log.w(TAG, "⚠️ Unknown crop '" + cropType + "', defaulting to tomato");
+        try (InterpreterPool.Lease lease = acquire(cropKey, metrics)) {
+            float[][] probabilities = runBatch(lease, bitmaps, null, null, metrics, resultCache);
+            return new BatchResult(lease.getLabels(), probabilities);
+        }
+    }
+    
+    // Runs regions (tiles) of one bitmap as one batch; each is scaled straight to the model's input
+    public BatchResult classifyRegions(Bitmap bitmap, List<LeafMap.Region> regions, String cropType) throws IOException {
+        String cropKey = resolveCrop(cropType);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🤖 classifyRegions() called with " + regions.size() + " regions, crop: " + cropKey);
         }
         
-        Log.d(TAG, "📦 Loading model: " + modelFile);
-        Log.d(TAG, "🏷️ Loading labels: " + labelFile);
+        try (InterpreterPool.Lease lease = acquire(cropKey, metrics)) {
+            float[][] probabilities = runBatch(lease, Collections.nCopies(regions.size(), bitmap), regions, null,
+                    metrics, resultCache);
+            return new BatchResult(lease.getLabels(), probabilities);
+        }
+    }
+    
+    // Runs augmented views of one bitmap (or of region, null = all of it) as one batch; each view
+    // is drawn straight from the source into the model-sized scratch
+    public BatchResult classifyViews(Bitmap bitmap, LeafMap.Region region, List<TestTimeAugmenter.View> views,
+                                     String cropType) throws IOException {
+        String cropKey = resolveCrop(cropType);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🤖 classifyViews() called with " + views.size() + " views, crop: " + cropKey);
+        }
+        
+        try (InterpreterPool.Lease lease = acquire(cropKey, metrics)) {
+            float[][] probabilities = runBatch(lease, Collections.nCopies(views.size(), bitmap),
+                    Collections.nCopies(views.size(), region), views, metrics, resultCache);
+            return new BatchResult(lease.getLabels(), probabilities);
+        }
+    }
+    
+    // Expected inference time of one batch item: the crop's last measured batch, else its
+    // calibration median, else -1 when the model has never run
+    public long estimateItemUs(String cropType) {
+        ModelRegistry.ModelInfo info = registry.find(cropType);
+        if (info == null) {
+            return -1;
+        }
+        Long measured = itemInferenceUs.get(info.getCrop());
+        if (measured != null) {
+            return measured;
+        }
+        InferenceTuner.Config config = tuner.get(info.getModelKey());
+        return tuner.isCalibrated(info.getModelKey()) ? config.getMedianUs() : -1;
+    }
+    
+    // One live camera frame: YUV goes straight into the pixel scratch at the model's input
+    // size, skipping Bitmaps and the result cache (every frame is different)
+    public BatchResult classifyFrame(YuvFrame frame, String cropType) throws IOException {
+        String cropKey = resolveCrop(cropType);
+        try (InterpreterPool.Lease lease = interpreterPool.acquire(cropKey)) {
+            ModelSpec spec = lease.getSpec();
+            int pixelCount = spec.getImageWidth() * spec.getImageHeight();
+            int itemBytes = spec.getInput().bytesPerItem();
+            InputBuffers buffers = inputBuffers.get();
+            buffers.ensureCapacity(pixelCount, itemBytes);
+            buffers.input.clear();
+            buffers.floats.clear();
+            
+            frame.toArgb(buffers.pixels, spec.getImageWidth(), spec.getImageHeight());
+            appendTensor(buffers, lease.getPreprocessor(), spec.getInput(), pixelCount);
+            buffers.input.rewind();
+            buffers.input.limit(itemBytes);
+            float[][] probabilities = lease.run(buffers.input, 1);
+            toProbabilities(probabilities[0]);
+            return new BatchResult(lease.getLabels(), probabilities);
+        }
+    }
+    
+    // Loads the crop's model and runs one blank inference so tensor allocation
+    // and kernel setup happen before the user's first real scan
+    public boolean warmUp(String cropType) {
+        ModelRegistry.ModelInfo info = registry.find(cropType);
+        if (info == null) {
+            return false;
+        }
+        String cropKey = info.getCrop();
+        long startNs = System.nanoTime();
+        try (InterpreterPool.Lease lease = interpreterPool.acquire(cropKey)) {
+            ModelSpec spec = lease.getSpec();
+            Bitmap blank = Bitmap.createBitmap(spec.getImageWidth(), spec.getImageHeight(), Bitmap.Config.ARGB_8888);
+            runBatch(lease, Collections.singletonList(blank), null, null, ScanMetrics.NONE, null);
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "🔥 Warmed up " + cropKey + " in " + (System.nanoTime() - startNs) / 1000000 + " ms");
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Warm-up failed for " + cropKey + ": " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Softmax temperature for models that emit logits (>1 flattens, <1 sharpens).
+    // Models whose output already sums to 1 are left alone.
+    public void setTemperature(float temperature) {
+        if (temperature <= 0f) {
+            throw new IllegalArgumentException("Temperature must be > 0");
+        }
+        this.temperature = temperature;
+        resultCache.clear();
+    }
+    
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+    
+    public boolean isModelLoaded(String cropType) {
+        return interpreterPool.isLoaded(registry.canonical(cropType));
+    }
+    
+    @Override
+    public String getName() {
+        return "models";
+    }
+    
+    // Resident models and interpreters plus cached results
+    @Override
+    public long getByteCount() {
+        return interpreterPool.getByteCount() + resultCache.getByteCount();
+    }
+    
+    @Override
+    public void trim(MemoryGovernor.Tier tier) {
+        resultCache.clear();
+        switch (tier) {
+            case CACHES:
+                interpreterPool.closeIdle(1);
+                break;
+            case IDLE:
+                interpreterPool.trimToModels(1);
+                interpreterPool.closeIdle(1);
+                break;
+            default:
+                interpreterPool.clear();
+                break;
+        }
+    }
+    
+    // Releases every cached interpreter, e.g. when the activity is destroyed
+    public void close() {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🗑️ Closing interpreter pool...");
+        }
+        interpreterPool.clear();
+    }
+    
+    @Override
+    public ByteBuffer loadModel(String cropKey) throws IOException {
+        ModelRegistry.ModelInfo info = registry.require(cropKey);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📦 Loading model: " + info.getModelPath() + " v" + info.getVersion());
+        }
         
-        // Load model
         try {
-            MappedByteBuffer modelBuffer = loadModelFile(modelFile);
+            ByteBuffer modelBuffer = info.isFromStorage()
+                    ? loadStoredModelFile(info.getModelFile())
+                    : loadModelFile(info.getModelPath());
             if (modelBuffer == null || modelBuffer.capacity() == 0) {
                 throw new IOException("Model buffer is empty or null");
             }
             
-            Log.d(TAG, "📏 Model buffer size: " + modelBuffer.capacity() + " bytes");
-            
-            Interpreter.Options options = new Interpreter.Options();
-            options.setNumThreads(4); // Use 4 threads for faster inference
-            
-            tflite = new Interpreter(modelBuffer, options);
-            Log.d(TAG, "✅ Model loaded successfully");
-            
-        } catch (Exception e) {
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "📏 Model buffer size: " + modelBuffer.capacity() + " bytes");
+            }
+            return modelBuffer;
+        
+        } catch (IOException e) {
             Log.e(TAG, "❌ Failed to load model: " + e.getMessage(), e);
             throw e;
         }
+    }
+    
+    @Override
+    public List<String> loadLabels(String cropKey) throws IOException {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🏷️ Loading labels for: " + cropKey);
+        }
         
-        // Load labels
-        labels.clear();
-        AssetManager assetManager = context.getAssets();
-        try (InputStream labelsInput = assetManager.open(labelFile);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(labelsInput))) {
-            
-            String line;
-            int lineCount = 0;
-            while ((line = reader.readLine()) != null) {
-                labels.add(line.trim());
-                lineCount++;
-                if (lineCount <= 5) { // Log first 5 labels
-                    Log.d(TAG, "   Label[" + (lineCount-1) + "]: " + line.trim());
-                }
+        try (InputStream labelsInput = registry.require(cropKey).openLabels(context.getAssets())) {
+            List<String> labels = LabelParser.parse(labelsInput);
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "✅ Loaded " + labels.size() + " labels");
             }
-            Log.d(TAG, "✅ Loaded " + labels.size() + " labels");
-            
-        } catch (Exception e) {
+            return labels;
+        } catch (IOException e) {
             Log.e(TAG, "❌ Failed to load labels: " + e.getMessage(), e);
             throw e;
         }
     }
     
-    private MappedByteBuffer loadModelFile(String modelFile) throws IOException {
-        Log.d(TAG, "📂 Loading model file from assets: " + modelFile);
+    @Override
+    public Interpreter.Options createOptions(String cropKey) {
+        ModelRegistry.ModelInfo info = registry.find(cropKey);
+        InferenceTuner.Config config = tuner.get(info != null ? info.getModelKey() : cropKey);
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "⚙️ Interpreter options for " + cropKey + ": " + config);
+        }
+        return config.toOptions();
+    }
+    
+    @Override
+    public ImagePreprocessor createPreprocessor(String cropKey) throws IOException {
+        return registry.require(cropKey).getPreprocessor();
+    }
+    
+    @Override
+    public void verifySpec(String cropKey, ModelSpec spec) throws IOException {
+        registry.require(cropKey).checkInput(spec.getInput());
+    }
+    
+    @Override
+    public boolean isFileBacked(String cropKey) {
+        ModelRegistry.ModelInfo info = registry.find(cropKey);
+        return info != null && (info.isFromStorage() || !copiedModels.contains(info.getModelPath()));
+    }
+    
+    // Memory-maps the model straight out of the APK; build.gradle keeps .tflite
+    // uncompressed so openFd() works. Compressed assets fall back to a copy.
+    private ByteBuffer loadModelFile(String modelFile) throws IOException {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📂 Loading model file from assets: " + modelFile);
+        }
+        long startNs = System.nanoTime();
         
         AssetManager assetManager = context.getAssets();
+        ByteBuffer buffer;
+        String method;
+        try (AssetFileDescriptor fileDescriptor = assetManager.openFd(modelFile);
+             FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor())) {
+            FileChannel fileChannel = inputStream.getChannel();
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                    fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength());
+            method = "mmap";
+            copiedModels.remove(modelFile);
+        } catch (FileNotFoundException e) {
+            // openFd() throws for compressed assets, and for missing ones
+            buffer = copyAssetToDirectBuffer(assetManager, modelFile);
+            method = "copy";
+            copiedModels.add(modelFile);
+        }
         
-        // Check if file exists
-        try {
-            InputStream testStream = assetManager.open(modelFile);
-            int fileSize = testStream.available();
-            testStream.close();
-            Log.d(TAG, "📊 Model file exists, size: " + fileSize + " bytes");
-        } catch (IOException e) {
-            Log.e(TAG, "❌ Model file not found in assets: " + modelFile);
-            throw e;
+        if (buffer.capacity() == 0) {
+            throw new IOException("Model file is empty: " + modelFile);
         }
         
-        // Read the entire file into a byte array
-        InputStream inputStream = assetManager.open(modelFile);
-        byte[] modelData = new byte[inputStream.available()];
-        inputStream.read(modelData);
-        inputStream.close();
+        long elapsedUs = (System.nanoTime() - startNs) / 1000;
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "✅ Model buffer ready via " + method + ": " + buffer.capacity() + " bytes in " + elapsedUs + " us");
+        }
+        
+        return buffer;
+    }
+    
+    // Downloaded models live uncompressed in app storage, so they can always be mapped
+    private ByteBuffer loadStoredModelFile(File file) throws IOException {
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "📂 Loading model file from storage: " + file);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() == 0) {
+                throw new IOException("Model file is empty: " + file);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    private ByteBuffer copyAssetToDirectBuffer(AssetManager assetManager, String modelFile) throws IOException {
+        Log.w(TAG, "⚠️ " + modelFile + " is compressed in the APK, copying instead of mapping");
+        try (InputStream inputStream = assetManager.open(modelFile, AssetManager.ACCESS_STREAMING);
+             ReadableByteChannel channel = Channels.newChannel(inputStream)) {
+            // Stream straight into native memory instead of going through a heap byte[]
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(inputStream.available(), 64 * 1024));
+            while (channel.read(buffer) != -1) {
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer grown = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                    buffer.flip();
+                    grown.put(buffer);
+                    buffer = grown;
+                }
+            }
+            buffer.flip();
+            return buffer.slice().order(ByteOrder.nativeOrder());
+        }
+    }
+    
+    // Includes waiting for a free interpreter and, on first use, loading the model
+    private InterpreterPool.Lease acquire(String cropKey, ScanMetrics scanMetrics) throws IOException {
+        scanMetrics.begin(ScanMetrics.Stage.MODEL_LOAD);
+        InterpreterPool.Lease lease = interpreterPool.acquire(cropKey);
+        scanMetrics.end(ScanMetrics.Stage.MODEL_LOAD);
+        return lease;
+    }
+    
+    // Stacks the preprocessed tensors of every uncached bitmap into one NHWC input buffer and
+    // runs them MAX_BATCH_SIZE at a time. Cache hits skip inference; cache may be null (warm-up).
+    // regions, when given, holds the part of each bitmap to use (null = whole bitmaps), and views
+    // the augmentation to draw each one with (null = as is).
+    private float[][] runBatch(InterpreterPool.Lease lease, List<Bitmap> bitmaps, List<LeafMap.Region> regions,
+                               List<TestTimeAugmenter.View> views, ScanMetrics scanMetrics, ResultCache cache) {
+        ModelSpec spec = lease.getSpec();
+        if (spec.getNumClasses() != lease.getLabels().size()) {
+            Log.w(TAG, "⚠️ Model has " + spec.getNumClasses() + " outputs but " + lease.getLabels().size() + " labels");
+        }
         
-        Log.d(TAG, "📥 Model data read: " + modelData.length + " bytes");
+        int pixelCount = spec.getImageWidth() * spec.getImageHeight();
+        int itemBytes = spec.getInput().bytesPerItem();
+        int maxQueued = Math.min(MAX_BATCH_SIZE, bitmaps.size());
+        InputBuffers buffers = inputBuffers.get();
+        buffers.ensureCapacity(pixelCount, itemBytes * maxQueued);
+        buffers.input.clear();
+        buffers.floats.clear();
         
-        if (modelData.length == 0) {
-            throw new IOException("Model file is empty: " + modelFile);
+        float[][] probabilities = new float[bitmaps.size()][];
+        int[] queued = new int[maxQueued];
+        long[] queuedHashes = new long[maxQueued];
+        int queuedCount = 0;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            scanMetrics.begin(ScanMetrics.Stage.RESIZE);
+            readPixels(bitmaps.get(i), regions != null ? regions.get(i) : null, views != null ? views.get(i) : null,
+                    spec, buffers);
+            scanMetrics.end(ScanMetrics.Stage.RESIZE);
+            scanMetrics.begin(ScanMetrics.Stage.TENSOR_FILL);
+            long hash = 0;
+            if (cache != null) {
+                hash = ResultCache.hash(buffers.pixels, pixelCount);
+                probabilities[i] = cache.get(lease.getCropKey(), hash);
+            }
+            if (probabilities[i] == null) {
+                appendTensor(buffers, lease.getPreprocessor(), spec.getInput(), pixelCount);
+                queued[queuedCount] = i;
+                queuedHashes[queuedCount] = hash;
+                queuedCount++;
+            }
+            scanMetrics.end(ScanMetrics.Stage.TENSOR_FILL);
+            
+            if (queuedCount == maxQueued || (queuedCount > 0 && i == bitmaps.size() - 1)) {
+                buffers.input.rewind();
+                buffers.input.limit(itemBytes * queuedCount);
+                scanMetrics.begin(ScanMetrics.Stage.INFERENCE);
+                long startNs = System.nanoTime();
+                float[][] chunk = lease.run(buffers.input, queuedCount);
+                itemInferenceUs.put(lease.getCropKey(), (System.nanoTime() - startNs) / 1000 / queuedCount);
+                scanMetrics.end(ScanMetrics.Stage.INFERENCE);
+                for (int q = 0; q < queuedCount; q++) {
+                    toProbabilities(chunk[q]);
+                    probabilities[queued[q]] = chunk[q];
+                    if (cache != null) {
+                        cache.put(lease.getCropKey(), queuedHashes[q], chunk[q]);
+                    }
+                }
+                queuedCount = 0;
+                buffers.input.clear();
+                buffers.floats.clear();
+            }
+        }
+        return probabilities;
+    }
+    
+    // Logit outputs go through softmax so every caller (and the cache) sees probabilities
+    private void toProbabilities(float[] scores) {
+        if (!ScoreUtils.isDistribution(scores, scores.length)) {
+            ScoreUtils.softmax(scores, scores.length, temperature);
+        }
+    }
+    
+    private static void readPixels(Bitmap bitmap, LeafMap.Region region, TestTimeAugmenter.View view, ModelSpec spec,
+                                   InputBuffers buffers) {
+        int width = spec.getImageWidth();
+        int height = spec.getImageHeight();
+        int[] pixels = buffers.pixels;
+        if (view != null) {
+            // Crop, flip and rotate in one filtered draw through a matrix
+            Bitmap tile = buffers.tileBitmap(width, height);
+            if (region != null) {
+                buffers.viewSource.set(region.getX(), region.getY(), region.getX() + region.getWidth(),
+                        region.getY() + region.getHeight());
+            } else {
+                buffers.viewSource.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+            }
+            buffers.viewTarget.set(0, 0, width, height);
+            view.toMatrix(buffers.viewSource, buffers.viewTarget, buffers.viewCrop, buffers.matrix);
+            buffers.tileCanvas.drawBitmap(bitmap, buffers.matrix, FILTER_PAINT);
+            tile.getPixels(pixels, 0, width, 0, 0, width, height);
+            return;
+        }
+        if (region != null && (region.getWidth() != bitmap.getWidth() || region.getHeight() != bitmap.getHeight())) {
+            // Draw the region scaled into a reused model-sized bitmap instead of cropping then scaling
+            Bitmap tile = buffers.tileBitmap(width, height);
+            buffers.source.set(region.getX(), region.getY(), region.getX() + region.getWidth(),
+                    region.getY() + region.getHeight());
+            buffers.target.set(0, 0, width, height);
+            buffers.tileCanvas.drawBitmap(bitmap, buffers.source, buffers.target, FILTER_PAINT);
+            tile.getPixels(pixels, 0, width, 0, 0, width, height);
+            return;
+        }
+        // The single resize to the model's input size; JSBridge only downsamples while decoding
+        Bitmap resizedBitmap = bitmap;
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            resizedBitmap = Bitmap.createScaledBitmap(bitmap, width, height, true);
+            if (DebugLog.ENABLED) {
+                Log.d(TAG, "🔄 Resized bitmap to: " + width + "x" + height);
+            }
+        }
+        resizedBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+    }
+    
+    // Writes one item at the input buffer's current position
+    private static void appendTensor(InputBuffers buffers, ImagePreprocessor preprocessor, TensorSpec input,
+                                     int pixelCount) {
+        if (input.isQuantized()) {
+            preprocessor.fillTensor(buffers.pixels, pixelCount, buffers.input, buffers.quantizedTable(preprocessor, input));
+        } else {
+            preprocessor.fillTensor(buffers.pixels, pixelCount, buffers.floats);
         }
+    }
+    
+    // Per-thread input tensor and pixel scratch, reused across scans and grown on demand
+    private static final class InputBuffers {
+        int[] pixels = new int[0];
+        ByteBuffer input = ByteBuffer.allocateDirect(0);
+        FloatBuffer floats = input.asFloatBuffer();
+        TensorSpec quantizedFor;
+        ImagePreprocessor quantizedWith;
+        byte[] quantizedTable;
+        Bitmap tile;
+        Canvas tileCanvas;
+        final Rect source = new Rect();
+        final Rect target = new Rect();
+        final Matrix matrix = new Matrix();
+        final RectF viewSource = new RectF();
+        final RectF viewTarget = new RectF();
+        final RectF viewCrop = new RectF();
         
-        // Create a ByteBuffer and wrap it as MappedByteBuffer
-        ByteBuffer buffer = ByteBuffer.allocateDirect(modelData.length);
-        buffer.order(ByteOrder.nativeOrder());
-        buffer.put(modelData);
-        buffer.rewind();
+        void ensureCapacity(int pixelCount, int inputBytes) {
+            if (pixels.length < pixelCount) {
+                pixels = new int[pixelCount];
+            }
+            if (input.capacity() < inputBytes) {
+                input = ByteBuffer.allocateDirect(inputBytes);
+                input.order(ByteOrder.nativeOrder());
+                floats = input.asFloatBuffer();
+            }
+        }
         
-        Log.d(TAG, "✅ Model buffer created, capacity: " + buffer.capacity() + " bytes");
+        byte[] quantizedTable(ImagePreprocessor preprocessor, TensorSpec spec) {
+            if (quantizedFor != spec || quantizedWith != preprocessor) {
+                quantizedTable = preprocessor.quantizedTable(spec);
+                quantizedFor = spec;
+                quantizedWith = preprocessor;
+            }
+            return quantizedTable;
+        }
         
-        return (MappedByteBuffer) buffer;
+        Bitmap tileBitmap(int width, int height) {
+            if (tile == null || tile.getWidth() != width || tile.getHeight() != height) {
+                tile = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                tileCanvas = new Canvas(tile);
+            }
+            return tile;
+        }
     }
     
-    private ByteBuffer convertBitmapToByteBuffer(Bitmap bitmap) {
-        Log.d(TAG, "🎨 Converting bitmap to ByteBuffer...");
+    // Per-image probabilities for one crop, plus a field-level average across all images
+    public static class BatchResult {
+        private final List<String> labels;
+        private final float[][] probabilities;
         
-        // Resize if needed
-        Bitmap resizedBitmap;
-        if (bitmap.getWidth() != IMAGE_SIZE || bitmap.getHeight() != IMAGE_SIZE) {
-            resizedBitmap = Bitmap.createScaledBitmap(bitmap, IMAGE_SIZE, IMAGE_SIZE, true);
-            Log.d(TAG, "🔄 Resized bitmap to: " + IMAGE_SIZE + "x" + IMAGE_SIZE);
-        } else {
-            resizedBitmap = bitmap;
+        BatchResult(List<String> labels, float[][] probabilities) {
+            this.labels = labels;
+            this.probabilities = probabilities;
         }
         
-        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(
-                BATCH_SIZE * IMAGE_SIZE * IMAGE_SIZE * NUM_CHANNELS * NUM_BYTES_PER_CHANNEL);
-        inputBuffer.order(ByteOrder.nativeOrder());
+        public int size() {
+            return probabilities.length;
+        }
         
-        int[] intValues = new int[IMAGE_SIZE * IMAGE_SIZE];
-        resizedBitmap.getPixels(intValues, 0, IMAGE_SIZE, 0, 0, IMAGE_SIZE, IMAGE_SIZE);
+        public List<String> getLabels() {
+            return labels;
+        }
         
-        Log.d(TAG, "🎨 Processing " + intValues.length + " pixels...");
+        public float[] getProbabilities(int image) {
+            return probabilities[image];
+        }
         
-        int pixel = 0;
-        for (int i = 0; i < IMAGE_SIZE; ++i) {
-            for (int j = 0; j < IMAGE_SIZE; ++j) {
-                final int val = intValues[pixel++];
-                
-                // Extract RGB values and normalize to [-1, 1]
-                float r = ((val >> 16) & 0xFF) / 255.0f * 2.0f - 1.0f;
-                float g = ((val >> 8) & 0xFF) / 255.0f * 2.0f - 1.0f;
-                float b = (val & 0xFF) / 255.0f * 2.0f - 1.0f;
-                
-                inputBuffer.putFloat(r);
-                inputBuffer.putFloat(g);
-                inputBuffer.putFloat(b);
-            }
+        public int getTopIndex(int image) {
+            return ScoreUtils.argmax(probabilities[image], labels.size());
         }
         
-        inputBuffer.rewind();
-        Log.d(TAG, "✅ ByteBuffer created, capacity: " + inputBuffer.capacity() + " bytes");
+        public ClassificationResult getResult(int image, String crop, int k) {
+            return ClassificationResult.fromProbabilities(crop, labels, probabilities[image], k);
+        }
         
-        return inputBuffer;
-    }
-    
-    private int getMaxIndex(float[] array) {
-        int maxIndex = 0;
-        float maxValue = array[0];
-        for (int i = 1; i < array.length; i++) {
-            if (array[i] > maxValue) {
-                maxValue = array[i];
-                maxIndex = i;
+        public float[] getMeanProbabilities() {
+            float[] mean = new float[labels.size()];
+            for (float[] p : probabilities) {
+                for (int i = 0; i < mean.length && i < p.length; i++) {
+                    mean[i] += p[i] / probabilities.length;
+                }
+            }
+            return mean;
+        }
+        
+        // Number of images whose top prediction is each label
+        public int[] getTopCounts() {
+            int[] counts = new int[labels.size()];
+            for (int image = 0; image < probabilities.length; image++) {
+                counts[getTopIndex(image)]++;
             }
+            return counts;
         }
-        return maxIndex;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,148 @@
+package com.farmmate.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.RectF;
+import android.util.Log;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * "High accuracy" mode for borderline scans: when the top-1/top-2 margin is small, classifies
+ * flipped, cropped and slightly rotated views of the same image and averages them with the
+ * original. Views are drawn straight from the source bitmap into the model-sized scratch
+ * (no full-size copies) and run as batches on one interpreter, which already spreads work
+ * over the calibrated thread count. Views stop being added once the latency budget is spent.
+ */
+public class TestTimeAugmenter {
+    private static final String TAG = "TestTimeAugmenter";
+    // Below this top-1/top-2 gap the argmax is a coin toss worth a second look
+    public static final float MARGIN_THRESHOLD = 0.2f;
+    public static final int DEFAULT_BUDGET_MS = 300;
+    // Assumed per-view cost before the model has run or been calibrated
+    private static final long DEFAULT_ITEM_US = 60_000;
+    
+    // Most informative first, so a tight budget still gets the best ones
+    private static final List<View> VIEWS = Arrays.asList(
+            new View("flip", true, 1f, 0),
+            new View("crop", false, 0.85f, 0),
+            new View("rotate+10", false, 1f, 10),
+            new View("rotate-10", false, 1f, -10),
+            new View("flip-crop", true, 0.85f, 0),
+            new View("crop70", false, 0.7f, 0));
+    
+    private final TFLiteClassifier classifier;
+    
+    public TestTimeAugmenter(TFLiteClassifier classifier) {
+        this.classifier = classifier;
+    }
+    
+    public static boolean isBorderline(ClassificationResult result) {
+        return result.size() > 1 && result.getScore(0) - result.getScore(1) < MARGIN_THRESHOLD;
+    }
+    
+    // Averages probabilities (the original scan's, already computed) with as many augmented views
+    // of region (null = whole bitmap) as fit in budgetMs
+    public Augmented refine(Bitmap bitmap, LeafMap.Region region, String cropKey, List<String> labels,
+                            float[] probabilities, int k, int budgetMs) throws IOException {
+        long startNs = System.nanoTime();
+        long budgetUs = budgetMs * 1000L;
+        float[] sum = probabilities.clone();
+        int used = 0;
+        while (used < VIEWS.size()) {
+            long elapsedUs = (System.nanoTime() - startNs) / 1000;
+            // Re-read every round: the estimate is updated by each batch that runs
+            long itemUs = classifier.estimateItemUs(cropKey);
+            int fit = (int) ((budgetUs - elapsedUs) / (itemUs > 0 ? itemUs : DEFAULT_ITEM_US));
+            int count = Math.min(Math.min(fit, VIEWS.size() - used), TFLiteClassifier.MAX_BATCH_SIZE);
+            if (count < 1) {
+                break;
+            }
+            TFLiteClassifier.BatchResult batch = classifier.classifyViews(bitmap, region,
+                    VIEWS.subList(used, used + count), cropKey);
+            for (int v = 0; v < batch.size(); v++) {
+                float[] view = batch.getProbabilities(v);
+                for (int c = 0; c < sum.length && c < view.length; c++) {
+                    sum[c] += view[c];
+                }
+            }
+            used += count;
+        }
+        for (int c = 0; c < sum.length; c++) {
+            sum[c] /= used + 1;
+        }
+        long elapsedMs = (System.nanoTime() - startNs) / 1000000;
+        if (DebugLog.ENABLED) {
+            Log.d(TAG, "🔁 " + cropKey + ": " + used + " views in " + elapsedMs + " ms (budget " + budgetMs + ")");
+        }
+        return new Augmented(ClassificationResult.fromProbabilities(cropKey, labels, sum, k), used, elapsedMs);
+    }
+    
+    // One geometric variant: optional horizontal flip, a centred crop of scale of the region, then
+    // a rotation (zoomed just enough that no empty corners show)
+    public static final class View {
+        private final String name;
+        private final boolean flip;
+        private final float scale;
+        private final float degrees;
+        
+        View(String name, boolean flip, float scale, float degrees) {
+            this.name = name;
+            this.flip = flip;
+            this.scale = scale;
+            this.degrees = degrees;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        // Maps source (the region in bitmap pixels) onto target; crop is scratch
+        void toMatrix(RectF source, RectF target, RectF crop, Matrix matrix) {
+            float insetX = source.width() * (1f - scale) / 2f;
+            float insetY = source.height() * (1f - scale) / 2f;
+            crop.set(source.left + insetX, source.top + insetY, source.right - insetX, source.bottom - insetY);
+            matrix.setRectToRect(crop, target, Matrix.ScaleToFit.FILL);
+            float cx = target.centerX();
+            float cy = target.centerY();
+            if (flip) {
+                matrix.postScale(-1f, 1f, cx, cy);
+            }
+            if (degrees != 0) {
+                double radians = Math.toRadians(Math.abs(degrees));
+                float zoom = (float) (Math.cos(radians) + Math.sin(radians));
+                matrix.postRotate(degrees, cx, cy);
+                matrix.postScale(zoom, zoom, cx, cy);
+            }
+        }
+    }
+    
+    public static final class Augmented {
+        private final ClassificationResult result;
+        private final int views;
+        private final long elapsedMs;
+        
+        Augmented(ClassificationResult result, int views, long elapsedMs) {
+            this.result = result;
+            this.views = views;
+            this.elapsedMs = elapsedMs;
+        }
+        
+        public ClassificationResult getResult() {
+            return result;
+        }
+        
+        // { views, elapsed_ms } plus the single-view answer it replaced
+        public JSONObject toJson(ClassificationResult before) throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("views", views);
+            json.put("elapsed_ms", elapsedMs);
+            json.put("single_view_disease", before.getTopLabel());
+            json.put("single_view_confidence", Math.round(before.getTopScore() * 100));
+            return json;
+        }
+    }
+}
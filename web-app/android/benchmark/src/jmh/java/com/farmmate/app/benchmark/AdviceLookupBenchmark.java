@@ -0,0 +1,67 @@
+package com.farmmate.app.benchmark;
+
+import com.farmmate.app.AdviceStore;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Advice lookups over the real agronomy-db/data/english.json: an exact key,
+ * a model label that needs fuzzy matching (memoized by AdviceStore), and the
+ * linear scan AdviceRepository used to do on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AdviceLookupBenchmark {
+    private AdviceStore store;
+    private JSONObject tomatoJson;
+    
+    @Setup
+    public void setUp() throws Exception {
+        JSONObject english = new JSONObject(BenchmarkData.readString("agronomy-db/data/english.json"));
+        store = AdviceStore.fromJson(english);
+        tomatoJson = english.getJSONObject("tomato");
+    }
+    
+    @Benchmark
+    public Object exactLookup() {
+        return store.lookup("tomato", "Late_blight");
+    }
+    
+    @Benchmark
+    public Object fuzzyLabelLookup() {
+        return store.lookup("tomato", "Spider_mites Two-spotted_spider_mite");
+    }
+    
+    // The pre-index behavior: collect keys, then case-insensitive contains per key
+    @Benchmark
+    public Object legacyLinearScan() throws Exception {
+        String diseaseName = "Spider_mites Two-spotted_spider_mite";
+        if (tomatoJson.has(diseaseName)) {
+            return tomatoJson.getJSONObject(diseaseName);
+        }
+        List<String> keys = new ArrayList<>();
+        Iterator<String> iterator = tomatoJson.keys();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        for (String key : keys) {
+            if (key.equalsIgnoreCase(diseaseName)
+                    || diseaseName.toLowerCase().contains(key.toLowerCase())
+                    || key.toLowerCase().contains(diseaseName.toLowerCase())) {
+                return tomatoJson.getJSONObject(key);
+            }
+        }
+        return tomatoJson.getJSONObject(keys.get(0));
+    }
+}
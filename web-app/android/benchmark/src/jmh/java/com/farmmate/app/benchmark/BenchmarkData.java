@@ -0,0 +1,25 @@
+package com.farmmate.app.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Locates the real model labels and agronomy data in the repository.
+ */
+final class BenchmarkData {
+    private BenchmarkData() {
+    }
+    
+    static File root() {
+        return new File(System.getProperty("farmmate.root", "../.."));
+    }
+    
+    static byte[] read(String relativePath) throws IOException {
+        return Files.readAllBytes(new File(root(), relativePath).toPath());
+    }
+    
+    static String readString(String relativePath) throws IOException {
+        return new String(read(relativePath), "UTF-8");
+    }
+}
@@ -0,0 +1,37 @@
+package com.farmmate.app.benchmark;
+
+import com.farmmate.app.LabelParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the shipped label files from memory (no disk I/O in the measurement).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LabelParseBenchmark {
+    @Param({"corn", "potato", "rice", "tomato"})
+    public String crop;
+    
+    private byte[] labelBytes;
+    
+    @Setup
+    public void setUp() throws Exception {
+        labelBytes = BenchmarkData.read("web-app/android/app/src/main/assets/" + crop + "_labels.txt");
+    }
+    
+    @Benchmark
+    public List<String> parse() throws Exception {
+        return LabelParser.parse(new ByteArrayInputStream(labelBytes));
+    }
+}
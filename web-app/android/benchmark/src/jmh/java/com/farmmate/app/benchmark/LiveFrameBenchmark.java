@@ -0,0 +1,88 @@
+package com.farmmate.app.benchmark;
+
+import com.farmmate.app.ImagePreprocessor;
+import com.farmmate.app.ScoreSmoother;
+import com.farmmate.app.YuvFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame JVM work in live scan: a 640x480 YUV_420_888 preview frame (CameraX's default
+ * analysis size, semi-planar chroma) rotated, centre-cropped and sampled to the 256x256
+ * model input, then the tensor fill and the score smoothing that follow it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LiveFrameBenchmark {
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final int MODEL_SIZE = 256;
+    
+    @Param({"0", "90"})
+    public int rotation;
+    
+    private final YuvFrame frame = new YuvFrame();
+    private int[] pixels;
+    private ImagePreprocessor preprocessor;
+    private FloatBuffer floats;
+    private ScoreSmoother smoother;
+    private float[] probabilities;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        byte[] luma = new byte[FRAME_WIDTH * FRAME_HEIGHT];
+        random.nextBytes(luma);
+        // NV21-style interleaved chroma: U and V share one buffer, pixel stride 2
+        byte[] chroma = new byte[FRAME_WIDTH * FRAME_HEIGHT / 2];
+        random.nextBytes(chroma);
+        ByteBuffer y = ByteBuffer.allocateDirect(luma.length);
+        y.put(luma).rewind();
+        ByteBuffer uv = ByteBuffer.allocateDirect(chroma.length);
+        uv.put(chroma).rewind();
+        ByteBuffer u = uv.duplicate();
+        ByteBuffer v = uv.duplicate();
+        v.position(1);
+        frame.set(y, u, v.slice(), FRAME_WIDTH, FRAME_WIDTH, 2, FRAME_WIDTH, FRAME_HEIGHT, rotation);
+        
+        pixels = new int[MODEL_SIZE * MODEL_SIZE];
+        preprocessor = ImagePreprocessor.signedUnitRange();
+        floats = ByteBuffer.allocateDirect(pixels.length * 3 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        smoother = new ScoreSmoother(0.3f);
+        probabilities = new float[10];
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = random.nextFloat();
+        }
+    }
+    
+    @Benchmark
+    public int[] yuvToArgb() {
+        frame.toArgb(pixels, MODEL_SIZE, MODEL_SIZE);
+        return pixels;
+    }
+    
+    @Benchmark
+    public FloatBuffer yuvToTensor() {
+        frame.toArgb(pixels, MODEL_SIZE, MODEL_SIZE);
+        floats.clear();
+        preprocessor.fillTensor(pixels, pixels.length, floats);
+        return floats;
+    }
+    
+    @Benchmark
+    public float[] smoothScores() {
+        return smoother.update(probabilities);
+    }
+}
@@ -0,0 +1,97 @@
+package com.farmmate.app.benchmark;
+
+import com.farmmate.app.ImagePreprocessor;
+import com.farmmate.app.LeafMap;
+import com.farmmate.app.ResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 256x256 ARGB pixels (the bundled models' input) to a float32 NHWC tensor: the original per-call
+ * allocation + divide loop against ImagePreprocessor with a reused buffer, the
+ * ResultCache key hash that now runs before every tensor fill, and the leaf mask,
+ * region and tile plan computed from a 96x72 thumbnail of a 12 MP photo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreprocessBenchmark {
+    private static final int IMAGE_SIZE = 256;
+    private static final int MAP_WIDTH = 96;
+    private static final int MAP_HEIGHT = 72;
+    
+    private int[] pixels;
+    private ImagePreprocessor preprocessor;
+    private ByteBuffer reusedInput;
+    private FloatBuffer reusedFloats;
+    private int[] thumbnail;
+    
+    @Setup
+    public void setUp() {
+        pixels = new int[IMAGE_SIZE * IMAGE_SIZE];
+        Random random = new Random(42);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        preprocessor = ImagePreprocessor.signedUnitRange();
+        reusedInput = ByteBuffer.allocateDirect(IMAGE_SIZE * IMAGE_SIZE * 3 * 4).order(ByteOrder.nativeOrder());
+        reusedFloats = reusedInput.asFloatBuffer();
+        
+        // Brown soil with a green leaf in the upper-left third
+        thumbnail = new int[MAP_WIDTH * MAP_HEIGHT];
+        for (int y = 0; y < MAP_HEIGHT; y++) {
+            for (int x = 0; x < MAP_WIDTH; x++) {
+                boolean leaf = x > 10 && x < 40 && y > 8 && y < 34;
+                int noise = random.nextInt(24);
+                thumbnail[y * MAP_WIDTH + x] = leaf
+                        ? 0xFF000000 | (60 + noise) << 16 | (140 + noise) << 8 | (50 + noise)
+                        : 0xFF000000 | (120 + noise) << 16 | (90 + noise) << 8 | (60 + noise);
+            }
+        }
+    }
+    
+    // What convertBitmapToByteBuffer did before the lookup table
+    @Benchmark
+    public ByteBuffer legacyAllocateAndDivide() {
+        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(IMAGE_SIZE * IMAGE_SIZE * 3 * 4);
+        inputBuffer.order(ByteOrder.nativeOrder());
+        int[] intValues = new int[IMAGE_SIZE * IMAGE_SIZE];
+        System.arraycopy(pixels, 0, intValues, 0, intValues.length);
+        for (int val : intValues) {
+            inputBuffer.putFloat(((val >> 16) & 0xFF) / 255.0f * 2.0f - 1.0f);
+            inputBuffer.putFloat(((val >> 8) & 0xFF) / 255.0f * 2.0f - 1.0f);
+            inputBuffer.putFloat((val & 0xFF) / 255.0f * 2.0f - 1.0f);
+        }
+        inputBuffer.rewind();
+        return inputBuffer;
+    }
+    
+    @Benchmark
+    public FloatBuffer lookupTableReusedBuffer() {
+        reusedFloats.clear();
+        preprocessor.fillTensor(pixels, pixels.length, reusedFloats);
+        return reusedFloats;
+    }
+    
+    @Benchmark
+    public long resultCacheHash() {
+        return ResultCache.hash(pixels, pixels.length);
+    }
+    
+    @Benchmark
+    public List<LeafMap.Region> leafRegionAndTiles() {
+        LeafMap map = new LeafMap(thumbnail, MAP_WIDTH, MAP_HEIGHT, 4000, 3000);
+        return LeafMap.tiles(map.findRegion(IMAGE_SIZE), IMAGE_SIZE, 8);
+    }
+}
@@ -0,0 +1,48 @@
+package com.farmmate.app.benchmark;
+
+import com.farmmate.app.AdviceStore;
+import com.farmmate.app.ClassificationResult;
+import com.farmmate.app.ResponseBuilder;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing the classifyImage response (top-3 with advice) for each language.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseBuildBenchmark {
+    @Param({"english", "hindi", "telugu"})
+    public String language;
+    
+    private ClassificationResult result;
+    private JSONObject[] advice;
+    
+    @Setup
+    public void setUp() throws Exception {
+        JSONObject data = new JSONObject(BenchmarkData.readString("agronomy-db/data/" + language + ".json"));
+        AdviceStore store = AdviceStore.fromJson(data);
+        result = ClassificationResult.fromProbabilities("tomato",
+                Arrays.asList("Early_blight", "Late_blight", "Leaf_Mold", "healthy"),
+                new float[]{0.52f, 0.41f, 0.05f, 0.02f}, 3);
+        advice = new JSONObject[result.size()];
+        for (int i = 0; i < advice.length; i++) {
+            advice[i] = store.lookup("tomato", result.getLabel(i)).toJson();
+        }
+    }
+    
+    @Benchmark
+    public String classificationResponse() throws Exception {
+        return ResponseBuilder.classification(result, advice).toString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.farmmate.app.benchmark;
+
+import com.farmmate.app.ScoreUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selection over model outputs: 10 classes like the tomato model, 1000 for headroom.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScoreBenchmark {
+    @Param({"10", "1000"})
+    public int numClasses;
+    
+    private float[] scores;
+    private final int[] top = new int[3];
+    
+    @Setup
+    public void setUp() {
+        scores = new float[numClasses];
+        Random random = new Random(42);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat();
+        }
+    }
+    
+    @Benchmark
+    public int argmax() {
+        return ScoreUtils.argmax(scores, scores.length);
+    }
+    
+    @Benchmark
+    public int[] top3() {
+        ScoreUtils.topK(scores, scores.length, 3, top);
+        return top;
+    }
+}
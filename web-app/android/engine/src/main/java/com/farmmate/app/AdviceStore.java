@@ -0,0 +1,237 @@
+package com.farmmate.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Advice for one language, keyed by crop and disease label.
+ * Normally read from advice_<lang>.bin, which compileAdviceStore (advice-store.gradle)
+ * builds from agronomy-db/data/*.json together with a label-to-advice alias table.
+ * Labels missing from that table are resolved once with the old fuzzy rules and memoized.
+ * Format 2 adds each entry's spoken summary (agronomy-db's tts_summary); format 1 stores
+ * and the JSON fallback build it with TtsSummary.
+ */
+public final class AdviceStore {
+    public static final int MAGIC = 0x464D4144; // "FMAD"
+    public static final int VERSION = 2;
+    
+    private final Map<String, Entry> byKey = new ConcurrentHashMap<>();
+    private final Map<String, List<Entry>> byCrop = new HashMap<>();
+    
+    private AdviceStore() {
+    }
+    
+    public static AdviceStore empty() {
+        return new AdviceStore();
+    }
+    
+    public static AdviceStore read(InputStream in, String language) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an advice store");
+        }
+        int version = data.readInt();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported advice store version: " + version);
+        }
+        
+        AdviceStore store = new AdviceStore();
+        int entryCount = data.readInt();
+        Entry[] entries = new Entry[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            String crop = data.readUTF();
+            String disease = data.readUTF();
+            String[] cause = readStrings(data);
+            String[] cure = readStrings(data);
+            String[] suggestions = readStrings(data);
+            String summary = version >= 2 ? data.readUTF() : TtsSummary.build(language, disease, cause, cure, suggestions);
+            entries[i] = new Entry(disease, cause, cure, suggestions, summary);
+            store.add(crop, entries[i]);
+        }
+        
+        int aliasCount = data.readInt();
+        for (int i = 0; i < aliasCount; i++) {
+            String crop = data.readUTF();
+            String label = data.readUTF();
+            store.byKey.put(key(crop, label), entries[data.readInt()]);
+        }
+        return store;
+    }
+    
+    // Fallback for builds without the compiled asset: same layout as agronomy-db/data/*.json
+    public static AdviceStore fromJson(JSONObject languageData) throws JSONException {
+        return fromJson(languageData, "en");
+    }
+    
+    public static AdviceStore fromJson(JSONObject languageData, String language) throws JSONException {
+        AdviceStore store = new AdviceStore();
+        Iterator<String> crops = languageData.keys();
+        while (crops.hasNext()) {
+            String crop = crops.next();
+            JSONObject cropData = languageData.getJSONObject(crop);
+            Iterator<String> diseases = cropData.keys();
+            while (diseases.hasNext()) {
+                String disease = diseases.next();
+                JSONObject advice = cropData.getJSONObject(disease);
+                String[] cause = toStrings(advice.optJSONArray("cause"));
+                String[] cure = toStrings(advice.optJSONArray("cure"));
+                String[] suggestions = toStrings(advice.optJSONArray("suggestions"));
+                String summary = advice.optString("tts_summary", "");
+                if (summary.isEmpty()) {
+                    summary = TtsSummary.build(language, disease, cause, cure, suggestions);
+                }
+                store.add(crop, new Entry(disease, cause, cure, suggestions, summary));
+            }
+        }
+        return store;
+    }
+    
+    // Returns null only when the crop itself is unknown
+    public Entry lookup(String crop, String diseaseName) {
+        String key = key(crop, diseaseName);
+        Entry entry = byKey.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        List<Entry> candidates = byCrop.get(crop.toLowerCase(Locale.ROOT));
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        entry = resolve(candidates, diseaseName);
+        byKey.put(key, entry);
+        return entry;
+    }
+    
+    // The matching AdviceRepository used to redo on every call, plus a punctuation-insensitive
+    // pass: case-insensitive equality, normalized equality, containment, then the crop's first disease.
+    // advice-store.gradle applies the same rules when it precomputes aliases.
+    public static int resolveIndex(List<String> diseaseKeys, String diseaseName) {
+        String wanted = diseaseName.toLowerCase(Locale.ROOT);
+        String wantedNormalized = normalize(diseaseName);
+        for (int i = 0; i < diseaseKeys.size(); i++) {
+            if (diseaseKeys.get(i).equalsIgnoreCase(diseaseName)) {
+                return i;
+            }
+        }
+        for (int i = 0; i < diseaseKeys.size(); i++) {
+            if (normalize(diseaseKeys.get(i)).equals(wantedNormalized)) {
+                return i;
+            }
+        }
+        for (int i = 0; i < diseaseKeys.size(); i++) {
+            String key = diseaseKeys.get(i).toLowerCase(Locale.ROOT);
+            if (wanted.contains(key) || key.contains(wanted)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+    
+    private static Entry resolve(List<Entry> candidates, String diseaseName) {
+        List<String> keys = new ArrayList<>(candidates.size());
+        for (Entry candidate : candidates) {
+            keys.add(candidate.disease);
+        }
+        return candidates.get(resolveIndex(keys, diseaseName));
+    }
+    
+    static String normalize(String label) {
+        StringBuilder sb = new StringBuilder(label.length());
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+    
+    private void add(String crop, Entry entry) {
+        String cropKey = crop.toLowerCase(Locale.ROOT);
+        List<Entry> list = byCrop.get(cropKey);
+        if (list == null) {
+            list = new ArrayList<>();
+            byCrop.put(cropKey, list);
+        }
+        list.add(entry);
+        byKey.put(key(crop, entry.disease), entry);
+    }
+    
+    private static String key(String crop, String disease) {
+        return crop.toLowerCase(Locale.ROOT) + '/' + disease;
+    }
+    
+    private static String[] readStrings(DataInputStream data) throws IOException {
+        String[] values = new String[data.readUnsignedShort()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.readUTF();
+        }
+        return values;
+    }
+    
+    private static String[] toStrings(JSONArray array) {
+        if (array == null) {
+            return new String[0];
+        }
+        String[] values = new String[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = array.optString(i, "");
+        }
+        return values;
+    }
+    
+    public static final class Entry {
+        private final String disease;
+        private final String[] cause;
+        private final String[] cure;
+        private final String[] suggestions;
+        private final String ttsSummary;
+        private volatile JSONObject json;
+        
+        Entry(String disease, String[] cause, String[] cure, String[] suggestions, String ttsSummary) {
+            this.disease = disease;
+            this.cause = cause;
+            this.cure = cure;
+            this.suggestions = suggestions;
+            this.ttsSummary = ttsSummary;
+        }
+        
+        public String getDisease() {
+            return disease;
+        }
+        
+        // One paragraph in the store's language for read-aloud
+        public String getTtsSummary() {
+            return ttsSummary;
+        }
+        
+        // Same shape as the agronomy-db JSON entry, built once per entry
+        public JSONObject toJson() {
+            JSONObject result = json;
+            if (result == null) {
+                result = new JSONObject();
+                try {
+                    result.put("cause", new JSONArray(Arrays.asList(cause)));
+                    result.put("cure", new JSONArray(Arrays.asList(cure)));
+                    result.put("suggestions", new JSONArray(Arrays.asList(suggestions)));
+                } catch (JSONException e) {
+                    // put() only throws for non-finite numbers
+                }
+                json = result;
+            }
+            return result;
+        }
+    }
+}
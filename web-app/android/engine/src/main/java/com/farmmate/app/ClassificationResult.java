@@ -0,0 +1,64 @@
+package com.farmmate.app;
+
+import java.util.List;
+
+/**
+ * Top-K predictions for one image, best first: label, probability and the
+ * label's index in the model output.
+ */
+public final class ClassificationResult {
+    private final String crop;
+    private final String[] labels;
+    private final float[] scores;
+    private final int[] indices;
+    
+    private ClassificationResult(String crop, String[] labels, float[] scores, int[] indices) {
+        this.crop = crop;
+        this.labels = labels;
+        this.scores = scores;
+        this.indices = indices;
+    }
+    
+    // probabilities must already be normalized (TFLiteClassifier applies softmax to logits)
+    public static ClassificationResult fromProbabilities(String crop, List<String> labels, float[] probabilities, int k) {
+        int[] top = new int[Math.max(1, k)];
+        int count = ScoreUtils.topK(probabilities, Math.min(labels.size(), probabilities.length), k, top);
+        String[] topLabels = new String[count];
+        float[] topScores = new float[count];
+        int[] topIndices = new int[count];
+        for (int i = 0; i < count; i++) {
+            topIndices[i] = top[i];
+            topLabels[i] = labels.get(top[i]);
+            topScores[i] = probabilities[top[i]];
+        }
+        return new ClassificationResult(crop, topLabels, topScores, topIndices);
+    }
+    
+    public String getCrop() {
+        return crop;
+    }
+    
+    public int size() {
+        return labels.length;
+    }
+    
+    public String getLabel(int rank) {
+        return labels[rank];
+    }
+    
+    public float getScore(int rank) {
+        return scores[rank];
+    }
+    
+    public int getIndex(int rank) {
+        return indices[rank];
+    }
+    
+    public String getTopLabel() {
+        return labels[0];
+    }
+    
+    public float getTopScore() {
+        return scores[0];
+    }
+}
@@ -0,0 +1,88 @@
+package com.farmmate.app;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Pixel-to-tensor conversion over packed ARGB ints.
+ * Plain Java (no android.*) so it can be unit-tested and benchmarked on the JVM.
+ */
+public final class ImagePreprocessor {
+    private final float[] lut = new float[256];
+    private final float mean;
+    private final float std;
+    
+    // normalized = (channel - mean) / std, precomputed for every 8-bit value
+    public ImagePreprocessor(float mean, float std) {
+        this.mean = mean;
+        this.std = std;
+        for (int v = 0; v < 256; v++) {
+            lut[v] = (v - mean) / std;
+        }
+    }
+    
+    // Maps [0, 255] to [-1, 1], matching the original per-pixel normalization
+    public static ImagePreprocessor signedUnitRange() {
+        return new ImagePreprocessor(127.5f, 127.5f);
+    }
+    
+    public float getMean() {
+        return mean;
+    }
+    
+    public float getStd() {
+        return std;
+    }
+    
+    public float normalize(int channel) {
+        return lut[channel & 0xFF];
+    }
+    
+    // Writes pixelCount RGB triples at the buffer's current position
+    public void fillTensor(int[] argb, int pixelCount, FloatBuffer out) {
+        final float[] table = lut;
+        for (int i = 0; i < pixelCount; i++) {
+            final int val = argb[i];
+            out.put(table[(val >> 16) & 0xFF]);
+            out.put(table[(val >> 8) & 0xFF]);
+            out.put(table[val & 0xFF]);
+        }
+    }
+    
+    // Same as above into a heap array, starting at outOffset
+    public void fillTensor(int[] argb, int pixelCount, float[] out, int outOffset) {
+        final float[] table = lut;
+        int o = outOffset;
+        for (int i = 0; i < pixelCount; i++) {
+            final int val = argb[i];
+            out[o++] = table[(val >> 16) & 0xFF];
+            out[o++] = table[(val >> 8) & 0xFF];
+            out[o++] = table[val & 0xFF];
+        }
+    }
+    
+    // Byte per 8-bit channel value for quantized inputs: round(normalized / scale) + zeroPoint.
+    // Models without quantization params (scale 0) take the raw channel value.
+    public byte[] quantizedTable(TensorSpec spec) {
+        int min = spec.getType() == TensorSpec.Type.INT8 ? -128 : 0;
+        int max = spec.getType() == TensorSpec.Type.INT8 ? 127 : 255;
+        byte[] table = new byte[256];
+        for (int v = 0; v < 256; v++) {
+            int q = spec.getScale() == 0f
+                    ? v + min
+                    : Math.round(lut[v] / spec.getScale()) + spec.getZeroPoint();
+            table[v] = (byte) Math.max(min, Math.min(max, q));
+        }
+        return table;
+    }
+    
+    // Writes pixelCount RGB triples of quantized bytes at the buffer's current position
+    public void fillTensor(int[] argb, int pixelCount, ByteBuffer out, byte[] table) {
+        for (int i = 0; i < pixelCount; i++) {
+            final int val = argb[i];
+            out.put(table[(val >> 16) & 0xFF]);
+            out.put(table[(val >> 8) & 0xFF]);
+            out.put(table[val & 0xFF]);
+        }
+    }
+}
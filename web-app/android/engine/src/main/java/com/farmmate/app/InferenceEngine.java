@@ -0,0 +1,19 @@
+package com.farmmate.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One loaded classification model: the app leases TFLite interpreters from InterpreterPool,
+ * the desktop evaluator wraps whatever runtime is on the classpath. Not thread-safe; each
+ * thread uses its own instance.
+ */
+public interface InferenceEngine extends AutoCloseable {
+    ModelSpec getSpec();
+    
+    // Runs the first batchSize items of input (NHWC in the spec's input type, position 0) and
+    // returns each item's scores, dequantized but not yet softmaxed
+    float[][] run(ByteBuffer input, int batchSize);
+    
+    @Override
+    void close();
+}
@@ -0,0 +1,28 @@
+package com.farmmate.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses a *_labels.txt file: one label per line, in model output order.
+ */
+public final class LabelParser {
+    private LabelParser() {
+    }
+    
+    public static List<String> parse(InputStream in) throws IOException {
+        List<String> labels = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            labels.add(line.trim());
+        }
+        return Collections.unmodifiableList(labels);
+    }
+}
@@ -0,0 +1,201 @@
+package com.farmmate.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cheap colour mask of where the leaves are, built from a small thumbnail of the photo.
+ * Finds the leaf region of interest and answers "how much leaf is in this rectangle" in
+ * O(1) through an integral image. Rectangles are in full-image pixels.
+ * Plain Java (no android.*) so it can be benchmarked on the JVM.
+ */
+public final class LeafMap {
+    // Fraction of leaf pixels ignored on each side, so stray green specks don't stretch the box
+    private static final float TRIM = 0.02f;
+    private static final float PADDING = 0.08f;
+    // Less leaf than this and the colour pass is guessing; keep the whole frame
+    private static final float MIN_COVERAGE = 0.02f;
+    // A box covering this much of the frame isn't worth cropping to
+    private static final float FULL_FRAME = 0.85f;
+    // Neighbouring tiles share at least this fraction of their edge
+    private static final float OVERLAP = 0.25f;
+    
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int imageWidth;
+    private final int imageHeight;
+    // (mapWidth + 1) x (mapHeight + 1) prefix sums of the mask
+    private final int[] integral;
+    
+    // pixels is a mapWidth x mapHeight ARGB thumbnail of an imageWidth x imageHeight photo
+    public LeafMap(int[] pixels, int mapWidth, int mapHeight, int imageWidth, int imageHeight) {
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.integral = new int[(mapWidth + 1) * (mapHeight + 1)];
+        int stride = mapWidth + 1;
+        for (int y = 0; y < mapHeight; y++) {
+            int rowSum = 0;
+            for (int x = 0; x < mapWidth; x++) {
+                rowSum += isLeaf(pixels[y * mapWidth + x]) ? 1 : 0;
+                integral[(y + 1) * stride + x + 1] = integral[y * stride + x + 1] + rowSum;
+            }
+        }
+    }
+    
+    // Green tissue (excess green) or yellowing tissue (warm and saturated, unlike soil, straw or sky)
+    public static boolean isLeaf(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        if (g > r && 2 * g - r - b > 30) {
+            return true;
+        }
+        return r > 120 && g > 120 && b * 5 < g * 3 && Math.abs(r - g) < 60;
+    }
+    
+    public Region fullFrame() {
+        return new Region(0, 0, imageWidth, imageHeight);
+    }
+    
+    // Padded box around the leaf pixels, at least minEdge on each side, or the full frame when
+    // there is too little leaf to trust or the leaves already fill the frame
+    public Region findRegion(int minEdge) {
+        int total = count(0, 0, mapWidth, mapHeight);
+        if (total < MIN_COVERAGE * mapWidth * mapHeight) {
+            return fullFrame();
+        }
+        int trimmed = (int) (total * TRIM);
+        int left = 0;
+        while (left < mapWidth - 1 && count(0, 0, left + 1, mapHeight) <= trimmed) {
+            left++;
+        }
+        int right = mapWidth;
+        while (right > left + 1 && count(right - 1, 0, mapWidth, mapHeight) <= trimmed) {
+            right--;
+        }
+        int top = 0;
+        while (top < mapHeight - 1 && count(0, 0, mapWidth, top + 1) <= trimmed) {
+            top++;
+        }
+        int bottom = mapHeight;
+        while (bottom > top + 1 && count(0, bottom - 1, mapWidth, mapHeight) <= trimmed) {
+            bottom--;
+        }
+        
+        // Thumbnail cells to image pixels, padded so lesions at the leaf edge stay in view
+        float scaleX = (float) imageWidth / mapWidth;
+        float scaleY = (float) imageHeight / mapHeight;
+        float padX = (right - left) * scaleX * PADDING;
+        float padY = (bottom - top) * scaleY * PADDING;
+        int x0 = Math.max(0, Math.round(left * scaleX - padX));
+        int y0 = Math.max(0, Math.round(top * scaleY - padY));
+        int x1 = Math.min(imageWidth, Math.round(right * scaleX + padX));
+        int y1 = Math.min(imageHeight, Math.round(bottom * scaleY + padY));
+        if ((long) (x1 - x0) * (y1 - y0) >= FULL_FRAME * imageWidth * imageHeight) {
+            return fullFrame();
+        }
+        int[] xs = grow(x0, x1, minEdge, imageWidth);
+        int[] ys = grow(y0, y1, minEdge, imageHeight);
+        return new Region(xs[0], ys[0], xs[1] - xs[0], ys[1] - ys[0]);
+    }
+    
+    // Fraction of the region's thumbnail cells that are leaf
+    public float coverage(Region region) {
+        int x0 = region.x * mapWidth / imageWidth;
+        int y0 = region.y * mapHeight / imageHeight;
+        int x1 = Math.max(x0 + 1, (region.x + region.width) * mapWidth / imageWidth);
+        int y1 = Math.max(y0 + 1, (region.y + region.height) * mapHeight / imageHeight);
+        x1 = Math.min(x1, mapWidth);
+        y1 = Math.min(y1, mapHeight);
+        int cells = (x1 - x0) * (y1 - y0);
+        return cells > 0 ? (float) count(x0, y0, x1, y1) / cells : 0f;
+    }
+    
+    // The whole area first (context), then a grid of overlapping square tiles no smaller than
+    // minEdge (smaller would only be upsampled), as fine as maxTiles allows
+    public static List<Region> tiles(Region area, int minEdge, int maxTiles) {
+        List<Region> tiles = new ArrayList<>();
+        tiles.add(area);
+        int shortEdge = Math.min(area.width, area.height);
+        int gridBudget = maxTiles - 1;
+        int edge = minEdge;
+        while (edge < shortEdge && tileCount(area.width, edge) * tileCount(area.height, edge) > gridBudget) {
+            edge += Math.max(1, edge / 8);
+        }
+        if (edge >= shortEdge) {
+            // One tile per axis would just repeat the whole-area view
+            return tiles;
+        }
+        int cols = tileCount(area.width, edge);
+        int rows = tileCount(area.height, edge);
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                // Spread evenly so the first and last tiles sit on the area's edges
+                int x = area.x + (cols == 1 ? (area.width - edge) / 2 : col * (area.width - edge) / (cols - 1));
+                int y = area.y + (rows == 1 ? (area.height - edge) / 2 : row * (area.height - edge) / (rows - 1));
+                tiles.add(new Region(x, y, edge, edge));
+            }
+        }
+        return tiles;
+    }
+    
+    // Tiles of the given edge needed to cover length with at least OVERLAP between neighbours
+    private static int tileCount(int length, int edge) {
+        if (length <= edge) {
+            return 1;
+        }
+        float step = edge * (1f - OVERLAP);
+        return (int) Math.ceil((length - edge) / step) + 1;
+    }
+    
+    // [start, end) widened around its centre to at least minLength, kept inside [0, limit)
+    private static int[] grow(int start, int end, int minLength, int limit) {
+        int length = Math.min(limit, Math.max(end - start, minLength));
+        int begin = Math.max(0, Math.min(limit - length, (start + end - length) / 2));
+        return new int[] {begin, begin + length};
+    }
+    
+    // Leaf cells in [x0, x1) x [y0, y1) of the thumbnail
+    private int count(int x0, int y0, int x1, int y1) {
+        int stride = mapWidth + 1;
+        return integral[y1 * stride + x1] - integral[y0 * stride + x1] - integral[y1 * stride + x0]
+                + integral[y0 * stride + x0];
+    }
+    
+    public static final class Region {
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        
+        public Region(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+        
+        public int getX() {
+            return x;
+        }
+        
+        public int getY() {
+            return y;
+        }
+        
+        public int getWidth() {
+            return width;
+        }
+        
+        public int getHeight() {
+            return height;
+        }
+        
+        @Override
+        public String toString() {
+            return width + "x" + height + "@" + x + "," + y;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.farmmate.app;
+
+/**
+ * Input/output tensor layout of a loaded model. Input is NHWC image data.
+ */
+public final class ModelSpec {
+    private final TensorSpec input;
+    private final TensorSpec output;
+    
+    public ModelSpec(TensorSpec input, TensorSpec output) {
+        this.input = input;
+        this.output = output;
+    }
+    
+    public TensorSpec getInput() {
+        return input;
+    }
+    
+    public TensorSpec getOutput() {
+        return output;
+    }
+    
+    public int getImageHeight() {
+        return input.getDim(1);
+    }
+    
+    public int getImageWidth() {
+        return input.getDim(2);
+    }
+    
+    public int getNumClasses() {
+        return output.elementsPerItem();
+    }
+    
+    @Override
+    public String toString() {
+        return "in=" + input + " out=" + output;
+    }
+}
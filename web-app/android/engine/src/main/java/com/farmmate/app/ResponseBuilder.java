@@ -0,0 +1,62 @@
+package com.farmmate.app;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Builds the JSON objects JSBridge hands back to the WebView.
+ */
+public final class ResponseBuilder {
+    private ResponseBuilder() {
+    }
+    
+    // Top-level disease/confidence/advice describe the best prediction (the shape the UI
+    // always used); "predictions" lists all k, best first, each with its own advice
+    public static JSONObject classification(ClassificationResult result, JSONObject[] advice) throws JSONException {
+        JSONObject response = new JSONObject();
+        response.put("success", true);
+        response.put("crop", result.getCrop());
+        putResult(response, result, advice);
+        return response;
+    }
+    
+    // advice[i] belongs to the i-th prediction
+    public static void putResult(JSONObject target, ClassificationResult result, JSONObject[] advice)
+            throws JSONException {
+        JSONArray predictions = new JSONArray();
+        for (int i = 0; i < result.size(); i++) {
+            JSONObject prediction = new JSONObject();
+            prediction.put("disease", result.getLabel(i));
+            prediction.put("confidence", Math.round(result.getScore(i) * 100));
+            putAdvice(prediction, advice[i]);
+            predictions.put(prediction);
+        }
+        target.put("disease", result.getTopLabel());
+        target.put("confidence", Math.round(result.getTopScore() * 100));
+        putAdvice(target, advice[0]);
+        target.put("predictions", predictions);
+    }
+    
+    public static void putAdvice(JSONObject target, JSONObject advice) throws JSONException {
+        if (advice != null) {
+            target.put("advice_cause", advice.optString("cause", ""));
+            target.put("advice_cure", advice.optString("cure", ""));
+            target.put("advice_suggestions", advice.optString("suggestions", ""));
+        }
+    }
+    
+    public static String error(String error, boolean dropped) {
+        try {
+            JSONObject response = new JSONObject();
+            response.put("success", false);
+            response.put("error", error);
+            if (dropped) {
+                response.put("dropped", true);
+            }
+            return response.toString();
+        } catch (JSONException e) {
+            return "{\"success\":false,\"error\":\"JSON error\"}";
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.farmmate.app;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of model outputs keyed by crop and a 64-bit hash of the model-sized input
+ * pixels, so re-submitting the same photo (or re-analysing it after a language switch)
+ * skips inference and only redoes the advice join. Bounded by entry count and by the
+ * bytes of stored probabilities. Returned arrays are shared and must not be modified.
+ */
+public final class ResultCache {
+    // Rough per-entry cost of the key, map node and array header on top of the floats
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, float[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    public ResultCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+    
+    // Hash of the RGB channels the model sees (alpha is ignored, as in the tensor fill)
+    public static long hash(int[] argb, int pixelCount) {
+        long h = 0x9E3779B97F4A7C15L ^ pixelCount;
+        for (int i = 0; i < pixelCount; i++) {
+            h = (h + (argb[i] & 0xFFFFFF)) * 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 32;
+        }
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+    
+    public synchronized float[] get(String cropKey, long hash) {
+        float[] probabilities = entries.get(new Key(cropKey, hash));
+        if (probabilities != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return probabilities;
+    }
+    
+    public synchronized void put(String cropKey, long hash, float[] probabilities) {
+        float[] previous = entries.put(new Key(cropKey, hash), probabilities);
+        if (previous != null) {
+            bytes -= sizeOf(previous);
+        }
+        bytes += sizeOf(probabilities);
+        Iterator<Map.Entry<Key, float[]>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            bytes -= sizeOf(it.next().getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+    
+    // Drops every entry, e.g. when a crop's model changes; counters are kept
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getByteCount() {
+        return bytes;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    private static long sizeOf(float[] probabilities) {
+        return ENTRY_OVERHEAD_BYTES + 4L * probabilities.length;
+    }
+    
+    private static final class Key {
+        final String cropKey;
+        final long hash;
+        
+        Key(String cropKey, long hash) {
+            this.cropKey = cropKey;
+            this.hash = hash;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && cropKey.equals(other.cropKey);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * cropKey.hashCode() + (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
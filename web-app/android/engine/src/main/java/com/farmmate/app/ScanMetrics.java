@@ -0,0 +1,132 @@
+package com.farmmate.app;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-stage latency and allocation histograms for the scan path.
+ * begin()/end() pairs are allocation-free and safe from any thread: start marks live
+ * in a per-thread array, so stages may nest (TOTAL wraps the others) but a stage
+ * must not nest inside itself on the same thread.
+ */
+public final class ScanMetrics {
+    public enum Stage {
+        BASE64_DECODE,
+        BITMAP_DECODE,
+        LEAF_REGION,
+        RESIZE,
+        TENSOR_FILL,
+        MODEL_LOAD,
+        ROUTING,
+        CASCADE,
+        AUGMENT,
+        LIVE_FRAME,
+        INFERENCE,
+        ADVICE_LOOKUP,
+        JSON_BUILD,
+        TOTAL;
+        
+        final String key = name().toLowerCase(Locale.ROOT);
+    }
+    
+    // Must come before NONE, whose constructor reads it
+    private static final Stage[] STAGES = Stage.values();
+    
+    // Records nothing; used for warm-up runs that should not skew scan percentiles
+    public static final ScanMetrics NONE = new ScanMetrics(null, false);
+    
+    private final LongSupplier allocatedBytes;
+    private final boolean enabled;
+    private final Histogram[] latencyUs = new Histogram[STAGES.length];
+    private final Histogram[] bytes = new Histogram[STAGES.length];
+    private final ThreadLocal<long[]> starts = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[STAGES.length * 2];
+        }
+    };
+    private volatile long resetAtMs = System.currentTimeMillis();
+    
+    // allocatedBytes is a monotonic-ish byte counter (see MemoryStats); null skips byte tracking
+    public ScanMetrics(LongSupplier allocatedBytes) {
+        this(allocatedBytes, true);
+    }
+    
+    private ScanMetrics(LongSupplier allocatedBytes, boolean enabled) {
+        this.allocatedBytes = allocatedBytes;
+        this.enabled = enabled;
+        for (int i = 0; i < STAGES.length; i++) {
+            latencyUs[i] = new Histogram();
+            bytes[i] = new Histogram();
+        }
+    }
+    
+    public void begin(Stage stage) {
+        if (!enabled) {
+            return;
+        }
+        long[] marks = starts.get();
+        int slot = stage.ordinal() * 2;
+        marks[slot + 1] = allocatedBytes != null ? allocatedBytes.getAsLong() : 0;
+        marks[slot] = System.nanoTime();
+    }
+    
+    public void end(Stage stage) {
+        if (!enabled) {
+            return;
+        }
+        long endNs = System.nanoTime();
+        long[] marks = starts.get();
+        int slot = stage.ordinal() * 2;
+        latencyUs[stage.ordinal()].record((endNs - marks[slot]) / 1000);
+        if (allocatedBytes != null) {
+            bytes[stage.ordinal()].record(allocatedBytes.getAsLong() - marks[slot + 1]);
+        }
+    }
+    
+    public Histogram getLatency(Stage stage) {
+        return latencyUs[stage.ordinal()];
+    }
+    
+    public Histogram getBytes(Stage stage) {
+        return bytes[stage.ordinal()];
+    }
+    
+    public void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            latencyUs[i].reset();
+            bytes[i].reset();
+        }
+        resetAtMs = System.currentTimeMillis();
+    }
+    
+    // { since_ms, stages: { inference: { count, mean_us, p50_us, ..., p99_bytes, max_bytes }, ... } }
+    public JSONObject toJson() throws JSONException {
+        JSONObject stages = new JSONObject();
+        for (Stage stage : STAGES) {
+            Histogram latency = latencyUs[stage.ordinal()];
+            Histogram allocated = bytes[stage.ordinal()];
+            JSONObject item = new JSONObject();
+            item.put("count", latency.getCount());
+            item.put("mean_us", latency.getMean());
+            item.put("p50_us", latency.getPercentile(0.50));
+            item.put("p95_us", latency.getPercentile(0.95));
+            item.put("p99_us", latency.getPercentile(0.99));
+            item.put("max_us", latency.getMax());
+            if (allocatedBytes != null) {
+                item.put("mean_bytes", allocated.getMean());
+                item.put("p50_bytes", allocated.getPercentile(0.50));
+                item.put("p95_bytes", allocated.getPercentile(0.95));
+                item.put("p99_bytes", allocated.getPercentile(0.99));
+                item.put("max_bytes", allocated.getMax());
+            }
+            stages.put(stage.key, item);
+        }
+        JSONObject result = new JSONObject();
+        result.put("since_ms", resetAtMs);
+        result.put("stages", stages);
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package com.farmmate.app;
+
+/**
+ * Exponential moving average over per-frame probability vectors, so live scan results
+ * don't flicker between labels as the camera moves. Not thread-safe; one per stream.
+ */
+public final class ScoreSmoother {
+    private final float alpha;
+    private float[] state;
+    private int frames;
+    
+    // alpha is the weight of the newest frame: 1 = no smoothing, smaller = steadier but slower
+    public ScoreSmoother(float alpha) {
+        if (alpha <= 0f || alpha > 1f) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+    
+    // Folds one frame in and returns the smoothed vector (owned by the smoother, valid until the next call).
+    // A vector of a different length (another model) restarts the average.
+    public float[] update(float[] probabilities) {
+        if (state == null || state.length != probabilities.length) {
+            state = probabilities.clone();
+            frames = 1;
+            return state;
+        }
+        for (int i = 0; i < state.length; i++) {
+            state[i] += alpha * (probabilities[i] - state[i]);
+        }
+        frames++;
+        return state;
+    }
+    
+    public int getFrames() {
+        return frames;
+    }
+    
+    public void reset() {
+        state = null;
+        frames = 0;
+    }
+}
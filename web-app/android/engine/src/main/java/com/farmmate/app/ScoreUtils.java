@@ -0,0 +1,79 @@
+package com.farmmate.app;
+
+/**
+ * Selection helpers over model output scores. Plain Java so the hot path
+ * can be benchmarked on the JVM.
+ */
+public final class ScoreUtils {
+    private ScoreUtils() {
+    }
+    
+    // Index of the largest of the first count scores
+    public static int argmax(float[] scores, int count) {
+        int maxIndex = 0;
+        float maxValue = scores[0];
+        for (int i = 1; i < Math.min(count, scores.length); i++) {
+            if (scores[i] > maxValue) {
+                maxValue = scores[i];
+                maxIndex = i;
+            }
+        }
+        return maxIndex;
+    }
+    
+    // Writes the indices of the k largest of the first count scores into out, best first,
+    // and returns how many were written. Insertion into out keeps this allocation-free and
+    // O(count * k), which beats sorting for the handful of classes and small k we use.
+    // Ties keep the lower index first, like argmax.
+    public static int topK(float[] scores, int count, int k, int[] out) {
+        int n = Math.min(count, scores.length);
+        int limit = Math.min(k, Math.min(n, out.length));
+        if (limit <= 0) {
+            return 0;
+        }
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            float score = scores[i];
+            if (size == limit && score <= scores[out[size - 1]]) {
+                continue;
+            }
+            int pos = size < limit ? size++ : size - 1;
+            while (pos > 0 && scores[out[pos - 1]] < score) {
+                out[pos] = out[pos - 1];
+                pos--;
+            }
+            out[pos] = i;
+        }
+        return size;
+    }
+    
+    // True when the scores already look like softmax output: each in [0, 1], summing to ~1.
+    // Quantized outputs are coarse, hence the loose tolerance.
+    public static boolean isDistribution(float[] scores, int count) {
+        float sum = 0f;
+        for (int i = 0; i < Math.min(count, scores.length); i++) {
+            if (scores[i] < 0f || scores[i] > 1f || Float.isNaN(scores[i])) {
+                return false;
+            }
+            sum += scores[i];
+        }
+        return Math.abs(sum - 1f) < 0.05f;
+    }
+    
+    // In-place softmax(scores / temperature) over the first count entries
+    public static void softmax(float[] scores, int count, float temperature) {
+        int n = Math.min(count, scores.length);
+        if (n == 0) {
+            return;
+        }
+        float max = scores[argmax(scores, n)];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            scores[i] = (float) Math.exp((scores[i] - max) / temperature);
+            sum += scores[i];
+        }
+        for (int i = 0; i < n; i++) {
+            scores[i] = (float) (scores[i] / sum);
+        }
+    }
+}
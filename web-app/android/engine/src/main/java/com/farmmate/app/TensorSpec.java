@@ -0,0 +1,90 @@
+package com.farmmate.app;
+
+import java.util.Arrays;
+
+/**
+ * Element type, shape and quantization of a model input or output,
+ * read from the interpreter instead of being hardcoded.
+ */
+public final class TensorSpec {
+    public enum Type {
+        FLOAT32(4), UINT8(1), INT8(1);
+        
+        final int bytes;
+        
+        Type(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+    
+    private final Type type;
+    private final int[] shape;
+    private final float scale;
+    private final int zeroPoint;
+    
+    public TensorSpec(Type type, int[] shape, float scale, int zeroPoint) {
+        this.type = type;
+        this.shape = shape.clone();
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public int[] getShape() {
+        return shape.clone();
+    }
+    
+    public int getDim(int index) {
+        return shape[index];
+    }
+    
+    public float getScale() {
+        return scale;
+    }
+    
+    public int getZeroPoint() {
+        return zeroPoint;
+    }
+    
+    public boolean isQuantized() {
+        return type != Type.FLOAT32;
+    }
+    
+    // Elements per batch item, i.e. everything after the leading batch dimension
+    public int elementsPerItem() {
+        int n = 1;
+        for (int i = 1; i < shape.length; i++) {
+            n *= shape[i];
+        }
+        return n;
+    }
+    
+    public int bytesPerItem() {
+        return elementsPerItem() * type.bytes;
+    }
+    
+    // raw is the stored byte value; uint8 callers pass it already masked with 0xFF
+    public float dequantize(int raw) {
+        // A quantized tensor without params (scale 0) carries raw values
+        if (scale == 0f) {
+            return raw;
+        }
+        return (raw - zeroPoint) * scale;
+    }
+    
+    // Quantized output bytes of one item into floats
+    public void dequantize(byte[] raw, float[] out) {
+        boolean unsigned = type == Type.UINT8;
+        for (int i = 0; i < raw.length && i < out.length; i++) {
+            out[i] = dequantize(unsigned ? raw[i] & 0xFF : raw[i]);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return type + Arrays.toString(shape) + (isQuantized() ? " q(" + scale + ", " + zeroPoint + ")" : "");
+    }
+}
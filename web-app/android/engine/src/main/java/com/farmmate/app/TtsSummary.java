@@ -0,0 +1,57 @@
+package com.farmmate.app;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One paragraph for text-to-speech from an advice entry's cause/cure/suggestions arrays.
+ * advice-store.gradle builds the same text into advice_<lang>.bin (format 2); this is the
+ * fallback for older stores and the JSON path. Keep the two in sync.
+ */
+public final class TtsSummary {
+    // Cause, cure and suggestions headings, romanized like agronomy-db/data
+    private static final Map<String, String[]> HEADINGS = new HashMap<>();
+    static {
+        HEADINGS.put("en", new String[] {"Causes", "Treatment", "Tips"});
+        HEADINGS.put("hi", new String[] {"Kaaran", "Upchaar", "Sujhaav"});
+        HEADINGS.put("te", new String[] {"Kaaranaalu", "Chikitsa", "Soochanalu"});
+    }
+    
+    private TtsSummary() {
+    }
+    
+    // "Early blight. Causes: a. b. Treatment: c. Tips: d." with empty sections left out
+    public static String build(String language, String disease, String[] cause, String[] cure, String[] suggestions) {
+        String[] headings = HEADINGS.get(language);
+        if (headings == null) {
+            headings = HEADINGS.get("en");
+        }
+        StringBuilder text = new StringBuilder(spokenName(disease)).append('.');
+        appendSection(text, headings[0], cause);
+        appendSection(text, headings[1], cure);
+        appendSection(text, headings[2], suggestions);
+        return text.toString();
+    }
+    
+    // Tomato_Early_blight -> "Tomato Early blight"
+    static String spokenName(String disease) {
+        return disease.replace('_', ' ').replaceAll("\\s+", " ").trim();
+    }
+    
+    private static void appendSection(StringBuilder text, String heading, String[] items) {
+        if (items == null || items.length == 0) {
+            return;
+        }
+        text.append(' ').append(heading).append(':');
+        for (String item : items) {
+            String sentence = item.trim();
+            if (sentence.isEmpty()) {
+                continue;
+            }
+            text.append(' ').append(sentence);
+            if (!sentence.endsWith(".") && !sentence.endsWith("!") && !sentence.endsWith("?")) {
+                text.append('.');
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.farmmate.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One YUV_420_888 camera frame (plane buffers plus strides), reused across frames.
+ * toArgb() rotates upright, takes the centre square and samples it straight to the
+ * model's input size, so live scanning never builds a full-size RGB Bitmap.
+ * Plain Java (no android.*) so it can be benchmarked on the JVM.
+ */
+public final class YuvFrame {
+    // clamp(v) == CLAMP[v + CLAMP_OFFSET] over every value the conversion can produce;
+    // a table instead of branches, which mispredict on noisy leaf texture
+    private static final int CLAMP_OFFSET = 512;
+    private static final int[] CLAMP = new int[1024];
+    
+    static {
+        for (int i = 0; i < CLAMP.length; i++) {
+            CLAMP[i] = Math.max(0, Math.min(255, i - CLAMP_OFFSET));
+        }
+    }
+    
+    private ByteBuffer y;
+    private ByteBuffer u;
+    private ByteBuffer v;
+    private int yRowStride;
+    private int uvRowStride;
+    private int uvPixelStride;
+    private int width;
+    private int height;
+    private int rotation;
+    private int[] columnY = new int[0];
+    private int[] columnUv = new int[0];
+    
+    // rotation is the clockwise rotation (0/90/180/270) that makes the frame upright
+    public void set(ByteBuffer y, ByteBuffer u, ByteBuffer v, int yRowStride, int uvRowStride, int uvPixelStride,
+                    int width, int height, int rotation) {
+        this.y = y;
+        this.u = u;
+        this.v = v;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.width = width;
+        this.height = height;
+        this.rotation = ((rotation % 360) + 360) % 360;
+    }
+    
+    // Nearest-neighbour sample of the upright centre square into dstWidth x dstHeight ARGB pixels.
+    // BT.601 full-range (JFIF) conversion in 16.16 fixed point, as camera YUV is full range.
+    public void toArgb(int[] out, int dstWidth, int dstHeight) {
+        boolean swap = rotation == 90 || rotation == 270;
+        int uprightWidth = swap ? height : width;
+        int uprightHeight = swap ? width : height;
+        int side = Math.min(uprightWidth, uprightHeight);
+        int offsetX = (uprightWidth - side) / 2;
+        int offsetY = (uprightHeight - side) / 2;
+        
+        // Every rotation maps upright (x, y) to a source offset of the form column(x) + row(y),
+        // so the per-pixel work is two lookups and an add
+        if (columnY.length < dstWidth) {
+            columnY = new int[dstWidth];
+            columnUv = new int[dstWidth];
+        }
+        for (int dx = 0; dx < dstWidth; dx++) {
+            int rx = offsetX + dx * side / dstWidth;
+            columnY[dx] = offsetOf(rx, true, false);
+            columnUv[dx] = offsetOf(rx, true, true);
+        }
+        
+        final ByteBuffer lumaPlane = y;
+        final ByteBuffer uPlane = u;
+        final ByteBuffer vPlane = v;
+        final int[] lumaColumns = columnY;
+        final int[] chromaColumns = columnUv;
+        int o = 0;
+        for (int dy = 0; dy < dstHeight; dy++) {
+            int ry = offsetY + dy * side / dstHeight;
+            int rowY = offsetOf(ry, false, false);
+            int rowUv = offsetOf(ry, false, true);
+            for (int dx = 0; dx < dstWidth; dx++) {
+                int luma = lumaPlane.get(rowY + lumaColumns[dx]) & 0xFF;
+                int uvIndex = rowUv + chromaColumns[dx];
+                int cb = (uPlane.get(uvIndex) & 0xFF) - 128;
+                int cr = (vPlane.get(uvIndex) & 0xFF) - 128;
+                int r = luma + ((91881 * cr) >> 16);
+                int g = luma - ((22554 * cb + 46802 * cr) >> 16);
+                int b = luma + ((116130 * cb) >> 16);
+                out[o++] = 0xFF000000 | (CLAMP[r + CLAMP_OFFSET] << 16) | (CLAMP[g + CLAMP_OFFSET] << 8)
+                        | CLAMP[b + CLAMP_OFFSET];
+            }
+        }
+    }
+    
+    // Source buffer offset contributed by an upright column (horizontal) or row coordinate
+    private int offsetOf(int upright, boolean horizontal, boolean chroma) {
+        int sourceX = -1;
+        int sourceY = -1;
+        switch (rotation) {
+            case 90:
+                if (horizontal) {
+                    sourceY = height - 1 - upright;
+                } else {
+                    sourceX = upright;
+                }
+                break;
+            case 180:
+                if (horizontal) {
+                    sourceX = width - 1 - upright;
+                } else {
+                    sourceY = height - 1 - upright;
+                }
+                break;
+            case 270:
+                if (horizontal) {
+                    sourceY = upright;
+                } else {
+                    sourceX = width - 1 - upright;
+                }
+                break;
+            default:
+                if (horizontal) {
+                    sourceX = upright;
+                } else {
+                    sourceY = upright;
+                }
+                break;
+        }
+        if (sourceX >= 0) {
+            return chroma ? (sourceX >> 1) * uvPixelStride : sourceX;
+        }
+        return chroma ? (sourceY >> 1) * uvRowStride : sourceY * yRowStride;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+}
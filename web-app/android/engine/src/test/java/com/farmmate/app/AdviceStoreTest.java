@@ -0,0 +1,122 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class AdviceStoreTest {
+    private static final String[] CAUSE = {"Fungus Alternaria solani"};
+    private static final String[] CURE = {"Spray mancozeb", "Remove infected leaves."};
+    private static final String[] TIPS = {};
+    
+    @Test
+    public void readsEntriesAndAliases() throws Exception {
+        AdviceStore store = AdviceStore.read(new ByteArrayInputStream(write(2)), "en");
+        AdviceStore.Entry blight = store.lookup("Tomato", "Tomato_Early_blight");
+        assertEquals("Tomato_Early_blight", blight.getDisease());
+        assertEquals("Early blight, spoken.", blight.getTtsSummary());
+        JSONObject json = blight.toJson();
+        assertEquals("Spray mancozeb", json.getJSONArray("cure").getString(0));
+        assertEquals(0, json.getJSONArray("suggestions").length());
+        // The alias points at the same entry, not a copy
+        assertSame(blight, store.lookup("tomato", "Early blight (Alternaria)"));
+        assertEquals("Tomato_healthy", store.lookup("tomato", "Tomato_healthy").getDisease());
+    }
+    
+    @Test
+    public void version1BuildsSummary() throws Exception {
+        AdviceStore store = AdviceStore.read(new ByteArrayInputStream(write(1)), "hi");
+        assertEquals(TtsSummary.build("hi", "Tomato_Early_blight", CAUSE, CURE, TIPS),
+                store.lookup("tomato", "Tomato_Early_blight").getTtsSummary());
+    }
+    
+    @Test
+    public void unknownLabelsResolveFuzzilyAndUnknownCropsDoNot() throws Exception {
+        AdviceStore store = AdviceStore.read(new ByteArrayInputStream(write(2)), "en");
+        assertEquals("Tomato_healthy", store.lookup("tomato", "tomato healthy").getDisease());
+        // No match falls back to the crop's first disease
+        assertEquals("Tomato_Early_blight", store.lookup("tomato", "Leaf curl").getDisease());
+        assertNull(store.lookup("wheat", "Rust"));
+    }
+    
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        try {
+            AdviceStore.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 0, 0, 0, 2}), "en");
+            fail();
+        } catch (IOException expected) {
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(AdviceStore.MAGIC);
+        out.writeInt(AdviceStore.VERSION + 1);
+        try {
+            AdviceStore.read(new ByteArrayInputStream(bytes.toByteArray()), "en");
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+    
+    @Test
+    public void jsonMatchesBinaryLayout() throws Exception {
+        JSONObject data = new JSONObject("{\"tomato\": {"
+                + "\"Tomato_Early_blight\": {\"cause\": [\"Fungus\"], \"cure\": []},"
+                + "\"Tomato_healthy\": {\"suggestions\": [\"Keep watering\"]}}}");
+        AdviceStore store = AdviceStore.fromJson(data);
+        JSONObject healthy = store.lookup("Tomato", "Tomato_healthy").toJson();
+        assertEquals("Keep watering", healthy.getJSONArray("suggestions").getString(0));
+        assertEquals(0, healthy.getJSONArray("cause").length());
+        assertEquals("Fungus", store.lookup("tomato", "Tomato_Early_blight").toJson().getJSONArray("cause").getString(0));
+    }
+    
+    @Test
+    public void jsonSummaryOverridesBuiltOne() throws Exception {
+        JSONObject data = new JSONObject("{\"tomato\": {"
+                + "\"Tomato_Early_blight\": {\"cause\": [\"Fungus\"], \"cure\": [], \"tts_summary\": \"Custom.\"},"
+                + "\"Tomato_healthy\": {\"suggestions\": [\"Keep watering\"]}}}");
+        AdviceStore store = AdviceStore.fromJson(data, "te");
+        assertEquals("Custom.", store.lookup("tomato", "Tomato_Early_blight").getTtsSummary());
+        assertEquals("Tomato healthy. Soochanalu: Keep watering.",
+                store.lookup("tomato", "Tomato_healthy").getTtsSummary());
+    }
+    
+    // Same layout compileAdviceStore writes; format 1 has no summaries
+    private static byte[] write(int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(AdviceStore.MAGIC);
+        out.writeInt(version);
+        out.writeInt(2);
+        writeEntry(out, version, "tomato", "Tomato_Early_blight", CAUSE, CURE, TIPS, "Early blight, spoken.");
+        writeEntry(out, version, "tomato", "Tomato_healthy", new String[0], new String[0], TIPS, "Healthy.");
+        out.writeInt(1);
+        out.writeUTF("tomato");
+        out.writeUTF("Early blight (Alternaria)");
+        out.writeInt(0);
+        out.flush();
+        return bytes.toByteArray();
+    }
+    
+    private static void writeEntry(DataOutputStream out, int version, String crop, String disease,
+                                   String[] cause, String[] cure, String[] tips, String summary) throws IOException {
+        out.writeUTF(crop);
+        out.writeUTF(disease);
+        for (String[] values : new String[][] {cause, cure, tips}) {
+            out.writeShort(values.length);
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+        if (version >= 2) {
+            out.writeUTF(summary);
+        }
+    }
+}
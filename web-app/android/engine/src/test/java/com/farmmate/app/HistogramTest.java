@@ -0,0 +1,84 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class HistogramTest {
+    private static final double MAX_ERROR = 0.125;
+    
+    @Test
+    public void smallValuesAreExact() {
+        for (int v = 0; v < 8; v++) {
+            assertEquals(v, Histogram.bucketMidpoint(Histogram.bucketIndex(v)));
+        }
+    }
+    
+    @Test
+    public void bucketMidpointIsWithinErrorBound() {
+        for (long v = 1; v < 1 << 20; v++) {
+            assertWithinBound(v, Histogram.bucketMidpoint(Histogram.bucketIndex(v)));
+        }
+        for (int bit = 20; bit < 63; bit++) {
+            long base = 1L << bit;
+            for (long v : new long[] {base, base + base / 3, base + base / 2, base * 2 - 1}) {
+                assertWithinBound(v, Histogram.bucketMidpoint(Histogram.bucketIndex(v)));
+            }
+        }
+        // The last bucket covers the largest long without overflowing
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        assertWithinBound(Long.MAX_VALUE, histogram.getPercentile(1.0));
+    }
+    
+    @Test
+    public void percentilesAreWithinErrorBound() {
+        Random random = new Random(7);
+        long[] values = new long[10000];
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-uniform from 1 us to ~1 s, like stage latencies
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(1000000));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[] {0.5, 0.9, 0.95, 0.99}) {
+            long expected = values[(int) Math.ceil(q * values.length) - 1];
+            assertWithinBound(expected, histogram.getPercentile(q));
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values.length, histogram.getCount());
+    }
+    
+    @Test
+    public void percentileNeverExceedsMax() {
+        Histogram histogram = new Histogram();
+        // 961 falls in [960, 1024), whose midpoint 992 would overshoot the only value
+        histogram.record(961);
+        assertEquals(961, histogram.getPercentile(0.5));
+    }
+    
+    @Test
+    public void emptyAndReset() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(0, histogram.getMean());
+        histogram.record(10);
+        histogram.record(30);
+        histogram.record(-5);
+        assertEquals(3, histogram.getCount());
+        assertEquals(13, histogram.getMean());
+        assertEquals(30, histogram.getMax());
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+    
+    private static void assertWithinBound(long expected, long actual) {
+        assertTrue(actual + " vs " + expected, Math.abs(actual - expected) <= MAX_ERROR * expected);
+    }
+}
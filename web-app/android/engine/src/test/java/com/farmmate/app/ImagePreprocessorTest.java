@@ -0,0 +1,83 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import org.junit.Test;
+
+public class ImagePreprocessorTest {
+    
+    @Test
+    public void lookupTableMatchesFloatFormula() {
+        float[][] params = {{127.5f, 127.5f}, {0f, 255f}, {123.7f, 58.4f}};
+        for (float[] p : params) {
+            ImagePreprocessor preprocessor = new ImagePreprocessor(p[0], p[1]);
+            for (int v = 0; v < 256; v++) {
+                assertEquals((v - p[0]) / p[1], preprocessor.normalize(v), 0f);
+            }
+        }
+    }
+    
+    @Test
+    public void signedUnitRangeMapsEndpoints() {
+        ImagePreprocessor preprocessor = ImagePreprocessor.signedUnitRange();
+        assertEquals(-1f, preprocessor.normalize(0), 0f);
+        assertEquals(1f, preprocessor.normalize(255), 0f);
+    }
+    
+    @Test
+    public void fillTensorWritesRgbAndIgnoresAlpha() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(0f, 1f);
+        int[] argb = {0x80102030, 0xFF405060};
+        float[] out = new float[8];
+        preprocessor.fillTensor(argb, 2, out, 1);
+        assertArrayEquals(new float[] {0, 0x10, 0x20, 0x30, 0x40, 0x50, 0x60, 0}, out, 0f);
+        
+        FloatBuffer buffer = FloatBuffer.allocate(6);
+        preprocessor.fillTensor(argb, 2, buffer);
+        assertArrayEquals(new float[] {0x10, 0x20, 0x30, 0x40, 0x50, 0x60}, buffer.array(), 0f);
+    }
+    
+    @Test
+    public void quantizedTableMatchesFormula() {
+        ImagePreprocessor preprocessor = ImagePreprocessor.signedUnitRange();
+        TensorSpec uint8 = new TensorSpec(TensorSpec.Type.UINT8, new int[] {1, 2, 2, 3}, 1f / 128, 128);
+        TensorSpec int8 = new TensorSpec(TensorSpec.Type.INT8, new int[] {1, 2, 2, 3}, 1f / 128, 0);
+        byte[] uint8Table = preprocessor.quantizedTable(uint8);
+        byte[] int8Table = preprocessor.quantizedTable(int8);
+        for (int v = 0; v < 256; v++) {
+            float normalized = preprocessor.normalize(v);
+            int u = Math.max(0, Math.min(255, Math.round(normalized * 128) + 128));
+            int s = Math.max(-128, Math.min(127, Math.round(normalized * 128)));
+            assertEquals(u, uint8Table[v] & 0xFF);
+            assertEquals(s, int8Table[v]);
+        }
+        // 1.0 / (1/128) + 128 = 256 clamps to the top of the range
+        assertEquals(0, uint8Table[0] & 0xFF);
+        assertEquals(255, uint8Table[255] & 0xFF);
+        assertEquals(-128, int8Table[0]);
+        assertEquals(127, int8Table[255]);
+    }
+    
+    @Test
+    public void quantizedTableWithoutParamsPassesRawValues() {
+        ImagePreprocessor preprocessor = ImagePreprocessor.signedUnitRange();
+        byte[] uint8Table = preprocessor.quantizedTable(new TensorSpec(TensorSpec.Type.UINT8, new int[] {1, 3}, 0f, 0));
+        byte[] int8Table = preprocessor.quantizedTable(new TensorSpec(TensorSpec.Type.INT8, new int[] {1, 3}, 0f, 0));
+        for (int v = 0; v < 256; v++) {
+            assertEquals(v, uint8Table[v] & 0xFF);
+            assertEquals(v - 128, int8Table[v]);
+        }
+    }
+    
+    @Test
+    public void fillTensorWritesQuantizedBytes() {
+        ImagePreprocessor preprocessor = ImagePreprocessor.signedUnitRange();
+        byte[] table = preprocessor.quantizedTable(new TensorSpec(TensorSpec.Type.UINT8, new int[] {1, 3}, 0f, 0));
+        ByteBuffer out = ByteBuffer.allocate(3);
+        preprocessor.fillTensor(new int[] {0xFF0180FF}, 1, out, table);
+        assertArrayEquals(new byte[] {1, (byte) 0x80, (byte) 0xFF}, out.array());
+    }
+}
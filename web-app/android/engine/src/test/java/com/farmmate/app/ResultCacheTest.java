@@ -0,0 +1,82 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ResultCacheTest {
+    // ENTRY_OVERHEAD_BYTES plus ten floats
+    private static final long ENTRY_BYTES = 96 + 4 * 10;
+    
+    @Test
+    public void countsHitsAndMisses() {
+        ResultCache cache = new ResultCache(4, 1 << 20);
+        float[] probabilities = new float[10];
+        assertNull(cache.get("tomato", 1L));
+        cache.put("tomato", 1L, probabilities);
+        assertSame(probabilities, cache.get("tomato", 1L));
+        // Same hash under another crop is a different entry
+        assertNull(cache.get("potato", 1L));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+    
+    @Test
+    public void evictsLeastRecentlyUsedByCount() {
+        ResultCache cache = new ResultCache(2, 1 << 20);
+        cache.put("tomato", 1L, new float[10]);
+        cache.put("tomato", 2L, new float[10]);
+        cache.get("tomato", 1L);
+        cache.put("tomato", 3L, new float[10]);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("tomato", 2L));
+        assertEquals(2 * ENTRY_BYTES, cache.getByteCount());
+    }
+    
+    @Test
+    public void evictsByBytes() {
+        ResultCache cache = new ResultCache(100, 2 * ENTRY_BYTES);
+        cache.put("tomato", 1L, new float[10]);
+        cache.put("tomato", 2L, new float[10]);
+        assertEquals(0, cache.getEvictions());
+        cache.put("tomato", 3L, new float[10]);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2 * ENTRY_BYTES, cache.getByteCount());
+        assertNull(cache.get("tomato", 1L));
+    }
+    
+    @Test
+    public void replacingEntryRecountsBytes() {
+        ResultCache cache = new ResultCache(4, 1 << 20);
+        cache.put("tomato", 1L, new float[10]);
+        cache.put("tomato", 1L, new float[20]);
+        assertEquals(1, cache.size());
+        assertEquals(96 + 4 * 20, cache.getByteCount());
+    }
+    
+    @Test
+    public void clearKeepsCounters() {
+        ResultCache cache = new ResultCache(4, 1 << 20);
+        cache.put("tomato", 1L, new float[10]);
+        cache.get("tomato", 1L);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteCount());
+        assertEquals(1, cache.getHits());
+    }
+    
+    @Test
+    public void hashIgnoresAlpha() {
+        int[] opaque = {0xFF102030, 0xFF405060};
+        int[] translucent = {0x00102030, 0x80405060};
+        int[] other = {0xFF102030, 0xFF405061};
+        assertEquals(ResultCache.hash(opaque, 2), ResultCache.hash(translucent, 2));
+        assertNotEquals(ResultCache.hash(opaque, 2), ResultCache.hash(other, 2));
+        assertNotEquals(ResultCache.hash(opaque, 1), ResultCache.hash(opaque, 2));
+    }
+}
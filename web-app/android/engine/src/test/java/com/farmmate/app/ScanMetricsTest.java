@@ -0,0 +1,49 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ScanMetricsTest {
+    
+    @Test
+    public void noneIsConstructedAndRecordsNothing() throws Exception {
+        // NONE is built during class initialization, so it must see the stage table
+        ScanMetrics none = ScanMetrics.NONE;
+        assertNotNull(none);
+        none.begin(ScanMetrics.Stage.INFERENCE);
+        none.end(ScanMetrics.Stage.INFERENCE);
+        assertEquals(0, none.getLatency(ScanMetrics.Stage.INFERENCE).getCount());
+        JSONObject stages = none.toJson().getJSONObject("stages");
+        assertEquals(ScanMetrics.Stage.values().length, stages.length());
+        assertFalse(stages.getJSONObject("inference").has("mean_bytes"));
+    }
+    
+    @Test
+    public void recordsLatencyAndBytesPerStage() throws Exception {
+        AtomicLong allocated = new AtomicLong();
+        ScanMetrics metrics = new ScanMetrics(allocated::get);
+        metrics.begin(ScanMetrics.Stage.TOTAL);
+        metrics.begin(ScanMetrics.Stage.TENSOR_FILL);
+        allocated.addAndGet(4096);
+        metrics.end(ScanMetrics.Stage.TENSOR_FILL);
+        allocated.addAndGet(1024);
+        metrics.end(ScanMetrics.Stage.TOTAL);
+        
+        assertEquals(4096, metrics.getBytes(ScanMetrics.Stage.TENSOR_FILL).getMax());
+        assertEquals(5120, metrics.getBytes(ScanMetrics.Stage.TOTAL).getMax());
+        assertEquals(1, metrics.getLatency(ScanMetrics.Stage.TOTAL).getCount());
+        assertEquals(0, metrics.getLatency(ScanMetrics.Stage.INFERENCE).getCount());
+        JSONObject fill = metrics.toJson().getJSONObject("stages").getJSONObject("tensor_fill");
+        assertEquals(1, fill.getLong("count"));
+        assertTrue(fill.has("p99_bytes"));
+        
+        metrics.reset();
+        assertEquals(0, metrics.getLatency(ScanMetrics.Stage.TOTAL).getCount());
+    }
+}
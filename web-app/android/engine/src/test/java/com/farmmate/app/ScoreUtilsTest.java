@@ -0,0 +1,116 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class ScoreUtilsTest {
+    
+    @Test
+    public void topKReturnsBestFirst() {
+        float[] scores = {0.1f, 0.4f, 0.05f, 0.3f, 0.15f};
+        int[] out = new int[3];
+        assertEquals(3, ScoreUtils.topK(scores, scores.length, 3, out));
+        assertArrayEquals(new int[] {1, 3, 4}, out);
+    }
+    
+    @Test
+    public void topKTiesKeepLowerIndexFirst() {
+        float[] scores = {0.2f, 0.5f, 0.5f, 0.1f, 0.5f};
+        int[] out = new int[4];
+        assertEquals(4, ScoreUtils.topK(scores, scores.length, 4, out));
+        assertArrayEquals(new int[] {1, 2, 4, 0}, out);
+        assertEquals(1, ScoreUtils.topK(scores, scores.length, 1, out));
+        assertEquals(ScoreUtils.argmax(scores, scores.length), out[0]);
+    }
+    
+    @Test
+    public void topKWithKAboveCountReturnsEverything() {
+        float[] scores = {0.3f, 0.1f, 0.6f};
+        int[] out = new int[5];
+        assertEquals(3, ScoreUtils.topK(scores, scores.length, 5, out));
+        assertArrayEquals(new int[] {2, 0, 1}, Arrays.copyOf(out, 3));
+    }
+    
+    @Test
+    public void topKHonoursCountAndOutLength() {
+        float[] scores = {0.1f, 0.2f, 0.3f, 0.9f};
+        int[] out = new int[2];
+        assertEquals(2, ScoreUtils.topK(scores, 3, 4, out));
+        assertArrayEquals(new int[] {2, 1}, out);
+        assertEquals(0, ScoreUtils.topK(scores, scores.length, 0, out));
+    }
+    
+    @Test
+    public void topKMatchesSortOnRandomScores() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 200; trial++) {
+            int n = 1 + random.nextInt(40);
+            float[] scores = new float[n];
+            for (int i = 0; i < n; i++) {
+                // Few distinct values so ties are common
+                scores[i] = random.nextInt(8) / 8f;
+            }
+            int k = 1 + random.nextInt(n + 2);
+            int[] out = new int[k];
+            int count = ScoreUtils.topK(scores, n, k, out);
+            Integer[] sorted = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = i;
+            }
+            // Stable sort keeps lower indices first among equal scores
+            Arrays.sort(sorted, (a, b) -> Float.compare(scores[b], scores[a]));
+            assertEquals(Math.min(k, n), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(sorted[i].intValue(), out[i]);
+            }
+        }
+    }
+    
+    @Test
+    public void softmaxMatchesFormula() {
+        float[] logits = {1f, 2f, 3f};
+        float[] scores = logits.clone();
+        ScoreUtils.softmax(scores, scores.length, 1f);
+        double sum = Math.exp(1) + Math.exp(2) + Math.exp(3);
+        for (int i = 0; i < logits.length; i++) {
+            assertEquals(Math.exp(logits[i]) / sum, scores[i], 1e-6);
+        }
+        assertTrue(ScoreUtils.isDistribution(scores, scores.length));
+        assertFalse(ScoreUtils.isDistribution(logits, logits.length));
+    }
+    
+    @Test
+    public void softmaxTemperatureFlattens() {
+        float[] sharp = {0f, 2f};
+        float[] flat = {0f, 2f};
+        ScoreUtils.softmax(sharp, 2, 1f);
+        ScoreUtils.softmax(flat, 2, 4f);
+        assertTrue(flat[1] < sharp[1]);
+        assertEquals(1.0 / (1.0 + Math.exp(-0.5)), flat[1], 1e-6);
+    }
+    
+    @Test
+    public void softmaxHandlesTiesAndLargeLogits() {
+        float[] ties = {5f, 5f, 5f, 5f};
+        ScoreUtils.softmax(ties, ties.length, 1f);
+        assertArrayEquals(new float[] {0.25f, 0.25f, 0.25f, 0.25f}, ties, 1e-6f);
+        
+        float[] large = {1000f, 1001f};
+        ScoreUtils.softmax(large, large.length, 1f);
+        assertEquals(1.0 / (1.0 + Math.E), large[0], 1e-6);
+        assertEquals(Math.E / (1.0 + Math.E), large[1], 1e-6);
+    }
+    
+    @Test
+    public void softmaxOnlyTouchesCount() {
+        float[] scores = {0f, 0f, 7f};
+        ScoreUtils.softmax(scores, 2, 1f);
+        assertArrayEquals(new float[] {0.5f, 0.5f, 7f}, scores, 1e-6f);
+    }
+}
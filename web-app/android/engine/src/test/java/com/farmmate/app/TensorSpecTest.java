@@ -0,0 +1,53 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TensorSpecTest {
+    private static final int[] SHAPE = {1, 3};
+    
+    @Test
+    public void dequantizeUint8TreatsBytesAsUnsigned() {
+        TensorSpec spec = new TensorSpec(TensorSpec.Type.UINT8, SHAPE, 0.5f, 10);
+        float[] out = new float[3];
+        spec.dequantize(new byte[] {(byte) 200, 10, 0}, out);
+        assertArrayEquals(new float[] {95f, 0f, -5f}, out, 0f);
+    }
+    
+    @Test
+    public void dequantizeInt8TreatsBytesAsSigned() {
+        TensorSpec spec = new TensorSpec(TensorSpec.Type.INT8, SHAPE, 0.5f, 10);
+        float[] out = new float[3];
+        spec.dequantize(new byte[] {(byte) 200, 10, -128}, out);
+        assertArrayEquals(new float[] {-33f, 0f, -69f}, out, 0f);
+    }
+    
+    @Test
+    public void dequantizeWithoutParamsReturnsRawValue() {
+        TensorSpec spec = new TensorSpec(TensorSpec.Type.UINT8, SHAPE, 0f, 0);
+        assertEquals(200f, spec.dequantize(200), 0f);
+    }
+    
+    @Test
+    public void dequantizeStopsAtShorterArray() {
+        TensorSpec spec = new TensorSpec(TensorSpec.Type.UINT8, SHAPE, 1f, 0);
+        float[] out = new float[2];
+        spec.dequantize(new byte[] {1, 2, 3}, out);
+        assertArrayEquals(new float[] {1f, 2f}, out, 0f);
+    }
+    
+    @Test
+    public void sizesSkipBatchDimension() {
+        TensorSpec input = new TensorSpec(TensorSpec.Type.FLOAT32, new int[] {1, 256, 256, 3}, 0f, 0);
+        assertEquals(256 * 256 * 3, input.elementsPerItem());
+        assertEquals(256 * 256 * 3 * 4, input.bytesPerItem());
+        assertFalse(input.isQuantized());
+        TensorSpec output = new TensorSpec(TensorSpec.Type.INT8, new int[] {1, 10}, 0.1f, 0);
+        assertEquals(10, output.bytesPerItem());
+        assertTrue(output.isQuantized());
+    }
+}
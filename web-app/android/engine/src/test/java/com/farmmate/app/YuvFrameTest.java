@@ -0,0 +1,120 @@
+package com.farmmate.app;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class YuvFrameTest {
+    private static final int WIDTH = 6;
+    private static final int HEIGHT = 4;
+    
+    @Test
+    public void rotatesAndCropsCentreSquare() {
+        for (int rotation : new int[] {0, 90, 180, 270}) {
+            YuvFrame frame = grayFrame(rotation);
+            int side = Math.min(WIDTH, HEIGHT);
+            int[] out = new int[side * side];
+            frame.toArgb(out, side, side);
+            boolean swap = rotation == 90 || rotation == 270;
+            int offsetX = ((swap ? HEIGHT : WIDTH) - side) / 2;
+            int offsetY = ((swap ? WIDTH : HEIGHT) - side) / 2;
+            for (int dy = 0; dy < side; dy++) {
+                for (int dx = 0; dx < side; dx++) {
+                    int expected = lumaAtUpright(offsetX + dx, offsetY + dy, rotation);
+                    assertEquals("rotation " + rotation + " at " + dx + "," + dy,
+                            gray(expected), out[dy * side + dx]);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void samplesDownToTargetSize() {
+        YuvFrame frame = grayFrame(90);
+        int[] out = new int[4];
+        frame.toArgb(out, 2, 2);
+        // Upright frame is 4x6; its centre 4x4 square starts at row 1 and every other pixel is kept
+        assertEquals(gray(lumaAtUpright(0, 1, 90)), out[0]);
+        assertEquals(gray(lumaAtUpright(2, 1, 90)), out[1]);
+        assertEquals(gray(lumaAtUpright(0, 3, 90)), out[2]);
+        assertEquals(gray(lumaAtUpright(2, 3, 90)), out[3]);
+    }
+    
+    @Test
+    public void negativeRotationIsNormalized() {
+        YuvFrame a = grayFrame(270);
+        YuvFrame b = grayFrame(-90);
+        int[] outA = new int[16];
+        int[] outB = new int[16];
+        a.toArgb(outA, 4, 4);
+        b.toArgb(outB, 4, 4);
+        assertEquals(Arrays.toString(outA), Arrays.toString(outB));
+    }
+    
+    @Test
+    public void chromaIsSubsampledWithPixelStride() {
+        // Interleaved VU plane as on NV21 devices: pixel stride 2, v at even offsets
+        int uvRowStride = WIDTH;
+        byte[] vu = new byte[uvRowStride * HEIGHT / 2];
+        for (int cy = 0; cy < HEIGHT / 2; cy++) {
+            for (int cx = 0; cx < WIDTH / 2; cx++) {
+                vu[cy * uvRowStride + cx * 2] = (byte) (128 + 10 * (cy * 3 + cx));
+                vu[cy * uvRowStride + cx * 2 + 1] = (byte) 128;
+            }
+        }
+        ByteBuffer v = ByteBuffer.wrap(vu);
+        ByteBuffer u = ByteBuffer.wrap(vu, 1, vu.length - 1).slice();
+        YuvFrame frame = new YuvFrame();
+        frame.set(ByteBuffer.wrap(new byte[WIDTH * HEIGHT]), u, v, WIDTH, uvRowStride, 2, WIDTH, HEIGHT, 0);
+        int[] out = new int[16];
+        frame.toArgb(out, 4, 4);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4; x++) {
+                int sourceX = x + 1;
+                int cr = 10 * ((y >> 1) * 3 + (sourceX >> 1));
+                int red = Math.min(255, (91881 * cr) >> 16);
+                int green = Math.max(0, -((46802 * cr) >> 16));
+                int pixel = out[y * 4 + x];
+                assertEquals(red, (pixel >> 16) & 0xFF);
+                assertEquals(green, (pixel >> 8) & 0xFF);
+                assertEquals(0, pixel & 0xFF);
+            }
+        }
+    }
+    
+    // Luma 10 * y + x with neutral chroma, so every output pixel is gray
+    private static YuvFrame grayFrame(int rotation) {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                luma[y * WIDTH + x] = (byte) (10 * y + x);
+            }
+        }
+        byte[] chroma = new byte[WIDTH * HEIGHT / 4];
+        Arrays.fill(chroma, (byte) 128);
+        YuvFrame frame = new YuvFrame();
+        frame.set(ByteBuffer.wrap(luma), ByteBuffer.wrap(chroma), ByteBuffer.wrap(chroma),
+                WIDTH, WIDTH / 2, 1, WIDTH, HEIGHT, rotation);
+        return frame;
+    }
+    
+    // Source pixel shown at upright (x, y) after rotating the frame clockwise
+    private static int lumaAtUpright(int x, int y, int rotation) {
+        switch (rotation) {
+            case 90:
+                return 10 * (HEIGHT - 1 - x) + y;
+            case 180:
+                return 10 * (HEIGHT - 1 - y) + (WIDTH - 1 - x);
+            case 270:
+                return 10 * x + (WIDTH - 1 - y);
+            default:
+                return 10 * y + x;
+        }
+    }
+    
+    private static int gray(int luma) {
+        return 0xFF000000 | luma << 16 | luma << 8 | luma;
+    }
+}
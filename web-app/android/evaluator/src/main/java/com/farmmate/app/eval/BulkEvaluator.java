@@ -0,0 +1,576 @@
+package com.farmmate.app.eval;
+
+import com.farmmate.app.ImagePreprocessor;
+import com.farmmate.app.InferenceEngine;
+import com.farmmate.app.LabelParser;
+import com.farmmate.app.ModelSpec;
+import com.farmmate.app.ScanMetrics;
+import com.farmmate.app.ScoreUtils;
+import com.farmmate.app.TensorSpec;
+import org.json.JSONException;
+import org.json.JSONObject;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams a directory of labelled leaf photos through the exported models with a pool of
+ * workers, each holding its own interpreter per crop, and reports throughput, per-stage
+ * latency and a confusion matrix per crop. Exits non-zero when an accuracy or throughput
+ * gate is missed, so model and preprocessing changes can be checked before they ship.
+ *
+ *   ./gradlew :evaluator:run --args="--images /data/plantvillage --workers 4"
+ *
+ * Images are read from IMAGES/crop/label/*.jpg (or IMAGES/label/*.jpg with --crop); label
+ * folders may carry the crop as a prefix (Tomato___Early_blight). Models come from
+ * ml-model/export/crop/crop_model.tflite with crop_labels.txt. Photos are scaled straight to
+ * the model input with bilinear filtering, like TFLiteClassifier.classifyImage on the phone
+ * (leaf cropping and tiling are not applied).
+ */
+public final class BulkEvaluator {
+    private static final String USAGE = String.join("\n",
+            "Usage: BulkEvaluator --images DIR [options]",
+            "  --models DIR           exported models (default: ml-model/export)",
+            "  --manifest FILE        models.json to read each crop's normalization from",
+            "  --crop NAME            IMAGES holds label folders of this crop only",
+            "  --workers N            parallel workers, one interpreter each per crop (default: cores / 2)",
+            "  --threads N            interpreter threads per worker (default: 1)",
+            "  --batch N              images per inference call (default: 1)",
+            "  --report FILE          also write the report as JSON",
+            "  --min-accuracy X       exit 1 when overall accuracy (0-1) is below X",
+            "  --min-throughput X     exit 1 when fewer than X images per second are classified");
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList(".jpg", ".jpeg", ".png", ".bmp");
+    
+    private final Options options;
+    private final Map<String, CropModel> models;
+    private final ScanMetrics metrics = new ScanMetrics(null);
+    private final BlockingQueue<Sample> queue;
+    private final AtomicLong classified = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    
+    private BulkEvaluator(Options options, Map<String, CropModel> models) {
+        this.options = options;
+        this.models = models;
+        this.queue = new ArrayBlockingQueue<>(options.workers * options.batch * 4);
+    }
+    
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+    
+    static int run(String[] args) {
+        Options options;
+        Map<String, CropModel> models;
+        try {
+            options = Options.parse(args);
+            models = loadModels(options);
+        } catch (IllegalArgumentException | IOException | JSONException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (!TfliteEngine.isAvailable()) {
+            System.err.println("TensorFlow Lite Java API not found: put a desktop build of the Interpreter"
+                    + " classes on the classpath and libtensorflowlite_jni on java.library.path");
+            return 2;
+        }
+        try {
+            return new BulkEvaluator(options, models).evaluate();
+        } catch (IOException | JSONException e) {
+            System.err.println("Evaluation failed: " + e.getMessage());
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+    
+    // Crops under the models directory that have both a model and labels
+    private static Map<String, CropModel> loadModels(Options options) throws IOException, JSONException {
+        JSONObject manifest = null;
+        if (options.manifest != null) {
+            manifest = new JSONObject(new String(Files.readAllBytes(options.manifest.toPath()), StandardCharsets.UTF_8))
+                    .getJSONObject("crops");
+        }
+        Map<String, CropModel> models = new LinkedHashMap<>();
+        File[] dirs = options.modelsDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            throw new IOException("No models directory: " + options.modelsDir);
+        }
+        Arrays.sort(dirs);
+        for (File dir : dirs) {
+            String crop = dir.getName().toLowerCase(Locale.ROOT);
+            File model = new File(dir, crop + "_model.tflite");
+            File labels = new File(dir, crop + "_labels.txt");
+            if (!model.isFile() || !labels.isFile() || (options.crop != null && !options.crop.equals(crop))) {
+                continue;
+            }
+            float mean = 127.5f;
+            float std = 127.5f;
+            JSONObject entry = manifest != null ? manifest.optJSONObject(crop) : null;
+            JSONObject normalization = entry != null ? entry.optJSONObject("normalization") : null;
+            if (normalization != null) {
+                mean = (float) normalization.optDouble("mean", mean);
+                std = (float) normalization.optDouble("std", std);
+            }
+            try (InputStream in = new FileInputStream(labels)) {
+                models.put(crop, new CropModel(crop, model, LabelParser.parse(in), new ImagePreprocessor(mean, std)));
+            }
+        }
+        if (models.isEmpty()) {
+            throw new IOException("No models found in " + options.modelsDir
+                    + (options.crop != null ? " for " + options.crop : ""));
+        }
+        return models;
+    }
+    
+    private int evaluate() throws IOException, JSONException, InterruptedException {
+        System.out.println("Models: " + models.keySet() + ", workers: " + options.workers + ", threads: "
+                + options.threads + ", batch: " + options.batch);
+        long startNs = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        List<Worker> running = new ArrayList<>();
+        for (int i = 0; i < options.workers; i++) {
+            Worker worker = new Worker();
+            Thread thread = new Thread(worker, "evaluator-" + i);
+            running.add(worker);
+            workers.add(thread);
+            thread.start();
+        }
+        try {
+            enqueueImages();
+        } finally {
+            for (int i = 0; i < options.workers; i++) {
+                queue.put(Sample.END);
+            }
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNs) / 1000000);
+        for (Worker worker : running) {
+            if (worker.failure != null) {
+                throw worker.failure;
+            }
+        }
+        
+        JSONObject report = report(elapsedMs);
+        print(report);
+        if (options.report != null) {
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(options.report.toPath()),
+                    StandardCharsets.UTF_8)) {
+                writer.write(report.toString(2));
+            }
+            System.out.println("Report written to " + options.report);
+        }
+        return gate(report);
+    }
+    
+    // Walks the image folders in order and feeds the workers; blocks while the queue is full
+    private void enqueueImages() throws InterruptedException {
+        for (CropModel model : models.values()) {
+            File cropDir = options.crop != null ? options.imagesDir : findChild(options.imagesDir, model.crop);
+            if (cropDir == null) {
+                continue;
+            }
+            File[] labelDirs = cropDir.listFiles(File::isDirectory);
+            if (labelDirs == null) {
+                continue;
+            }
+            Arrays.sort(labelDirs);
+            for (File labelDir : labelDirs) {
+                int label = model.matchLabel(labelDir.getName());
+                if (label < 0) {
+                    System.err.println("Skipping " + labelDir + ": not a " + model.crop + " label");
+                    continue;
+                }
+                File[] files = labelDir.listFiles(BulkEvaluator::isImage);
+                if (files == null) {
+                    continue;
+                }
+                Arrays.sort(files);
+                for (File file : files) {
+                    queue.put(new Sample(file, model, label));
+                }
+            }
+        }
+    }
+    
+    private static File findChild(File dir, String name) {
+        File[] children = dir.listFiles(File::isDirectory);
+        if (children != null) {
+            for (File child : children) {
+                if (child.getName().equalsIgnoreCase(name)) {
+                    return child;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private static boolean isImage(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return file.isFile();
+            }
+        }
+        return false;
+    }
+    
+    // { images, skipped, elapsed_ms, images_per_second, accuracy, workers, threads, batch,
+    //   stages: { bitmap_decode: { count, mean_us, p50_us, ... }, ... }, crops: { tomato: {...} } }
+    private JSONObject report(long elapsedMs) throws JSONException {
+        long correct = 0;
+        long total = 0;
+        JSONObject crops = new JSONObject();
+        for (CropModel model : models.values()) {
+            if (model.matrix.getTotal() == 0) {
+                continue;
+            }
+            crops.put(model.crop, model.matrix.toJson());
+            correct += model.matrix.getCorrect();
+            total += model.matrix.getTotal();
+        }
+        JSONObject stages = new JSONObject();
+        JSONObject all = metrics.toJson().getJSONObject("stages");
+        for (ScanMetrics.Stage stage : new ScanMetrics.Stage[] {ScanMetrics.Stage.BITMAP_DECODE,
+                ScanMetrics.Stage.RESIZE, ScanMetrics.Stage.TENSOR_FILL, ScanMetrics.Stage.INFERENCE}) {
+            String key = stage.name().toLowerCase(Locale.ROOT);
+            stages.put(key, all.getJSONObject(key));
+        }
+        JSONObject report = new JSONObject();
+        report.put("images", classified.get());
+        report.put("skipped", skipped.get());
+        report.put("elapsed_ms", elapsedMs);
+        report.put("images_per_second", classified.get() * 1000.0 / elapsedMs);
+        report.put("accuracy", total > 0 ? (double) correct / total : 0);
+        report.put("workers", options.workers);
+        report.put("threads", options.threads);
+        report.put("batch", options.batch);
+        report.put("stages", stages);
+        report.put("crops", crops);
+        return report;
+    }
+    
+    private void print(JSONObject report) throws JSONException {
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%d images (%d skipped) in %.1f s: %.1f images/s, accuracy %.2f%%",
+                report.getLong("images"), report.getLong("skipped"), report.getLong("elapsed_ms") / 1000.0,
+                report.getDouble("images_per_second"), report.getDouble("accuracy") * 100));
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-14s %8s %10s %10s %10s %10s", "stage", "count", "mean_us",
+                "p50_us", "p95_us", "p99_us"));
+        JSONObject stages = report.getJSONObject("stages");
+        for (String key : new String[] {"bitmap_decode", "resize", "tensor_fill", "inference"}) {
+            JSONObject stage = stages.getJSONObject(key);
+            System.out.println(String.format(Locale.ROOT, "%-14s %8d %10d %10d %10d %10d", key, stage.getLong("count"),
+                    stage.getLong("mean_us"), stage.getLong("p50_us"), stage.getLong("p95_us"),
+                    stage.getLong("p99_us")));
+        }
+        for (CropModel model : models.values()) {
+            if (model.matrix.getTotal() == 0) {
+                continue;
+            }
+            System.out.println();
+            System.out.println(String.format(Locale.ROOT, "%s: %d images, accuracy %.2f%%", model.crop,
+                    model.matrix.getTotal(), model.matrix.getAccuracy() * 100));
+            System.out.print(model.matrix.format());
+        }
+    }
+    
+    private int gate(JSONObject report) throws JSONException {
+        int status = 0;
+        if (report.getLong("images") == 0) {
+            System.err.println("FAIL: no images were classified");
+            return 1;
+        }
+        if (options.minAccuracy > 0 && report.getDouble("accuracy") < options.minAccuracy) {
+            System.err.println(String.format(Locale.ROOT, "FAIL: accuracy %.4f < %.4f", report.getDouble("accuracy"),
+                    options.minAccuracy));
+            status = 1;
+        }
+        if (options.minThroughput > 0 && report.getDouble("images_per_second") < options.minThroughput) {
+            System.err.println(String.format(Locale.ROOT, "FAIL: %.1f images/s < %.1f",
+                    report.getDouble("images_per_second"), options.minThroughput));
+            status = 1;
+        }
+        return status;
+    }
+    
+    // One worker thread: its own interpreter, tensor buffer and scaled image per crop
+    private final class Worker implements Runnable {
+        private final Map<String, Slot> slots = new HashMap<>();
+        volatile IOException failure;
+        
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Sample sample = queue.take();
+                    if (sample == Sample.END) {
+                        break;
+                    }
+                    process(sample);
+                }
+                for (Slot slot : slots.values()) {
+                    slot.flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+                // Keep draining so the walker never blocks on a full queue
+                drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                for (Slot slot : slots.values()) {
+                    slot.engine.close();
+                }
+            }
+        }
+        
+        private void drain() {
+            try {
+                while (queue.take() != Sample.END) {
+                    skipped.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        private void process(Sample sample) throws IOException {
+            Slot slot = slots.get(sample.model.crop);
+            if (slot == null) {
+                slot = new Slot(sample.model, TfliteEngine.open(sample.model.file, options.threads));
+                slots.put(sample.model.crop, slot);
+            }
+            metrics.begin(ScanMetrics.Stage.BITMAP_DECODE);
+            BufferedImage image;
+            try {
+                image = ImageIO.read(sample.file);
+            } catch (IOException e) {
+                image = null;
+            } finally {
+                metrics.end(ScanMetrics.Stage.BITMAP_DECODE);
+            }
+            if (image == null) {
+                System.err.println("Skipping unreadable " + sample.file);
+                skipped.incrementAndGet();
+                return;
+            }
+            slot.add(image, sample.label);
+        }
+    }
+    
+    private final class Slot {
+        private final CropModel model;
+        private final InferenceEngine engine;
+        private final ModelSpec spec;
+        private final int width;
+        private final int height;
+        private final int[] pixels;
+        private final BufferedImage scaled;
+        private final Graphics2D graphics;
+        private final ByteBuffer input;
+        private final FloatBuffer floats;
+        private final byte[] quantizedTable;
+        private final int[] pendingLabels;
+        private int pending;
+        
+        Slot(CropModel model, InferenceEngine engine) {
+            this.model = model;
+            this.engine = engine;
+            this.spec = engine.getSpec();
+            this.width = spec.getImageWidth();
+            this.height = spec.getImageHeight();
+            this.pixels = new int[width * height];
+            this.scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            this.graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            this.input = ByteBuffer.allocateDirect(spec.getInput().bytesPerItem() * options.batch);
+            input.order(ByteOrder.nativeOrder());
+            this.floats = input.asFloatBuffer();
+            TensorSpec in = spec.getInput();
+            this.quantizedTable = in.isQuantized() ? model.preprocessor.quantizedTable(in) : null;
+            this.pendingLabels = new int[options.batch];
+        }
+        
+        void add(BufferedImage image, int label) {
+            metrics.begin(ScanMetrics.Stage.RESIZE);
+            graphics.drawImage(image, 0, 0, width, height, null);
+            scaled.getRGB(0, 0, width, height, pixels, 0, width);
+            metrics.end(ScanMetrics.Stage.RESIZE);
+            
+            metrics.begin(ScanMetrics.Stage.TENSOR_FILL);
+            if (quantizedTable != null) {
+                model.preprocessor.fillTensor(pixels, pixels.length, input, quantizedTable);
+            } else {
+                model.preprocessor.fillTensor(pixels, pixels.length, floats);
+            }
+            metrics.end(ScanMetrics.Stage.TENSOR_FILL);
+            pendingLabels[pending++] = label;
+            if (pending == options.batch) {
+                flush();
+            }
+        }
+        
+        void flush() {
+            if (pending == 0) {
+                return;
+            }
+            input.rewind();
+            input.limit(spec.getInput().bytesPerItem() * pending);
+            metrics.begin(ScanMetrics.Stage.INFERENCE);
+            float[][] scores = engine.run(input, pending);
+            metrics.end(ScanMetrics.Stage.INFERENCE);
+            for (int i = 0; i < pending; i++) {
+                // argmax is the same before and after softmax, so no need to normalize
+                int predicted = ScoreUtils.argmax(scores[i], Math.min(scores[i].length, model.labels.size()));
+                model.matrix.record(pendingLabels[i], predicted);
+            }
+            classified.addAndGet(pending);
+            pending = 0;
+            input.clear();
+            floats.clear();
+        }
+    }
+    
+    static final class CropModel {
+        final String crop;
+        final File file;
+        final List<String> labels;
+        final ImagePreprocessor preprocessor;
+        final ConfusionMatrix matrix;
+        
+        CropModel(String crop, File file, List<String> labels, ImagePreprocessor preprocessor) {
+            this.crop = crop;
+            this.file = file;
+            this.labels = labels;
+            this.preprocessor = preprocessor;
+            this.matrix = new ConfusionMatrix(labels);
+        }
+        
+        // Label index for a folder name, or -1: exact match first, then without a crop prefix
+        int matchLabel(String folder) {
+            String bare = folder.replaceFirst("(?i)^" + crop + "_+", "");
+            for (int i = 0; i < labels.size(); i++) {
+                if (labels.get(i).equalsIgnoreCase(folder)) {
+                    return i;
+                }
+            }
+            for (int i = 0; i < labels.size(); i++) {
+                if (labels.get(i).equalsIgnoreCase(bare)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    static final class Sample {
+        static final Sample END = new Sample(null, null, -1);
+        
+        final File file;
+        final CropModel model;
+        final int label;
+        
+        Sample(File file, CropModel model, int label) {
+            this.file = file;
+            this.model = model;
+            this.label = label;
+        }
+    }
+    
+    static final class Options {
+        File imagesDir;
+        File modelsDir = new File(System.getProperty("farmmate.root", "."), "ml-model/export");
+        File manifest;
+        File report;
+        String crop;
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int threads = 1;
+        int batch = 1;
+        double minAccuracy;
+        double minThroughput;
+        
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--images":
+                        options.imagesDir = new File(value);
+                        break;
+                    case "--models":
+                        options.modelsDir = new File(value);
+                        break;
+                    case "--manifest":
+                        options.manifest = new File(value);
+                        break;
+                    case "--report":
+                        options.report = new File(value);
+                        break;
+                    case "--crop":
+                        options.crop = value.toLowerCase(Locale.ROOT);
+                        break;
+                    case "--workers":
+                        options.workers = positive(name, value);
+                        break;
+                    case "--threads":
+                        options.threads = positive(name, value);
+                        break;
+                    case "--batch":
+                        options.batch = positive(name, value);
+                        break;
+                    case "--min-accuracy":
+                        options.minAccuracy = Double.parseDouble(value);
+                        break;
+                    case "--min-throughput":
+                        options.minThroughput = Double.parseDouble(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            if (options.imagesDir == null || !options.imagesDir.isDirectory()) {
+                throw new IllegalArgumentException("--images must be a directory");
+            }
+            return options;
+        }
+        
+        private static int positive(String name, String value) {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) {
+                throw new IllegalArgumentException(name + " must be at least 1");
+            }
+            return parsed;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.farmmate.app.eval;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Folder label (rows) against predicted label (columns) for one crop's model.
+ */
+final class ConfusionMatrix {
+    private final List<String> labels;
+    private final long[][] counts;
+    
+    ConfusionMatrix(List<String> labels) {
+        this.labels = labels;
+        this.counts = new long[labels.size()][labels.size()];
+    }
+    
+    synchronized void record(int actual, int predicted) {
+        counts[actual][predicted]++;
+    }
+    
+    synchronized long getTotal() {
+        long total = 0;
+        for (long[] row : counts) {
+            for (long count : row) {
+                total += count;
+            }
+        }
+        return total;
+    }
+    
+    synchronized long getCorrect() {
+        long correct = 0;
+        for (int i = 0; i < counts.length; i++) {
+            correct += counts[i][i];
+        }
+        return correct;
+    }
+    
+    double getAccuracy() {
+        long total = getTotal();
+        return total > 0 ? (double) getCorrect() / total : 0;
+    }
+    
+    // Rows are actual labels; columns are numbered to keep the table narrow
+    synchronized String format() {
+        StringBuilder out = new StringBuilder();
+        int width = 20;
+        for (int r = 0; r < labels.size(); r++) {
+            width = Math.max(width, (r + " " + labels.get(r)).length() + 1);
+        }
+        out.append(String.format(Locale.ROOT, "%-" + width + "s", "actual \\ predicted"));
+        for (int c = 0; c < labels.size(); c++) {
+            out.append(String.format(Locale.ROOT, " %6d", c));
+        }
+        out.append("  recall\n");
+        for (int r = 0; r < labels.size(); r++) {
+            long rowTotal = 0;
+            out.append(String.format(Locale.ROOT, "%-" + width + "s", r + " " + labels.get(r)));
+            for (int c = 0; c < labels.size(); c++) {
+                out.append(String.format(Locale.ROOT, " %6d", counts[r][c]));
+                rowTotal += counts[r][c];
+            }
+            out.append(rowTotal > 0
+                    ? String.format(Locale.ROOT, "  %5.1f%%\n", 100.0 * counts[r][r] / rowTotal)
+                    : "       -\n");
+        }
+        return out.toString();
+    }
+    
+    // { labels, matrix: [[...]], images, correct, accuracy }
+    synchronized JSONObject toJson() throws JSONException {
+        JSONArray matrix = new JSONArray();
+        for (long[] row : counts) {
+            JSONArray items = new JSONArray();
+            for (long count : row) {
+                items.put(count);
+            }
+            matrix.put(items);
+        }
+        JSONObject json = new JSONObject();
+        json.put("labels", new JSONArray(labels));
+        json.put("matrix", matrix);
+        json.put("images", getTotal());
+        json.put("correct", getCorrect());
+        json.put("accuracy", getAccuracy());
+        return json;
+    }
+}
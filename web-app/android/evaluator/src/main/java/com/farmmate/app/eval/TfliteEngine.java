@@ -0,0 +1,119 @@
+package com.farmmate.app.eval;
+
+import com.farmmate.app.InferenceEngine;
+import com.farmmate.app.ModelSpec;
+import com.farmmate.app.TensorSpec;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * InferenceEngine over the TensorFlow Lite Java API on a desktop JVM. TFLite only publishes
+ * the Android AAR, so the Interpreter classes and libtensorflowlite_jni for Linux come from a
+ * local build (bazel build //tensorflow/lite/java:tensorflowlite) put on the classpath and
+ * java.library.path; they are looked up by reflection so this module builds without them.
+ */
+final class TfliteEngine implements InferenceEngine {
+    private static final String INTERPRETER = "org.tensorflow.lite.Interpreter";
+    
+    private final Object interpreter;
+    private final ModelSpec spec;
+    private final Method resizeInput;
+    private final Method run;
+    private final Method close;
+    
+    private TfliteEngine(Object interpreter) throws ReflectiveOperationException, IOException {
+        Class<?> type = interpreter.getClass();
+        this.interpreter = interpreter;
+        this.resizeInput = type.getMethod("resizeInput", int.class, int[].class);
+        this.run = type.getMethod("run", Object.class, Object.class);
+        this.close = type.getMethod("close");
+        Method inputTensor = type.getMethod("getInputTensor", int.class);
+        Method outputTensor = type.getMethod("getOutputTensor", int.class);
+        this.spec = new ModelSpec(toSpec(inputTensor.invoke(interpreter, 0)), toSpec(outputTensor.invoke(interpreter, 0)));
+    }
+    
+    static boolean isAvailable() {
+        try {
+            Class.forName(INTERPRETER);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+    
+    static TfliteEngine open(File model, int threads) throws IOException {
+        try {
+            Class<?> type = Class.forName(INTERPRETER);
+            Class<?> optionsType = Class.forName(INTERPRETER + "$Options");
+            Object options = optionsType.getConstructor().newInstance();
+            optionsType.getMethod("setNumThreads", int.class).invoke(options, threads);
+            Object interpreter = type.getConstructor(File.class, optionsType).newInstance(model, options);
+            return new TfliteEngine(interpreter);
+        } catch (InvocationTargetException e) {
+            throw new IOException("Cannot load " + model + ": " + e.getCause(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("TensorFlow Lite Java API not on the classpath: " + e, e);
+        }
+    }
+    
+    // Same mapping as InterpreterPool.readSpec on the phone
+    private static TensorSpec toSpec(Object tensor) throws ReflectiveOperationException, IOException {
+        Class<?> type = tensor.getClass();
+        String dataType = ((Enum<?>) type.getMethod("dataType").invoke(tensor)).name();
+        TensorSpec.Type specType;
+        try {
+            specType = TensorSpec.Type.valueOf(dataType);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported tensor type: " + dataType);
+        }
+        int[] shape = (int[]) type.getMethod("shape").invoke(tensor);
+        Object q = type.getMethod("quantizationParams").invoke(tensor);
+        float scale = (Float) q.getClass().getMethod("getScale").invoke(q);
+        int zeroPoint = (Integer) q.getClass().getMethod("getZeroPoint").invoke(q);
+        return new TensorSpec(specType, shape, scale, zeroPoint);
+    }
+    
+    @Override
+    public ModelSpec getSpec() {
+        return spec;
+    }
+    
+    @Override
+    public float[][] run(ByteBuffer input, int batchSize) {
+        int[] inputShape = spec.getInput().getShape();
+        inputShape[0] = batchSize;
+        TensorSpec out = spec.getOutput();
+        int numClasses = spec.getNumClasses();
+        try {
+            resizeInput.invoke(interpreter, 0, inputShape);
+            if (!out.isQuantized()) {
+                float[][] output = new float[batchSize][numClasses];
+                run.invoke(interpreter, input, output);
+                return output;
+            }
+            byte[][] output = new byte[batchSize][numClasses];
+            run.invoke(interpreter, input, output);
+            float[][] scores = new float[batchSize][numClasses];
+            for (int b = 0; b < batchSize; b++) {
+                out.dequantize(output[b], scores[b]);
+            }
+            return scores;
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Inference failed: " + e.getCause(), e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @Override
+    public void close() {
+        try {
+            close.invoke(interpreter);
+        } catch (ReflectiveOperationException e) {
+            // Nothing left to release
+        }
+    }
+}
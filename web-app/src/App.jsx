@@ -2,6 +2,7 @@ import { Routes, Route } from 'react-router-dom'
 import Home from './pages/Home'
 import Capture from './pages/Capture'
 import Result from './pages/Result'
+import History from './pages/History'
 import nativeBridge from './services/nativeBridge'
 
 function App() {
@@ -19,13 +20,14 @@ function App() {
   }
 
   return (
-    <div className="min-h-screen bg-gray-50">
+    <div className="min-h-screen bg-gray-50 live-scan-clear">
       {/* Android App Container */}
-      <div className="w-full max-w-md mx-auto min-h-screen bg-white shadow-sm">
+      <div className="w-full max-w-md mx-auto min-h-screen bg-white shadow-sm live-scan-clear">
         <Routes>
           <Route path="/" element={<Home />} />
           <Route path="/capture" element={<Capture />} />
           <Route path="/result" element={<Result />} />
+          <Route path="/history" element={<History />} />
         </Routes>
       </div>
     </div>
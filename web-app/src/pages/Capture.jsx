@@ -1,21 +1,41 @@
-import { useState } from 'react'
+import { useState, useEffect } from 'react'
 import { useNavigate } from 'react-router-dom'
 import Header from '../components/Header'
-import { Camera, Upload, Zap, Image, X } from 'lucide-react'
+import { Camera, Upload, Zap, Image, X, Video } from 'lucide-react'
 import nativeBridge from '../services/nativeBridge'
 import cropService from '../services/cropService'
 
 export default function Capture() {
   const navigate = useNavigate()
   const [imagePreview, setImagePreview] = useState(null)
+  // Set on Android: the full image stays native and is classified by id
+  const [imageId, setImageId] = useState(null)
   const [sourceType, setSourceType] = useState('camera')
   const [isAnalyzing, setIsAnalyzing] = useState(false)
+  // Latest smoothed result while the Live tab is open
+  const [liveResult, setLiveResult] = useState(null)
+
+  useEffect(() => {
+    if (sourceType !== 'live') {
+      return undefined
+    }
+    nativeBridge.startLiveScan(cropService.getCurrentCrop(), (result) => {
+      if (result && result.error) {
+        console.error('❌ Live scan error:', result.error)
+      }
+      setLiveResult(result)
+    })
+    return () => {
+      nativeBridge.stopLiveScan()
+      setLiveResult(null)
+    }
+  }, [sourceType])
 
   const handleCapture = () => {
     console.log('📸 Capture button clicked')
     setSourceType('camera')
     
-    nativeBridge.openCamera((base64Image, error) => {
+    nativeBridge.openCamera((base64Image, error, capturedImageId) => {
       if (error) {
         console.error('❌ Camera error:', error)
         alert('Camera error: ' + error)
@@ -24,6 +44,7 @@ export default function Capture() {
       console.log('✅ Image captured from camera, data length:', base64Image ? base64Image.length : 0)
       console.log('📸 Setting image preview...')
       setImagePreview(base64Image)
+      setImageId(capturedImageId || null)
     })
   }
 
@@ -31,7 +52,7 @@ export default function Capture() {
     console.log('🖼️ Gallery button clicked')
     setSourceType('gallery')
     
-    nativeBridge.openGallery((base64Image, error) => {
+    nativeBridge.openGallery((base64Image, error, capturedImageId) => {
       if (error) {
         console.error('❌ Gallery error:', error)
         alert('Gallery error: ' + error)
@@ -40,12 +61,15 @@ export default function Capture() {
       console.log('✅ Image selected from gallery, data length:', base64Image ? base64Image.length : 0)
       console.log('🖼️ Setting image preview...')
       setImagePreview(base64Image)
+      setImageId(capturedImageId || null)
     })
   }
 
   const handleRemoveImage = () => {
     console.log('🗑️ Removing image')
+    nativeBridge.releaseImage(imageId)
     setImagePreview(null)
+    setImageId(null)
   }
 
   const handleAnalyze = async () => {
@@ -64,7 +88,26 @@ export default function Capture() {
     console.log('🌱 Current crop from cropService:', currentCrop)
     
     try {
-      if (imagePreview.startsWith('data:image')) {
+      if (imageId) {
+        console.log('🤖 Calling nativeBridge.classifyStoredImage with crop:', currentCrop)
+        const result = await nativeBridge.classifyStoredImage(imageId, currentCrop)
+        
+        if (result && result.error) {
+          console.error('❌ Classification error in result:', result.error)
+          alert('Analysis failed: ' + result.error)
+          setIsAnalyzing(false)
+          return
+        }
+        
+        setIsAnalyzing(false)
+        navigate('/result', { 
+          state: { 
+            result, 
+            image: imagePreview,
+            crop: result.crop || currentCrop
+          } 
+        })
+      } else if (imagePreview.startsWith('data:image')) {
         // Extract pure base64 string (remove "data:image/jpeg;base64," part)
         const base64String = imagePreview.split(',')[1]
         console.log('📊 Base64 image string length:', base64String.length)
@@ -89,7 +132,7 @@ export default function Capture() {
           state: { 
             result, 
             image: imagePreview,
-            crop: currentCrop
+            crop: result.crop || currentCrop
           } 
         })
       } else {
@@ -141,10 +184,47 @@ export default function Capture() {
             <Image className="w-4 h-4 mr-2" />
             Gallery
           </button>
+          
+          <button
+            onClick={() => setSourceType('live')}
+            className={`
+              flex-1 h-12 rounded-lg flex items-center justify-center
+              ${sourceType === 'live' 
+                ? 'bg-emerald-500 text-white' 
+                : 'bg-gray-100 text-gray-700 border border-gray-200'
+              }
+            `}
+          >
+            <Video className="w-4 h-4 mr-2" />
+            Live
+          </button>
         </div>
 
+        {/* Live Scan - camera preview shows through this transparent box */}
+        {sourceType === 'live' && (
+          <div className="relative w-full h-64 rounded-xl border-2 border-emerald-400 overflow-hidden">
+            <div className="absolute bottom-0 left-0 right-0 p-3 bg-black/60 text-white">
+              {liveResult && liveResult.success ? (
+                <>
+                  <div className="flex items-center justify-between">
+                    <span className="text-base font-semibold">{liveResult.disease?.replace(/_/g, ' ')}</span>
+                    <span className="text-sm">{liveResult.confidence}%</span>
+                  </div>
+                  <p className="text-xs text-white/70 mt-1">
+                    {(liveResult.predictions || []).slice(1).map((p) => `${p.disease.replace(/_/g, ' ')} ${p.confidence}%`).join(' • ')}
+                  </p>
+                </>
+              ) : (
+                <p className="text-sm text-white/80">
+                  {liveResult && liveResult.error ? liveResult.error : 'Point the camera at a leaf...'}
+                </p>
+              )}
+            </div>
+          </div>
+        )}
+
         {/* Camera/Gallery Preview */}
-        <div className="relative">
+        <div className={`relative ${sourceType === 'live' ? 'hidden' : ''}`}>
           <div className="w-full h-64 bg-gradient-to-b from-gray-900 to-gray-800 rounded-xl overflow-hidden shadow-lg">
             {imagePreview ? (
               <div className="absolute inset-0 flex items-center justify-center">
@@ -199,7 +279,7 @@ export default function Capture() {
         </div>
 
         {/* Action Buttons */}
-        <div className="space-y-2">
+        <div className={`space-y-2 ${sourceType === 'live' ? 'hidden' : ''}`}>
           {!imagePreview ? (
             <>
               {sourceType === 'camera' ? (
@@ -0,0 +1,95 @@
+import { useState, useEffect } from 'react'
+import Header from '../components/Header'
+import { Trash2, Download } from 'lucide-react'
+import nativeBridge from '../services/nativeBridge'
+
+const PAGE_SIZE = 20
+
+export default function History() {
+  const [items, setItems] = useState([])
+  const [thumbnails, setThumbnails] = useState({})
+  // -1 once the last page has been loaded
+  const [nextBeforeId, setNextBeforeId] = useState(0)
+  const [exportNote, setExportNote] = useState('')
+
+  // Keyset paging: each page starts below the last id we have, so nothing is loaded twice
+  const loadPage = (beforeId) => {
+    const page = nativeBridge.getHistory(beforeId, PAGE_SIZE)
+    const loaded = {}
+    page.items.forEach((item) => {
+      if (item.has_thumbnail) {
+        loaded[item.id] = nativeBridge.getHistoryThumbnail(item.id)
+      }
+    })
+    setItems((previous) => (beforeId > 0 ? previous.concat(page.items) : page.items))
+    setThumbnails((previous) => ({ ...previous, ...loaded }))
+    setNextBeforeId(page.next_before_id)
+  }
+
+  useEffect(() => {
+    loadPage(0)
+  }, [])
+
+  const handleDelete = (id) => {
+    nativeBridge.deleteHistoryItem(id)
+    setItems((previous) => previous.filter((item) => item.id !== id))
+  }
+
+  const handleExport = async () => {
+    setExportNote('Exporting...')
+    const result = await nativeBridge.exportHistory(0)
+    setExportNote(result ? `Saved ${result.count} scans to ${result.path}` : 'Export is only available in the Android app')
+  }
+
+  return (
+    <div className="min-h-screen flex flex-col">
+      <Header title="Scan History" subtitle="Saved on this phone" showBack={true} />
+
+      <div className="flex-1 p-4 space-y-2">
+        <div className="flex items-center justify-between">
+          <span className="text-xs text-gray-500">{items.length} scans shown</span>
+          <button
+            onClick={handleExport}
+            className="flex items-center text-xs font-semibold text-emerald-700 px-2 py-1 rounded bg-emerald-50"
+          >
+            <Download className="w-4 h-4 mr-1" />
+            Export
+          </button>
+        </div>
+        {exportNote && <p className="text-xs text-gray-500 break-all">{exportNote}</p>}
+
+        {items.length === 0 && (
+          <p className="text-center text-gray-500 text-sm py-8">No scans yet</p>
+        )}
+
+        {items.map((item) => (
+          <div key={item.id} className="flex items-center bg-white rounded-xl p-2 border border-gray-100 shadow-sm">
+            {thumbnails[item.id] ? (
+              <img src={thumbnails[item.id]} alt="" className="w-14 h-14 rounded-lg object-cover mr-3" />
+            ) : (
+              <div className="w-14 h-14 rounded-lg bg-gray-100 mr-3" />
+            )}
+            <div className="flex-1 min-w-0">
+              <div className="text-sm font-bold text-gray-800 truncate">{item.disease.replace(/_/g, ' ')}</div>
+              <div className="text-xs text-gray-500">
+                {item.crop.charAt(0).toUpperCase() + item.crop.slice(1)} · {item.confidence}% · {new Date(item.scanned_at).toLocaleString()}
+              </div>
+            </div>
+            <button onClick={() => handleDelete(item.id)} className="p-2 text-gray-400">
+              <Trash2 className="w-4 h-4" />
+            </button>
+          </div>
+        ))}
+
+        {nextBeforeId > 0 && (
+          <button
+            onClick={() => loadPage(nextBeforeId)}
+            className="w-full py-2 text-sm font-semibold text-emerald-700 bg-emerald-50 rounded-lg"
+          >
+            Load more
+          </button>
+        )}
+      </div>
+    </div>
+  )
+}
@@ -1,8 +1,9 @@
 import { useState } from 'react'
 import { useNavigate } from 'react-router-dom'
 import Header from '../components/Header'
-import { Globe } from 'lucide-react'
+import { Globe, History, Sparkles } from 'lucide-react'
 import cropService from '../services/cropService'
+import nativeBridge from '../services/nativeBridge'
 
 const crops = [
   { 
@@ -41,6 +42,15 @@ const crops = [
     textColor: 'text-emerald-800',
     iconColor: 'bg-emerald-100'
   },
+  { 
+    name: 'Auto-detect', 
+    id: 'auto',  // native picks the crop from the photo
+    emoji: '🔍',
+    color: 'bg-gradient-to-br from-sky-50 via-white to-sky-50',
+    borderColor: 'border-sky-200',
+    textColor: 'text-sky-800',
+    iconColor: 'bg-sky-100'
+  },
 ]
 
 const languages = [
@@ -52,6 +62,15 @@ const languages = [
 export default function Home() {
   const navigate = useNavigate()
   const [selectedLang, setSelectedLang] = useState('en')
+  const [highAccuracy, setHighAccuracy] = useState(() => nativeBridge.getHighAccuracyBudget() > 0)
+  // Hidden until a crop router model ships with the app
+  const [autoDetect] = useState(() => nativeBridge.isAutoDetectAvailable())
+  const shownCrops = autoDetect ? crops : crops.filter((crop) => crop.id !== 'auto')
+
+  const toggleHighAccuracy = () => {
+    nativeBridge.setHighAccuracy(!highAccuracy)
+    setHighAccuracy(!highAccuracy)
+  }
 
   const handleCropSelect = (cropId, cropName) => {
     console.log('🌱 Crop selected:', cropName, 'ID:', cropId)
@@ -80,10 +99,17 @@ export default function Home() {
             <div className="w-10 h-10 rounded-lg bg-gradient-to-r from-emerald-500 to-teal-400 flex items-center justify-center mr-3">
               <span className="text-xl">🌾</span>
             </div>
-            <div>
+            <div className="flex-1">
               <h3 className="text-gray-800 font-bold">Welcome Farmer</h3>
               <p className="text-gray-600 text-xs">Select crop to diagnose diseases</p>
             </div>
+            <button
+              onClick={() => navigate('/history')}
+              className="flex flex-col items-center text-emerald-700 px-2"
+            >
+              <History className="w-5 h-5" />
+              <span className="text-xs">History</span>
+            </button>
           </div>
         </div>
 
@@ -92,12 +118,12 @@ export default function Home() {
           <div className="flex items-center justify-between mb-2">
             <h2 className="text-gray-800 font-bold text-lg">Select Crop</h2>
             <span className="text-xs bg-gray-100 text-gray-700 px-2 py-1 rounded-full">
-              {crops.length} crops
+              {crops.filter((crop) => crop.id !== 'auto').length} crops
             </span>
           </div>
           
           <div className="grid grid-cols-2 gap-2">
-            {crops.map((crop) => (
+            {shownCrops.map((crop) => (
               <button
                 key={crop.name}
                 onClick={() => handleCropSelect(crop.id, crop.name)}
@@ -136,7 +162,19 @@ export default function Home() {
         </div>
 
         {/* Language Selector */}
-        <div className="mt-auto pt-2">
+        <div className="mt-auto pt-2 space-y-2">
+          <button
+            onClick={toggleHighAccuracy}
+            className="w-full flex items-center justify-between bg-white rounded-lg p-2 border border-gray-100 shadow-sm"
+          >
+            <div className="flex items-center">
+              <Sparkles className="w-4 h-4 text-gray-500 mr-2" />
+              <span className="text-xs text-gray-600">High accuracy (slower on unclear photos)</span>
+            </div>
+            <span className={`px-2 py-1 rounded text-xs font-medium ${highAccuracy ? 'bg-emerald-100 text-emerald-700' : 'text-gray-600'}`}>
+              {highAccuracy ? 'On' : 'Off'}
+            </span>
+          </button>
           <div className="flex items-center justify-between bg-white rounded-lg p-2 border border-gray-100 shadow-sm">
             <div className="flex items-center">
               <Globe className="w-4 h-4 text-gray-500 mr-2" />
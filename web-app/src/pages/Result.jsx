@@ -30,6 +30,16 @@ export default function Result() {
 
   // Ensure we have a valid result
   const displayResult = result && !result.error ? result : defaultResult
+  // predictions[0] is the main result; show the rest when the model wasn't sure
+  const otherPredictions = (displayResult.predictions || []).slice(1).filter((p) => p.confidence >= 5)
+  // Present when the crop was auto-detected instead of picked
+  const routing = displayResult.routing
+  // Present when a large photo was cropped to the leaf and scanned in tiles
+  const tiling = displayResult.tiling
+  // Present when high accuracy mode took a second look at a close call
+  const augmentation = displayResult.augmentation
+  // Present for crops with a quick first-stage model; stage is 'fast' when it answered alone
+  const cascade = displayResult.cascade
   
   // Show error message if result has an error
   const hasError = result && result.error
@@ -50,6 +60,17 @@ export default function Result() {
       setIsSpeaking(false)
     } else {
       setIsSpeaking(true)
+      // The button follows the real playback instead of a fixed timeout
+      const onSpeechState = (state) => {
+        if (state !== 'speaking') {
+          setIsSpeaking(false)
+        }
+      }
+      
+      // Android reads the advice summary it rendered right after the scan
+      if (nativeBridge.speakAdvice(displayResult.crop || crop, displayResult.disease, currentLanguage, onSpeechState)) {
+        return
+      }
       
       // Get localized text based on current language
       const speechText = languageService.getLocalizedText(
@@ -63,12 +84,7 @@ export default function Result() {
         ? `${speechText.disease || displayResult.disease}. ${speechText.cure || displayResult.advice_cure}`
         : speechText || `${displayResult.disease}. ${displayResult.advice_cure}`
       
-      nativeBridge.speak(textToSpeak, currentLanguage)
-      
-      // Reset speaking state after 10 seconds
-      setTimeout(() => {
-        setIsSpeaking(false)
-      }, 10000)
+      nativeBridge.speak(textToSpeak, currentLanguage, onSpeechState)
     }
   }
 
@@ -116,6 +132,26 @@ export default function Result() {
                 <span className="inline-block px-3 py-1 bg-emerald-100 text-emerald-700 text-xs font-semibold rounded-full">
                   {crop.charAt(0).toUpperCase() + crop.slice(1)} Leaf
                 </span>
+                {routing && (
+                  <p className="text-xs text-gray-500 mt-1">
+                    Crop detected automatically ({routing.confidence}% sure{routing.fallback ? ', checked ' + routing.candidates.length + ' crops' : ''})
+                  </p>
+                )}
+                {tiling && tiling.tiles.length > 1 && (
+                  <p className="text-xs text-gray-500 mt-1">
+                    Leaf area scanned in {tiling.tiles.length - 1} close-up sections
+                  </p>
+                )}
+                {cascade && cascade.stage === 'fast' && (
+                  <p className="text-xs text-gray-500 mt-1">
+                    Answered by the quick check
+                  </p>
+                )}
+                {augmentation && augmentation.views > 0 && (
+                  <p className="text-xs text-gray-500 mt-1">
+                    Checked {augmentation.views} extra views of this photo
+                  </p>
+                )}
               </div>
             )}
           </div>
@@ -172,6 +208,28 @@ export default function Result() {
           </div>
         </div>
 
+        {/* Other Possibilities - runner-up predictions from the same scan */}
+        {otherPredictions.length > 0 && (
+          <div className="bg-white rounded-xl p-4 border border-gray-100 shadow-sm">
+            <h3 className="text-sm font-semibold text-gray-600 uppercase tracking-wide mb-3">Other Possibilities</h3>
+            <div className="space-y-3">
+              {otherPredictions.map((prediction) => (
+                <div key={prediction.disease}>
+                  <div className="flex items-center justify-between">
+                    <span className="text-base font-semibold text-gray-800">
+                      {prediction.disease?.replace(/_/g, ' ')}
+                    </span>
+                    <span className="text-sm font-medium text-gray-500">{prediction.confidence}%</span>
+                  </div>
+                  {prediction.advice_cure && (
+                    <p className="text-sm text-gray-600 mt-1">{prediction.advice_cure}</p>
+                  )}
+                </div>
+              ))}
+            </div>
+          </div>
+        )}
+
         {/* Treatment Plan - Beautiful Design */}
         <div className="bg-white rounded-xl p-4 border border-gray-100 shadow-sm">
           <div className="flex items-center mb-4">
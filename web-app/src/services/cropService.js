@@ -26,8 +26,16 @@ const crops = [
     }
 ];
 
-// ALTERNATIVE: If Home.jsx shows "Maize" but you want to keep "corn" as ID
-// You have two options:
+// Alternate names -> crop id; keep in sync with "aliases" in android assets/models.json.
+// Native resolves aliases itself, this copy is for localStorage and browser mock data.
+const CROP_ALIASES = {
+    maize: 'corn'
+};
+
+export function resolveCropId(id) {
+    const key = (id || '').toLowerCase();
+    return CROP_ALIASES[key] || key;
+}
 
 const cropService = {
     getAllCrops() {
@@ -35,22 +43,14 @@ const cropService = {
     },
     
     getCropById(id) {
-        // Handle maize -> corn mapping
-        if (id === 'maize') {
-            id = 'corn';
-        }
-        return crops.find(crop => crop.id === id);
+        const cropId = resolveCropId(id);
+        return crops.find(crop => crop.id === cropId);
     },
     
     setCurrentCrop(cropId) {
         console.log('🌱 cropService.setCurrentCrop called with:', cropId);
         
-        // FIX: Map maize to corn for consistent model loading
-        let mappedCropId = cropId;
-        if (cropId === 'maize') {
-            mappedCropId = 'corn';
-            console.log('🌽 MAPPING: maize -> corn');
-        }
+        const mappedCropId = resolveCropId(cropId);
         
         localStorage.setItem('currentCrop', mappedCropId);
         if (window.nativeBridge) {
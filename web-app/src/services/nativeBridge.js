@@ -1,8 +1,22 @@
 // Native Bridge Service - Handles communication with Android
+import { resolveCropId } from './cropService';
+
 class NativeBridge {
     constructor() {
         this.isAndroid = typeof window.Android !== 'undefined';
         this.imageCaptureCallback = null;
+        this.pendingScans = new Map();
+        this.readiness = null;
+        this.nextScanId = 1;
+        // In-flight recalibrate() promise and its resolver; later callers share it
+        this.calibration = null;
+        this.calibrationCallback = null;
+        this.liveScanCallback = null;
+        // exportHistory() resolvers in call order; Android runs exports one at a time, in order
+        this.exportCallbacks = [];
+        // Only the latest utterance's state changes reach its callback
+        this.speechCallback = null;
+        this.speechId = 0;
         
         console.log('============================================');
         console.log('🚀 NativeBridge Constructor');
@@ -38,12 +52,7 @@ class NativeBridge {
     setCurrentCrop(crop) {
         console.log('🌱 nativeBridge.setCurrentCrop called with:', crop);
         
-        // FIX: Map maize to corn for consistent model loading
-        let mappedCrop = crop;
-        if (crop === 'maize') {
-            mappedCrop = 'corn';
-            console.log('🌽 MAPPING: maize -> corn');
-        }
+        const mappedCrop = resolveCropId(crop);
         
         if (this.isAndroid) {
             window.Android.setCurrentCrop(mappedCrop);
@@ -51,6 +60,193 @@ class NativeBridge {
         }
     }
     
+    // Auto-detect needs a router model; without one the crop picker is the only way in
+    isAutoDetectAvailable() {
+        const readiness = this.getReadiness();
+        return !!(readiness && readiness.auto_detect);
+    }
+    
+    // { crop, language, advice_ready, model_ready, warmup_done, auto_detect } or null outside Android
+    getReadiness() {
+        if (this.isAndroid && typeof window.Android.getReadiness === 'function') {
+            try {
+                this.readiness = JSON.parse(window.Android.getReadiness());
+            } catch (error) {
+                console.error('❌ getReadiness failed:', error);
+            }
+        }
+        return this.readiness;
+    }
+    
+    // { since_ms, stages: { inference: { count, p50_us, p95_us, p99_us, p50_bytes, ... }, ... },
+    //   result_cache: { hits, misses, evictions, entries, bytes },
+    //   memory: { budget_bytes, used_bytes, trims, consumers: { models, images, advice } } } or null outside Android
+    getMetrics() {
+        if (!this.isAndroid || typeof window.Android.getMetrics !== 'function') {
+            return null;
+        }
+        try {
+            return JSON.parse(window.Android.getMetrics());
+        } catch (error) {
+            console.error('❌ getMetrics failed:', error);
+            return null;
+        }
+    }
+    
+    // Writes the metrics to a JSON file on the device and returns its path ('' on failure)
+    dumpMetrics() {
+        if (!this.isAndroid || typeof window.Android.dumpMetrics !== 'function') {
+            return '';
+        }
+        return window.Android.dumpMetrics();
+    }
+    
+    // Caps what native keeps resident (models, photos, advice); lowering it frees memory right away
+    setMemoryBudget(megabytes) {
+        if (this.isAndroid && typeof window.Android.setMemoryBudget === 'function') {
+            window.Android.setMemoryBudget(megabytes);
+        }
+    }
+    
+    // Fast-stage threshold (0-1) for a crop's model cascade; negative restores the manifest value.
+    // getMetrics().cascade shows per-crop hit rates and how often the full model agreed.
+    setCascadeThreshold(crop, threshold) {
+        if (this.isAndroid && typeof window.Android.setCascadeThreshold === 'function') {
+            return window.Android.setCascadeThreshold(crop, threshold);
+        }
+        return false;
+    }
+    
+    // High accuracy mode: close calls get extra augmented views, using at most budgetMs per scan
+    setHighAccuracy(enabled, budgetMs = 0) {
+        if (this.isAndroid && typeof window.Android.setHighAccuracy === 'function') {
+            window.Android.setHighAccuracy(enabled, budgetMs);
+        }
+    }
+    
+    // Per-scan budget in ms, 0 when the mode is off
+    getHighAccuracyBudget() {
+        if (this.isAndroid && typeof window.Android.getHighAccuracyBudget === 'function') {
+            return window.Android.getHighAccuracyBudget();
+        }
+        return 0;
+    }
+    
+    resetMetrics() {
+        if (this.isAndroid && typeof window.Android.resetMetrics === 'function') {
+            window.Android.resetMetrics();
+        }
+    }
+    
+    // { crops: { tomato: { available, version, source, input }, ... }, aliases } or null outside Android
+    getModels() {
+        if (!this.isAndroid || typeof window.Android.getModels !== 'function') {
+            return null;
+        }
+        try {
+            return JSON.parse(window.Android.getModels());
+        } catch (error) {
+            console.error('❌ getModels failed:', error);
+            return null;
+        }
+    }
+    
+    // Streams smoothed results from the camera preview: onResult receives the classifyImage
+    // shape plus { frames, fps } a few times per second, or { success: false, error }
+    startLiveScan(cropType, onResult) {
+        if (!this.isAndroid || typeof window.Android.startLiveScan !== 'function') {
+            onResult({ success: false, error: 'Live scan is only available in the Android app' });
+            return false;
+        }
+        this.liveScanCallback = onResult;
+        document.body.classList.add('live-scan');
+        window.Android.startLiveScan(resolveCropId(cropType || localStorage.getItem('currentCrop') || 'tomato'));
+        return true;
+    }
+    
+    stopLiveScan() {
+        this.liveScanCallback = null;
+        document.body.classList.remove('live-scan');
+        if (this.isAndroid && typeof window.Android.stopLiveScan === 'function') {
+            window.Android.stopLiveScan();
+        }
+    }
+    
+    // { "tomato@555d9a4fcc67": { threads, xnnpack, median_us }, ... } or null outside Android
+    getTuning() {
+        if (!this.isAndroid || typeof window.Android.getTuning !== 'function') {
+            return null;
+        }
+        try {
+            return JSON.parse(window.Android.getTuning());
+        } catch (error) {
+            console.error('❌ getTuning failed:', error);
+            return null;
+        }
+    }
+    
+    // Re-benchmarks thread counts/XNNPACK for every model; resolves with getTuning() when done
+    recalibrate() {
+        if (!this.isAndroid || typeof window.Android.recalibrate !== 'function') {
+            return Promise.resolve(null);
+        }
+        if (!this.calibration) {
+            this.calibration = new Promise((resolve) => {
+                this.calibrationCallback = resolve;
+                window.Android.recalibrate();
+            });
+        }
+        return this.calibration;
+    }
+    
+    // Call after downloading a model into files/models; returns the crops whose model changed
+    reloadModels() {
+        if (!this.isAndroid || typeof window.Android.reloadModels !== 'function') {
+            return [];
+        }
+        return JSON.parse(window.Android.reloadModels());
+    }
+    
+    // One page of past scans, newest first: { items, next_before_id }. Pass the previous page's
+    // next_before_id to get the next one; -1 means there are no more.
+    getHistory(beforeId = 0, limit = 20, crop = '') {
+        if (!this.isAndroid || typeof window.Android.getHistory !== 'function') {
+            return { success: true, items: [], next_before_id: -1 };
+        }
+        try {
+            return JSON.parse(window.Android.getHistory(beforeId, limit, crop ? resolveCropId(crop) : ''));
+        } catch (error) {
+            console.error('❌ getHistory failed:', error);
+            return { success: false, items: [], next_before_id: -1 };
+        }
+    }
+    
+    // JPEG data URI, or '' when the scan has no thumbnail
+    getHistoryThumbnail(id) {
+        if (!this.isAndroid || typeof window.Android.getHistoryThumbnail !== 'function') {
+            return '';
+        }
+        return window.Android.getHistoryThumbnail(id);
+    }
+    
+    deleteHistoryItem(id) {
+        if (this.isAndroid && typeof window.Android.deleteHistoryItem === 'function') {
+            window.Android.deleteHistoryItem(id);
+        }
+    }
+    
+    // Writes scans newer than afterId to a JSON Lines file on the device;
+    // resolves with { path, count, last_id } or null
+    exportHistory(afterId = 0) {
+        if (!this.isAndroid || typeof window.Android.exportHistory !== 'function') {
+            return Promise.resolve(null);
+        }
+        return new Promise((resolve) => {
+            this.exportCallbacks.push(resolve);
+            window.Android.exportHistory(afterId);
+        });
+    }
+    
     setCurrentLanguage(langCode) {
         console.log('🗣️ nativeBridge.setCurrentLanguage called with:', langCode);
         if (this.isAndroid) {
@@ -154,12 +350,7 @@ class NativeBridge {
             console.log('🔄 Using fallback cropType from localStorage:', cropType);
         }
         
-        // FIX: Map maize to corn
-        let mappedCropType = cropType;
-        if (cropType === 'maize') {
-            mappedCropType = 'corn';
-            console.log('🌽 MAPPING: maize -> corn');
-        }
+        const mappedCropType = resolveCropId(cropType);
         
         console.log('🌱 Mapped crop type for model:', mappedCropType);
         
@@ -203,22 +394,148 @@ class NativeBridge {
         }
     }
     
-    // UPDATED: Accepts language parameter
-    speak(text, language = 'en') {
+    // Classifies an image captured natively, referenced by the id passed to handleImageCaptured
+    async classifyStoredImage(imageId, cropType) {
+        const mappedCropType = resolveCropId(cropType || localStorage.getItem('currentCrop') || 'tomato');
+        console.log('🎯 nativeBridge.classifyStoredImage called:', imageId, mappedCropType);
+        
+        if (!this.isAndroid) {
+            return this.getMockClassification(mappedCropType);
+        }
+        try {
+            const result = window.Android.classifyStoredImage(imageId, mappedCropType);
+            return typeof result === 'string' ? JSON.parse(result) : result;
+        } catch (error) {
+            console.error('❌ Classification error:', error);
+            return {
+                error: 'Classification failed: ' + error.message,
+                success: false
+            };
+        }
+    }
+    
+    releaseImage(imageId) {
+        if (this.isAndroid && imageId) {
+            window.Android.releaseImage(imageId);
+        }
+    }
+    
+    // Non-blocking classification: resolves when Android calls window.onClassificationResult.
+    // Returns { requestId, promise } so the caller can cancel a scan that is no longer wanted.
+    classifyImageAsync(base64Image, cropType) {
+        const requestId = 'scan-' + (this.nextScanId++);
+        const cleanBase64 = base64Image && base64Image.includes(',') ? base64Image.split(',')[1] : base64Image;
+        const mappedCropType = resolveCropId(cropType || localStorage.getItem('currentCrop') || 'tomato');
+        
+        if (!this.isAndroid || typeof window.Android.classifyImageAsync !== 'function') {
+            return { requestId, promise: this.classifyImage(base64Image, mappedCropType) };
+        }
+        
+        const promise = new Promise((resolve) => {
+            this.pendingScans.set(requestId, resolve);
+        });
+        window.Android.classifyImageAsync(requestId, cleanBase64, mappedCropType);
+        return { requestId, promise };
+    }
+    
+    cancelClassification(requestId) {
+        const resolve = this.pendingScans.get(requestId);
+        if (!resolve) {
+            return false;
+        }
+        this.pendingScans.delete(requestId);
+        if (this.isAndroid) {
+            window.Android.cancelClassification(requestId);
+        }
+        resolve({ success: false, cancelled: true, error: 'Scan cancelled' });
+        return true;
+    }
+    
+    // Classifies several leaves of one crop in a single native batch.
+    // Returns { success, crop, results: [...per image], field: {...aggregated diagnosis} }
+    async classifyImages(base64Images, cropType) {
+        console.log('🎯 nativeBridge.classifyImages called with', base64Images ? base64Images.length : 0, 'images');
+        
+        if (!base64Images || base64Images.length === 0) {
+            return {
+                error: 'At least one image is required',
+                success: false
+            };
+        }
+        
+        const mappedCropType = resolveCropId(cropType || localStorage.getItem('currentCrop') || 'tomato');
+        
+        if (this.isAndroid) {
+            try {
+                const result = window.Android.classifyImages(JSON.stringify(base64Images), mappedCropType);
+                return typeof result === 'string' ? JSON.parse(result) : result;
+            } catch (error) {
+                console.error('❌ Batch classification error:', error);
+                return {
+                    error: 'Batch classification failed: ' + error.message,
+                    success: false
+                };
+            }
+        }
+        
+        // Browser mode: every leaf gets the mock result for the crop
+        const mock = this.getMockClassification(mappedCropType);
+        return {
+            success: true,
+            crop: mock.crop,
+            results: base64Images.map((_, index) => ({ ...mock, index })),
+            field: { ...mock, leaf_count: base64Images.length, label_counts: { [mock.disease]: base64Images.length } }
+        };
+    }
+    
+    // onState receives 'speaking', then 'done', 'stopped' or 'error'
+    speak(text, language = 'en', onState = null) {
         console.log('🔊 nativeBridge.speak called:', text.substring(0, 50) + '...');
         if (this.isAndroid) {
-            window.Android.speak(text, language);
+            this.speechCallback = onState;
+            this.speechId = window.Android.speak(text, language);
+            if (this.speechId < 0) {
+                this.speechCallback = null;
+                if (onState) {
+                    onState('error');
+                }
+            }
         } else {
             if ('speechSynthesis' in window) {
+                window.speechSynthesis.cancel();
                 const utterance = new SpeechSynthesisUtterance(text);
                 utterance.lang = this.getLanguageCode(language);
+                if (onState) {
+                    utterance.onstart = () => onState('speaking');
+                    utterance.onend = () => onState('done');
+                    utterance.onerror = () => onState('error');
+                }
                 window.speechSynthesis.speak(utterance);
+            } else if (onState) {
+                onState('error');
             }
         }
     }
     
+    // Reads the advice for a diagnosis aloud in the given language. Android renders it to an
+    // audio cache after each scan, so this usually plays at once and offline. Returns false
+    // when there is no native advice audio (browser, unknown crop); fall back to speak() then.
+    speakAdvice(crop, disease, language = 'en', onState = null) {
+        if (!this.isAndroid || typeof window.Android.speakAdvice !== 'function') {
+            return false;
+        }
+        this.speechCallback = onState;
+        this.speechId = window.Android.speakAdvice(resolveCropId(crop), disease, language);
+        if (this.speechId < 0) {
+            this.speechCallback = null;
+            return false;
+        }
+        return true;
+    }
+    
     stopSpeaking() {
         console.log('🔇 nativeBridge.stopSpeaking called');
+        this.speechCallback = null;
         if (this.isAndroid) {
             window.Android.stopSpeaking();
         } else {
@@ -347,12 +664,7 @@ class NativeBridge {
             }
         };
         
-        // Handle maize -> corn mapping
-        if (cropType === 'maize') {
-            cropType = 'corn';
-        }
-        
-        const result = mockData[cropType] || mockData.tomato;
+        const result = mockData[resolveCropId(cropType)] || mockData.tomato;
         console.log('🎭 Mock result:', result);
         return result;
     }
@@ -372,19 +684,69 @@ const nativeBridge = new NativeBridge();
 
 if (typeof window !== 'undefined') {
     // Global handler for image capture from Android
-    window.handleImageCaptured = function(base64Image, error) {
+    // On Android base64Image is only a thumbnail; imageId refers to the full image kept natively
+    window.handleImageCaptured = function(base64Image, error, imageId) {
         console.log('📸 handleImageCaptured called');
         console.log('   Base64 length:', base64Image ? base64Image.length : 'null');
+        console.log('   Image id:', imageId || 'none');
         console.log('   Error:', error || 'none');
         
         if (nativeBridge.imageCaptureCallback) {
             console.log('✅ Calling image capture callback');
-            nativeBridge.imageCaptureCallback(base64Image, error);
+            nativeBridge.imageCaptureCallback(base64Image, error, imageId);
             nativeBridge.imageCaptureCallback = null;
         } else {
             console.warn('⚠️ No callback registered for image capture');
         }
     };
+    
+    // Pushed by Android as advice data and models finish loading;
+    // listen for the 'nativeready' event to show a "model ready" badge
+    window.onNativeReady = function(readiness) {
+        nativeBridge.readiness = readiness;
+        window.dispatchEvent(new CustomEvent('nativeready', { detail: readiness }));
+    };
+    
+    // Live scan results from Android.startLiveScan
+    window.onLiveScanResult = function(result) {
+        if (nativeBridge.liveScanCallback) {
+            nativeBridge.liveScanCallback(result);
+        }
+    };
+    
+    // Pushed by Android when recalibrate() finishes
+    window.onCalibrationDone = function(tuning) {
+        const resolve = nativeBridge.calibrationCallback;
+        nativeBridge.calibration = null;
+        nativeBridge.calibrationCallback = null;
+        if (resolve) {
+            resolve(tuning);
+        }
+    };
+    
+    // Pushed by Android when exportHistory() finishes
+    window.onHistoryExported = function(result) {
+        const resolve = nativeBridge.exportCallbacks.shift();
+        if (resolve) {
+            resolve(result);
+        }
+    };
+    
+    // Speech progress from Android.speak / speakAdvice: { id, state, cached }
+    window.onSpeechState = function(event) {
+        if (nativeBridge.speechCallback && event.id === nativeBridge.speechId) {
+            nativeBridge.speechCallback(event.state, event.cached);
+        }
+    };
+    
+    // Results of Android.classifyImageAsync
+    window.onClassificationResult = function(requestId, result) {
+        const resolve = nativeBridge.pendingScans.get(requestId);
+        if (resolve) {
+            nativeBridge.pendingScans.delete(requestId);
+            resolve(result);
+        }
+    };
 }
 
 export default nativeBridge;
\ No newline at end of file